@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.test.AndroidTestCase;
+import android.text.format.Time;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.common.DayFormatter;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/*
+    Checks DayFormatter against the Time and SimpleDateFormat code it replaced, and measures
+    both.  Timings are written to logcat under the TestDayFormatter tag.
+ */
+public class TestDayFormatter extends AndroidTestCase {
+
+    public static final String LOG_TAG = TestDayFormatter.class.getSimpleName();
+
+    static final long DAY_IN_MILLIS = DayFormatter.DAY_IN_MILLIS;
+    static final int ITERATIONS = 20000;
+
+    private static final String[] ZONES = {
+            "UTC", "America/Los_Angeles", "Europe/Berlin", "Asia/Kolkata", "America/Sao_Paulo",
+            "Australia/Lord_Howe", "Pacific/Apia"
+    };
+
+    public void testNormalizeDateMatchesTime() {
+        TimeZone original = TimeZone.getDefault();
+        try {
+            for (String id : ZONES) {
+                TimeZone zone = TimeZone.getTimeZone(id);
+                TimeZone.setDefault(zone);
+                // Two years of samples, every 7 hours, crosses every DST transition.
+                long start = System.currentTimeMillis() - 365 * DAY_IN_MILLIS;
+                for (long millis = start; millis < start + 2 * 365 * DAY_IN_MILLIS;
+                     millis += 7 * 60 * 60 * 1000) {
+                    Time time = new Time();
+                    time.set(millis);
+                    int julianDay = Time.getJulianDay(millis, time.gmtoff);
+                    assertEquals("Julian day in " + id + " at " + millis,
+                            julianDay, DayFormatter.julianDay(millis, zone));
+
+                    long normalized = DayFormatter.normalizeDate(millis, zone);
+                    assertEquals("Normalized date in " + id + " at " + millis,
+                            julianDay, DayFormatter.julianDay(normalized, zone));
+                    assertTrue("Normalized date in " + id + " at " + millis,
+                            normalized <= millis
+                                    && DayFormatter.julianDay(normalized - 1, zone) < julianDay);
+                }
+            }
+        } finally {
+            TimeZone.setDefault(original);
+        }
+    }
+
+    public void testLabelsMatchSimpleDateFormat() {
+        Locale locale = Locale.getDefault();
+        TimeZone zone = TimeZone.getDefault();
+        long now = System.currentTimeMillis();
+        DayFormatter formatter = new DayFormatter(locale, zone, now,
+                mContext.getString(R.string.today), mContext.getString(R.string.tomorrow),
+                mContext.getString(R.string.format_full_friendly_date));
+        SimpleDateFormat dayName = new SimpleDateFormat("EEEE", locale);
+        SimpleDateFormat monthDay = new SimpleDateFormat("MMMM dd", locale);
+        SimpleDateFormat shortened = new SimpleDateFormat("EEE MMM dd", locale);
+
+        long today = DayFormatter.normalizeDate(now, zone);
+        for (int i = -3; i < 40; i++) {
+            // Midday avoids any ambiguity around DST transitions.
+            long date = today + i * DAY_IN_MILLIS + DAY_IN_MILLIS / 2;
+            assertEquals(monthDay.format(date), formatter.getFormattedMonthDay(date));
+            if (i >= 2) {
+                assertEquals(dayName.format(date), formatter.getDayName(date));
+            }
+            if (i >= 7) {
+                assertEquals(shortened.format(date),
+                        formatter.getFriendlyDayString(date, false));
+            }
+        }
+        assertEquals(mContext.getString(R.string.today),
+                formatter.getFriendlyDayString(now, false));
+        assertEquals(mContext.getString(R.string.tomorrow),
+                formatter.getDayName(now + DAY_IN_MILLIS));
+        assertEquals(mContext.getString(R.string.format_full_friendly_date,
+                mContext.getString(R.string.today), monthDay.format(now)),
+                formatter.getFriendlyDayString(now, true));
+    }
+
+    public void testFriendlyDayStringThroughput() {
+        long today = WeatherContract.normalizeDate(System.currentTimeMillis());
+        // Keep the results live so the work cannot be optimized away.
+        int checksum = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            long date = today + (i % DayFormatter.PRECOMPUTED_DAYS) * DAY_IN_MILLIS;
+            checksum += Utility.getFriendlyDayString(mContext, date, i % 2 == 0).length();
+        }
+        long engineNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            long date = today + (i % DayFormatter.PRECOMPUTED_DAYS) * DAY_IN_MILLIS;
+            checksum += legacyFriendlyDayString(date, i % 2 == 0).length();
+        }
+        long legacyNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            checksum += (int) DayFormatter.normalizeDate(today + i * 3600000L,
+                    DayFormatter.getDefaultZone());
+        }
+        long normalizeNanos = System.nanoTime() - start;
+
+        Log.i(LOG_TAG, "getFriendlyDayString (DayFormatter): "
+                + engineNanos / ITERATIONS + " ns/op");
+        Log.i(LOG_TAG, "getFriendlyDayString (Time + SimpleDateFormat): "
+                + legacyNanos / ITERATIONS + " ns/op");
+        Log.i(LOG_TAG, "normalizeDate (DayFormatter): " + normalizeNanos / ITERATIONS + " ns/op");
+        Log.i(LOG_TAG, "checksum " + checksum);
+    }
+
+    // The implementation before DayFormatter, kept as the reference point.
+    private String legacyFriendlyDayString(long dateInMillis, boolean displayLongToday) {
+        Time time = new Time();
+        time.setToNow();
+        int julianDay = Time.getJulianDay(dateInMillis, time.gmtoff);
+        int currentJulianDay = Time.getJulianDay(System.currentTimeMillis(), time.gmtoff);
+        if (displayLongToday && julianDay == currentJulianDay) {
+            return mContext.getString(R.string.format_full_friendly_date,
+                    mContext.getString(R.string.today),
+                    new SimpleDateFormat("MMMM dd").format(dateInMillis));
+        } else if (julianDay == currentJulianDay) {
+            return mContext.getString(R.string.today);
+        } else if (julianDay == currentJulianDay + 1) {
+            return mContext.getString(R.string.tomorrow);
+        } else if (julianDay < currentJulianDay + 7) {
+            return new SimpleDateFormat("EEEE").format(dateInMillis);
+        } else {
+            return new SimpleDateFormat("EEE MMM dd").format(dateInMillis);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.common.DayFormatter;
+
+public class TestForecastDetail extends AndroidTestCase {
+
+    private long mToday;
+    private String mLocation;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mToday = WeatherContract.normalizeDate(System.currentTimeMillis());
+        mLocation = Utility.getPreferredLocation(mContext);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        ForecastDetail.publish("", new ForecastDetail[0]);
+        super.tearDown();
+    }
+
+    private MatrixCursor createCursor(int days) {
+        MatrixCursor cursor = new MatrixCursor(ForecastFragment.FORECAST_COLUMNS);
+        for (int i = 0; i < days; i++) {
+            cursor.addRow(new Object[] {
+                    i + 1, mToday + i * DayFormatter.DAY_IN_MILLIS, "Clear", 21.5 + i, 12.25,
+                    mLocation, 800, 64.7488, -147.353,
+                    81.0, 1012.5, 5.5, 270.0
+            });
+        }
+        return cursor;
+    }
+
+    private Uri uriFor(String location, int day) {
+        return WeatherContract.WeatherEntry.buildWeatherLocationWithDate(location,
+                mToday + day * DayFormatter.DAY_IN_MILLIS);
+    }
+
+    public void testCachedDetailMatchesLoadedRow() {
+        MatrixCursor cursor = createCursor(14);
+        ForecastDetail[] details = ForecastDetail.fromCursor(mContext, cursor);
+        ForecastDetail.publish(ForecastSnapshot.currentKey(mContext), details);
+
+        for (int day = 0; day < 14; day++) {
+            ForecastDetail cached = ForecastDetail.getCached(mContext, uriFor(mLocation, day));
+            assertSame("Cached detail for day " + day, details[day], cached);
+
+            cursor.moveToPosition(day);
+            ForecastDetail loaded = ForecastDetail.fromCurrentRow(mContext, cursor);
+            assertEquals(loaded.mFullFriendlyDate, cached.mFullFriendlyDate);
+            assertEquals(loaded.mHigh, cached.mHigh);
+            assertEquals(loaded.mHumidity, cached.mHumidity);
+            assertEquals(loaded.mWind, cached.mWind);
+            assertEquals(loaded.mPressure, cached.mPressure);
+            assertEquals(loaded.mShareText, cached.mShareText);
+        }
+        assertEquals(mContext.getString(R.string.format_humidity, 81.0f), details[0].mHumidity);
+        assertEquals(Utility.getFormattedWind(mContext, 5.5f, 270f), details[0].mWind);
+        cursor.close();
+    }
+
+    public void testMissesFallBackToTheLoader() {
+        MatrixCursor cursor = createCursor(3);
+        ForecastDetail.publish(ForecastSnapshot.currentKey(mContext),
+                ForecastDetail.fromCursor(mContext, cursor));
+        cursor.close();
+
+        assertNull("Day that was not loaded", ForecastDetail.getCached(mContext,
+                uriFor(mLocation, 5)));
+        assertNull("Other location", ForecastDetail.getCached(mContext,
+                uriFor(mLocation + "0", 1)));
+        assertNull("No uri", ForecastDetail.getCached(mContext, null));
+
+        cursor = createCursor(3);
+        ForecastDetail.publish("formatted with other settings",
+                ForecastDetail.fromCursor(mContext, cursor));
+        cursor.close();
+        assertNull("Other settings", ForecastDetail.getCached(mContext, uriFor(mLocation, 1)));
+    }
+}
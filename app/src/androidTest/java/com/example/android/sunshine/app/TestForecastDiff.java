@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.support.v7.widget.RecyclerView;
+import android.test.AndroidTestCase;
+import android.view.ViewGroup;
+
+import com.example.android.sunshine.common.DayFormatter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Checks the notifications ForecastDiff sends for insertions, removals and changes at the head,
+    middle and tail of the list, that they coalesce into ranges, and that applying them to the
+    old list in order produces exactly the new one.
+ */
+public class TestForecastDiff extends AndroidTestCase {
+
+    private static ForecastItem item(int day) {
+        return item(day, "Clear", "21°", "12°");
+    }
+
+    private static ForecastItem item(int day, String description, String high, String low) {
+        long date = day * DayFormatter.DAY_IN_MILLIS;
+        return new ForecastItem(day, date, 800, "Day " + day, "Long day " + day,
+                description, "Forecast: " + description, high, "High " + high, low, "Low " + low,
+                R.drawable.ic_clear, R.drawable.art_clear, null);
+    }
+
+    private static ForecastItem[] items(int... days) {
+        ForecastItem[] items = new ForecastItem[days.length];
+        for (int i = 0; i < days.length; i++) {
+            items[i] = item(days[i]);
+        }
+        return items;
+    }
+
+    /**
+     * Dispatches the diff and returns the notifications it sent, as "insert 0 1",
+     * "remove 2 3" or "change 1 1 8" (position, count and payload).
+     */
+    private static List<String> dispatch(ForecastDiff diff) {
+        final List<String> events = new ArrayList<String>();
+        RecyclerView.Adapter adapter = new EmptyAdapter();
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                events.add("insert " + positionStart + " " + itemCount);
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                events.add("remove " + positionStart + " " + itemCount);
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+                events.add("change " + positionStart + " " + itemCount + " " + payload);
+            }
+        });
+        diff.dispatchUpdatesTo(adapter);
+        return events;
+    }
+
+    private static void assertEvents(List<String> actual, String... expected) {
+        assertEquals(toString(expected), actual.toString());
+    }
+
+    private static String toString(String[] strings) {
+        List<String> list = new ArrayList<String>();
+        for (String s : strings) {
+            list.add(s);
+        }
+        return list.toString();
+    }
+
+    /**
+     * Replays the notifications against a copy of the old list, checking each one is in range
+     * and that the result is the new list.
+     */
+    private static void assertTransforms(final ForecastItem[] oldItems,
+                                         final ForecastItem[] newItems) {
+        final ForecastDiff diff = ForecastDiff.calculate(oldItems, newItems);
+        final List<ForecastItem> list = new ArrayList<ForecastItem>();
+        for (ForecastItem item : oldItems) {
+            list.add(item);
+        }
+        RecyclerView.Adapter adapter = new EmptyAdapter();
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                assertTrue(positionStart <= list.size());
+                for (int i = 0; i < itemCount; i++) {
+                    // Everything before the insertion point already matches the new list.
+                    list.add(positionStart + i, newItems[positionStart + i]);
+                }
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                assertTrue(positionStart + itemCount <= list.size());
+                for (int i = 0; i < itemCount; i++) {
+                    list.remove(positionStart);
+                }
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+                for (int i = positionStart; i < positionStart + itemCount; i++) {
+                    ForecastItem oldItem = list.get(i);
+                    assertEquals(newItems[i].mDate, oldItem.mDate);
+                    assertEquals(ForecastDiff.changedFields(oldItem, newItems[i]), payload);
+                    list.set(i, newItems[i]);
+                }
+            }
+        });
+        diff.dispatchUpdatesTo(adapter);
+
+        assertEquals(newItems.length, list.size());
+        for (int i = 0; i < newItems.length; i++) {
+            assertSame("Row " + i + " should be the new row", newItems[i], list.get(i));
+        }
+    }
+
+    public void testIdenticalListsAreEmpty() {
+        ForecastDiff diff = ForecastDiff.calculate(items(1, 2, 3), items(1, 2, 3));
+        assertTrue(diff.isEmpty());
+        assertEvents(dispatch(diff));
+
+        assertTrue(ForecastDiff.calculate(new ForecastItem[0], new ForecastItem[0]).isEmpty());
+    }
+
+    public void testInsertAtHeadMiddleAndTail() {
+        ForecastDiff diff = ForecastDiff.calculate(items(2, 4, 6), items(1, 2, 3, 4, 6, 7, 8));
+        assertFalse(diff.isEmpty());
+        assertEvents(dispatch(diff), "insert 0 1", "insert 2 1", "insert 5 2");
+    }
+
+    public void testRemoveAtHeadMiddleAndTail() {
+        ForecastDiff diff = ForecastDiff.calculate(items(1, 2, 3, 4, 5, 6, 7), items(2, 4, 6));
+        assertEvents(dispatch(diff), "remove 0 1", "remove 1 1", "remove 2 1", "remove 3 1");
+    }
+
+    public void testRunsCoalesce() {
+        // The usual daily sync: yesterday drops off the head, a new day appears at the tail.
+        assertEvents(dispatch(ForecastDiff.calculate(items(1, 2, 3, 4), items(3, 4, 5, 6))),
+                "remove 0 2", "insert 2 2");
+        assertEvents(dispatch(ForecastDiff.calculate(items(1, 2, 3), new ForecastItem[0])),
+                "remove 0 3");
+        assertEvents(dispatch(ForecastDiff.calculate(new ForecastItem[0], items(1, 2, 3))),
+                "insert 0 3");
+    }
+
+    public void testChangeAtHeadMiddleAndTail() {
+        ForecastItem[] oldItems = items(1, 2, 3, 4, 5);
+        ForecastItem[] newItems = new ForecastItem[] {
+                item(1, "Clear", "25°", "12°"),
+                item(2),
+                item(3, "Clear", "21°", "8°"),
+                item(4),
+                item(5, "Rain", "21°", "12°"),
+        };
+        assertEvents(dispatch(ForecastDiff.calculate(oldItems, newItems)),
+                "change 0 1 " + ForecastDiff.CHANGED_HIGH,
+                "change 2 1 " + ForecastDiff.CHANGED_LOW,
+                "change 4 1 " + ForecastDiff.CHANGED_DESCRIPTION);
+    }
+
+    public void testChangesCoalesceOnlyWithTheSamePayload() {
+        ForecastItem[] oldItems = items(1, 2, 3, 4);
+        ForecastItem[] newItems = new ForecastItem[] {
+                item(1, "Clear", "25°", "12°"),
+                item(2, "Clear", "25°", "12°"),
+                item(3, "Clear", "21°", "8°"),
+                item(4, "Clear", "21°", "8°"),
+        };
+        assertEvents(dispatch(ForecastDiff.calculate(oldItems, newItems)),
+                "change 0 2 " + ForecastDiff.CHANGED_HIGH,
+                "change 2 2 " + ForecastDiff.CHANGED_LOW);
+    }
+
+    public void testMixedOperationsTransformOldIntoNew() {
+        assertTransforms(items(1, 2, 3, 5, 6), new ForecastItem[] {
+                item(0), item(2), item(3, "Rain", "18°", "9°"), item(4), item(6), item(7)});
+        assertTransforms(items(1, 3, 5, 7, 9), items(2, 4, 6, 8, 10));
+        assertTransforms(items(1, 2, 3, 4, 5, 6, 7, 8), items(4, 5));
+        assertTransforms(items(4, 5), items(1, 2, 3, 4, 5, 6, 7, 8));
+        assertTransforms(new ForecastItem[] {item(1), item(2), item(3)}, new ForecastItem[] {
+                item(1, "Rain", "21°", "12°"), item(3, "Clear", "21°", "5°"), item(4)});
+    }
+
+    public void testChangedFields() {
+        ForecastItem base = item(1);
+        assertEquals(0, ForecastDiff.changedFields(base, item(1)));
+
+        assertEquals(ForecastDiff.CHANGED_DESCRIPTION,
+                ForecastDiff.changedFields(base, item(1, "Rain", "21°", "12°")));
+        assertEquals(ForecastDiff.CHANGED_HIGH,
+                ForecastDiff.changedFields(base, item(1, "Clear", "22°", "12°")));
+        assertEquals(ForecastDiff.CHANGED_LOW,
+                ForecastDiff.changedFields(base, item(1, "Clear", "21°", "11°")));
+        assertEquals(ForecastDiff.CHANGED_HIGH | ForecastDiff.CHANGED_LOW,
+                ForecastDiff.changedFields(base, item(1, "Clear", "70°", "54°")));
+
+        // Today's row is relabelled at midnight without the weather changing.
+        ForecastItem relabelled = new ForecastItem(base.mId, base.mDate, base.mWeatherId,
+                "Today", base.mLongFriendlyDate, base.mDescription, base.mDescriptionA11y,
+                base.mHigh, base.mHighA11y, base.mLow, base.mLowA11y, base.mIconResourceId,
+                base.mArtResourceId, base.mArtUrl);
+        assertEquals(ForecastDiff.CHANGED_DATE, ForecastDiff.changedFields(base, relabelled));
+        relabelled = new ForecastItem(base.mId, base.mDate, base.mWeatherId,
+                base.mFriendlyDate, "Today, June 24", base.mDescription, base.mDescriptionA11y,
+                base.mHigh, base.mHighA11y, base.mLow, base.mLowA11y, base.mIconResourceId,
+                base.mArtResourceId, base.mArtUrl);
+        assertEquals(ForecastDiff.CHANGED_DATE, ForecastDiff.changedFields(base, relabelled));
+
+        // Switching to a remote art pack changes only the icon.
+        ForecastItem remoteArt = new ForecastItem(base.mId, base.mDate, base.mWeatherId,
+                base.mFriendlyDate, base.mLongFriendlyDate, base.mDescription,
+                base.mDescriptionA11y, base.mHigh, base.mHighA11y, base.mLow, base.mLowA11y,
+                base.mIconResourceId, base.mArtResourceId, "http://example.com/art.png");
+        assertEquals(ForecastDiff.CHANGED_ICON, ForecastDiff.changedFields(base, remoteArt));
+        assertEquals(ForecastDiff.CHANGED_ICON, ForecastDiff.changedFields(remoteArt, base));
+        ForecastItem otherArt = new ForecastItem(base.mId, base.mDate, base.mWeatherId,
+                base.mFriendlyDate, base.mLongFriendlyDate, base.mDescription,
+                base.mDescriptionA11y, base.mHigh, base.mHighA11y, base.mLow, base.mLowA11y,
+                base.mIconResourceId, R.drawable.art_rain, base.mArtUrl);
+        assertEquals(ForecastDiff.CHANGED_ICON, ForecastDiff.changedFields(base, otherArt));
+    }
+
+    public void testIsBasedOn() {
+        ForecastItem[] oldItems = items(1, 2);
+        ForecastItem[] newItems = items(2, 3);
+        ForecastDiff diff = ForecastDiff.calculate(oldItems, newItems);
+        assertTrue(diff.isBasedOn(oldItems));
+        assertFalse("Only the same instance counts", diff.isBasedOn(items(1, 2)));
+        assertSame(newItems, diff.getNewItems());
+    }
+
+    public void testIndexOfDate() {
+        ForecastItem[] items = items(1, 3, 5, 7);
+        assertEquals(0, ForecastDiff.indexOfDate(items, item(1).mDate));
+        assertEquals(2, ForecastDiff.indexOfDate(items, item(5).mDate));
+        assertEquals(3, ForecastDiff.indexOfDate(items, item(7).mDate));
+        assertEquals(-1, ForecastDiff.indexOfDate(items, item(0).mDate));
+        assertEquals(-1, ForecastDiff.indexOfDate(items, item(4).mDate));
+        assertEquals(-1, ForecastDiff.indexOfDate(items, item(8).mDate));
+        assertEquals(-1, ForecastDiff.indexOfDate(new ForecastItem[0], item(1).mDate));
+    }
+
+    // Only here to receive notifications; never attached to a RecyclerView.
+    private static class EmptyAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int getItemCount() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.database.Cursor;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.common.DayFormatter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+/*
+    Checks that the forecast snapshot reads back exactly what was written, and only for the
+    settings it was written with.  Also times reading it against what a cold start otherwise
+    waits for, a provider query plus formatting; results go to logcat under the
+    TestForecastSnapshot tag.
+ */
+public class TestForecastSnapshot extends AndroidTestCase {
+
+    public static final String LOG_TAG = TestForecastSnapshot.class.getSimpleName();
+
+    static final int ITERATIONS = 50;
+
+    private File mFile;
+    private File mBackup;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        // Keep the user's snapshot out of the way.
+        mFile = new File(mContext.getFilesDir(), ForecastSnapshot.FILE_NAME);
+        mBackup = new File(mContext.getFilesDir(), ForecastSnapshot.FILE_NAME + ".test");
+        mFile.renameTo(mBackup);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mFile.delete();
+        mBackup.renameTo(mFile);
+        super.tearDown();
+    }
+
+    private ForecastItem[] createItems(int count) {
+        long today = WeatherContract.normalizeDate(System.currentTimeMillis());
+        ForecastItem[] items = new ForecastItem[count];
+        for (int i = 0; i < count; i++) {
+            long date = today + i * DayFormatter.DAY_IN_MILLIS;
+            int weatherId = i % 2 == 0 ? 800 : 501;
+            String friendly = Utility.getFriendlyDayString(mContext, date, false);
+            items[i] = new ForecastItem(i + 1, date, weatherId, friendly,
+                    Utility.getFriendlyDayString(mContext, date, true),
+                    "Clear", "Forecast: Clear", "21°", "High 21°", "12°", "Low 12°",
+                    Utility.getIconResourceForWeatherCondition(weatherId),
+                    Utility.getArtResourceForWeatherCondition(weatherId),
+                    i == 3 ? "http://example.com/art.png" : null);
+        }
+        return items;
+    }
+
+    public void testRoundTrip() {
+        ForecastItem[] written = createItems(14);
+        ForecastSnapshot.write(mContext, ForecastSnapshot.currentKey(mContext), written);
+
+        ForecastItem[] read = ForecastSnapshot.read(mContext);
+        assertNotNull("Snapshot written with the current key should be readable", read);
+        assertEquals(written.length, read.length);
+        for (int i = 0; i < written.length; i++) {
+            assertEquals(written[i].mId, read[i].mId);
+            assertEquals(written[i].mDate, read[i].mDate);
+            assertEquals(written[i].mWeatherId, read[i].mWeatherId);
+            assertEquals(written[i].mIconResourceId, read[i].mIconResourceId);
+            assertEquals(written[i].mArtResourceId, read[i].mArtResourceId);
+            assertEquals(written[i].mArtUrl, read[i].mArtUrl);
+            assertEquals(0, ForecastDiff.changedFields(written[i], read[i]));
+        }
+        assertTrue("Today's labels should differ",
+                !read[0].mFriendlyDate.equals(read[0].mLongFriendlyDate));
+    }
+
+    public void testOtherSettingsAreIgnored() {
+        ForecastSnapshot.write(mContext, "some other location\n0", createItems(14));
+        assertNull("Snapshot for other settings should not be shown",
+                ForecastSnapshot.read(mContext));
+    }
+
+    public void testCorruptFileIsIgnored() throws Exception {
+        FileOutputStream out = new FileOutputStream(mFile);
+        out.write(new byte[] {0, 0, 0, 1, 0, 100, 1, 2});
+        out.close();
+        assertNull(ForecastSnapshot.read(mContext));
+    }
+
+    public void testSnapshotReadTime() {
+        ForecastSnapshot.write(mContext, ForecastSnapshot.currentKey(mContext), createItems(14));
+        int checksum = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            checksum += ForecastSnapshot.read(mContext).length;
+        }
+        long snapshotNanos = System.nanoTime() - start;
+
+        String location = Utility.getPreferredLocation(mContext);
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            Cursor cursor = mContext.getContentResolver().query(
+                    WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(
+                            location, System.currentTimeMillis()),
+                    ForecastFragment.FORECAST_COLUMNS, null, null,
+                    WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+            if (cursor != null) {
+                checksum += ForecastItem.fromCursor(mContext, cursor).length;
+                cursor.close();
+            }
+        }
+        long loadNanos = System.nanoTime() - start;
+
+        Log.i(LOG_TAG, "Snapshot read: " + snapshotNanos / ITERATIONS / 1000 + " us");
+        Log.i(LOG_TAG, "Query and format: " + loadNanos / ITERATIONS / 1000 + " us");
+        Log.i(LOG_TAG, "checksum " + checksum);
+    }
+}
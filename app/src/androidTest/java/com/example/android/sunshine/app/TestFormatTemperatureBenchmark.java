@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+/*
+    Microbenchmark of Utility.formatTemperature, which runs for every temperature shown in the
+    list, the detail view, widgets, notifications and wear pushes.  It compares the current
+    implementation, which reads SettingsSnapshot, with the previous one that went to
+    SharedPreferences and resources on every call.  Results are written to logcat under the
+    TestFormatTemperatureBenchmark tag.
+ */
+@LargeTest
+public class TestFormatTemperatureBenchmark extends AndroidTestCase {
+
+    public static final String LOG_TAG = TestFormatTemperatureBenchmark.class.getSimpleName();
+
+    static final int WARMUP_ITERATIONS = 20000;
+    static final int ITERATIONS = 200000;
+
+    private String mOriginalUnits;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+        mOriginalUnits = prefs.getString(mContext.getString(R.string.pref_units_key), null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        SharedPreferences.Editor editor =
+                PreferenceManager.getDefaultSharedPreferences(mContext).edit();
+        String unitsKey = mContext.getString(R.string.pref_units_key);
+        if (mOriginalUnits == null) {
+            editor.remove(unitsKey);
+        } else {
+            editor.putString(unitsKey, mOriginalUnits);
+        }
+        editor.commit();
+        SettingsSnapshot.invalidate();
+        super.tearDown();
+    }
+
+    private void setUnits(int unitsValueId) {
+        PreferenceManager.getDefaultSharedPreferences(mContext).edit()
+                .putString(mContext.getString(R.string.pref_units_key),
+                        mContext.getString(unitsValueId))
+                .commit();
+        // Preference listeners run later on the main thread; don't wait for them.
+        SettingsSnapshot.invalidate();
+    }
+
+    public void testFormatTemperatureFollowsUnits() {
+        setUnits(R.string.pref_units_metric);
+        assertEquals(legacyFormatTemperature(mContext, 21.4),
+                Utility.formatTemperature(mContext, 21.4));
+
+        setUnits(R.string.pref_units_imperial);
+        assertEquals(legacyFormatTemperature(mContext, 21.4),
+                Utility.formatTemperature(mContext, 21.4));
+    }
+
+    public void testFormatTemperatureThroughput() {
+        setUnits(R.string.pref_units_imperial);
+
+        // Keep the results live so the work cannot be optimized away.
+        int checksum = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            checksum += Utility.formatTemperature(mContext, i % 80 - 20).length();
+            checksum += legacyFormatTemperature(mContext, i % 80 - 20).length();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            checksum += Utility.formatTemperature(mContext, i % 80 - 20).length();
+        }
+        long snapshotNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            checksum += legacyFormatTemperature(mContext, i % 80 - 20).length();
+        }
+        long legacyNanos = System.nanoTime() - start;
+
+        Log.i(LOG_TAG, String.format("formatTemperature (snapshot): %.0f ops/s, %d ns/op",
+                ITERATIONS * 1e9 / snapshotNanos, snapshotNanos / ITERATIONS));
+        Log.i(LOG_TAG, String.format("formatTemperature (per-call prefs): %.0f ops/s, %d ns/op",
+                ITERATIONS * 1e9 / legacyNanos, legacyNanos / ITERATIONS));
+        Log.i(LOG_TAG, "checksum " + checksum);
+
+        assertTrue(checksum > 0);
+    }
+
+    // The implementation before SettingsSnapshot, kept as the reference point.
+    private static String legacyFormatTemperature(Context context, double temperature) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        boolean metric = prefs.getString(context.getString(R.string.pref_units_key),
+                context.getString(R.string.pref_units_metric))
+                .equals(context.getString(R.string.pref_units_metric));
+        if (!metric) {
+            temperature = (temperature * 1.8) + 32;
+        }
+        return String.format(context.getString(R.string.format_temperature), temperature);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.test.AndroidTestCase;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+public class TestListMetrics extends AndroidTestCase {
+
+    private static final long MS = 1000000;
+
+    public void testDroppedFrames() {
+        ListMetrics metrics = new ListMetrics();
+        metrics.setRefreshRate(60);
+        for (int i = 0; i < 10; i++) {
+            metrics.recordFrame(16667000);
+        }
+        assertTrue(metrics.getSummary().contains("dropped frames: 0\n"));
+
+        // Three intervals long: the two frames after it were dropped.
+        metrics.recordFrame(50 * MS);
+        assertTrue(metrics.getSummary().contains("dropped frames: 2\n"));
+
+        metrics.reset();
+        assertTrue(metrics.getSummary().contains("dropped frames: 0\n"));
+    }
+
+    public void testRingKeepsTheLatestSamples() {
+        ListMetrics metrics = new ListMetrics();
+        // More than the ring holds; the early, slow loads must have been overwritten.
+        for (int i = 0; i < 5000; i++) {
+            metrics.recordLoad(i < 100 ? 900 * MS : 10 * MS);
+        }
+        String summary = metrics.getSummary();
+        assertTrue(summary, summary.contains("load: n=5000 p50=10 p90=10 p99=10 max=10 ms"));
+    }
+
+    public void testDumpIdentifiesTheBuild() {
+        ListMetrics metrics = new ListMetrics();
+        metrics.recordBind(120000);
+        StringWriter out = new StringWriter();
+        metrics.dump("  ", new PrintWriter(out));
+        String report = out.toString();
+        assertTrue(report, report.contains(BuildConfig.VERSION_NAME));
+        assertTrue(report, report.contains("bind: n=1 p50=120 p90=120 p99=120 max=120 us"));
+    }
+}
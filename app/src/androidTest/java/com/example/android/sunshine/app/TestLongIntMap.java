@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.test.AndroidTestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/*
+    Checks LongIntMap against the cases open addressing gets wrong: probe sequences that wrap
+    past the end of the table, backward-shift removal of keys that displaced others, and
+    rehashing when the table grows.
+ */
+public class TestLongIntMap extends AndroidTestCase {
+
+    // A map created for SMALL_SIZE entries has SMALL_CAPACITY slots, and grows on the next put.
+    static final int SMALL_SIZE = 4;
+    static final int SMALL_CAPACITY = 8;
+
+    /**
+     * Mirrors LongIntMap's hash, so the tests can pick keys that collide.
+     */
+    private static int homeSlot(long key, int capacity) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (capacity - 1);
+    }
+
+    /**
+     * @return count distinct positive keys whose home slot is slot, in increasing order
+     */
+    private static long[] keysWithHome(int slot, int capacity, int count, long from) {
+        long[] keys = new long[count];
+        int found = 0;
+        for (long key = from; found < count; key++) {
+            if (homeSlot(key, capacity) == slot) {
+                keys[found++] = key;
+            }
+        }
+        return keys;
+    }
+
+    private static int slotOf(LongIntMap map, long key) {
+        for (int slot = map.nextSlot(0); slot != -1; slot = map.nextSlot(slot + 1)) {
+            if (map.keyAtSlot(slot) == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    public void testAbsentKeys() {
+        LongIntMap map = new LongIntMap(SMALL_SIZE);
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(1));
+        assertEquals(-1, map.get(1, -1));
+        assertEquals(-1, map.nextSlot(0));
+
+        map.put(1, 10);
+        assertFalse(map.containsKey(2));
+        assertEquals(42, map.get(2, 42));
+        // Absent keys can still be looked up when they share a home slot with a present one.
+        long[] colliding = keysWithHome(homeSlot(1, SMALL_CAPACITY), SMALL_CAPACITY, 2, 2);
+        assertFalse(map.containsKey(colliding[0]));
+        assertEquals(-1, map.get(colliding[0], -1));
+
+        // Removing an absent key changes nothing.
+        map.remove(2);
+        assertEquals(1, map.size());
+        assertEquals(10, map.get(1, -1));
+
+        map.remove(1);
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(1));
+        assertEquals(-1, map.get(1, -1));
+    }
+
+    public void testPutReplacesValue() {
+        LongIntMap map = new LongIntMap();
+        map.put(5, 1);
+        map.put(5, 2);
+        assertEquals(1, map.size());
+        assertEquals(2, map.get(5, -1));
+
+        int slot = slotOf(map, 5);
+        map.setValueAtSlot(slot, 3);
+        assertEquals(3, map.get(5, -1));
+        assertEquals(3, map.valueAtSlot(slot));
+    }
+
+    public void testEmptyMarkerIsNotAKey() {
+        LongIntMap map = new LongIntMap();
+        try {
+            map.put(Long.MIN_VALUE, 1);
+            fail("Long.MIN_VALUE should be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(Long.MIN_VALUE));
+    }
+
+    public void testCollisionsWrapAround() {
+        // Three keys that all want the last slot probe into slots 7, 0 and 1.
+        int last = SMALL_CAPACITY - 1;
+        long[] keys = keysWithHome(last, SMALL_CAPACITY, 3, 1);
+        LongIntMap map = new LongIntMap(SMALL_SIZE);
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+        }
+        assertEquals(last, slotOf(map, keys[0]));
+        assertEquals(0, slotOf(map, keys[1]));
+        assertEquals(1, slotOf(map, keys[2]));
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(i, map.get(keys[i], -1));
+        }
+        assertFalse(map.containsKey(keysWithHome(last, SMALL_CAPACITY, 1, keys[2] + 1)[0]));
+    }
+
+    public void testRemoveShiftsDisplacedKeysAcrossTheWrap() {
+        int last = SMALL_CAPACITY - 1;
+        long[] wrapped = keysWithHome(last, SMALL_CAPACITY, 2, 1);
+        // Home slot 0 is taken by the second wrapped key, so this one is displaced to slot 1.
+        long displaced = keysWithHome(0, SMALL_CAPACITY, 1, 1)[0];
+        // Home slot 1 is taken too; it lands in 2.
+        long pushed = keysWithHome(1, SMALL_CAPACITY, 1, 1)[0];
+        LongIntMap map = new LongIntMap(SMALL_SIZE);
+        map.put(wrapped[0], 0);
+        map.put(wrapped[1], 1);
+        map.put(displaced, 2);
+        map.put(pushed, 3);
+        assertEquals(2, slotOf(map, pushed));
+
+        // Every later key moves back one slot, across the end of the table.
+        map.remove(wrapped[0]);
+        assertEquals(3, map.size());
+        assertFalse(map.containsKey(wrapped[0]));
+        assertEquals(last, slotOf(map, wrapped[1]));
+        assertEquals(0, slotOf(map, displaced));
+        assertEquals(1, slotOf(map, pushed));
+        assertEquals(1, map.get(wrapped[1], -1));
+        assertEquals(2, map.get(displaced, -1));
+        assertEquals(3, map.get(pushed, -1));
+
+        // A key already in its home slot must not move into an earlier hole.
+        map.remove(wrapped[1]);
+        assertEquals(0, slotOf(map, displaced));
+        assertEquals(1, slotOf(map, pushed));
+        assertEquals(2, map.get(displaced, -1));
+        assertEquals(3, map.get(pushed, -1));
+
+        map.remove(displaced);
+        map.remove(pushed);
+        assertEquals(0, map.size());
+        assertEquals(-1, map.nextSlot(0));
+    }
+
+    public void testRemoveFromTheMiddleOfARun() {
+        long[] keys = keysWithHome(2, SMALL_CAPACITY, 4, 1);
+        LongIntMap map = new LongIntMap(SMALL_SIZE);
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+        }
+        map.remove(keys[1]);
+        assertFalse(map.containsKey(keys[1]));
+        assertEquals(0, map.get(keys[0], -1));
+        assertEquals(2, map.get(keys[2], -1));
+        assertEquals(3, map.get(keys[3], -1));
+        assertEquals(3, slotOf(map, keys[2]));
+        assertEquals(4, slotOf(map, keys[3]));
+    }
+
+    public void testGrowth() {
+        LongIntMap map = new LongIntMap();
+        long today = 1466726400000L;
+        final int count = 1000;
+        for (int i = 0; i < count; i++) {
+            // Spaced like forecast dates, which differ only in their middle bits.
+            map.put(today + i * 86400000L, i);
+            assertEquals(i + 1, map.size());
+        }
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, map.get(today + i * 86400000L, -1));
+        }
+        assertFalse(map.containsKey(today - 86400000L));
+
+        int seen = 0;
+        for (int slot = map.nextSlot(0); slot != -1; slot = map.nextSlot(slot + 1)) {
+            long key = map.keyAtSlot(slot);
+            assertEquals((int) ((key - today) / 86400000L), map.valueAtSlot(slot));
+            seen++;
+        }
+        assertEquals(count, seen);
+
+        for (int i = 0; i < count; i += 2) {
+            map.remove(today + i * 86400000L);
+        }
+        assertEquals(count / 2, map.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i % 2 == 0 ? -1 : i, map.get(today + i * 86400000L, -1));
+        }
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(-1, map.nextSlot(0));
+        assertFalse(map.containsKey(today + 86400000L));
+    }
+
+    public void testExpectedSizeHoldsWithoutLosingKeys() {
+        LongIntMap map = new LongIntMap(3);
+        for (long key = 1; key <= 20; key++) {
+            map.put(key, (int) -key);
+        }
+        for (long key = 1; key <= 20; key++) {
+            assertEquals((int) -key, map.get(key, 0));
+        }
+    }
+
+    public void testMatchesHashMap() {
+        // Small key range so puts, replacements and removals keep hitting the same probe runs.
+        Random random = new Random(42);
+        LongIntMap map = new LongIntMap();
+        Map<Long, Integer> expected = new HashMap<Long, Integer>();
+        for (int i = 0; i < 20000; i++) {
+            long key = random.nextInt(64) - 32;
+            if (random.nextInt(3) == 0) {
+                map.remove(key);
+                expected.remove(key);
+            } else {
+                map.put(key, i);
+                expected.put(key, i);
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (long key = -32; key < 32; key++) {
+            Integer value = expected.get(key);
+            assertEquals(value != null, map.containsKey(key));
+            assertEquals(value != null ? value : -1, map.get(key, -1));
+        }
+    }
+}
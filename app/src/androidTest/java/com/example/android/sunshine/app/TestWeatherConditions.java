@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.res.Resources;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.common.WeatherConditions;
+
+/*
+    The phone's resource tables must be in WeatherConditions kind and label order; the wear app
+    has the same test for its icons, so both apps show the same kind for every condition.
+ */
+public class TestWeatherConditions extends AndroidTestCase {
+
+    // Resource name of each kind's icon and art, without the ic_ or art_ prefix.
+    static final String[] ICON_NAMES = {
+            "storm", "light_rain", "rain", "snow", "fog", "clear", "light_clouds", "cloudy"
+    };
+    static final String[] ART_NAMES = {
+            "storm", "light_rain", "rain", "snow", "fog", "clear", "light_clouds", "clouds"
+    };
+
+    public void testResourceTablesFollowKinds() {
+        Resources res = mContext.getResources();
+        assertEquals(WeatherConditions.KIND_COUNT + 1, Utility.ICON_RESOURCES.length);
+        assertEquals(WeatherConditions.KIND_COUNT + 1, Utility.ART_RESOURCES.length);
+        assertEquals(-1, Utility.ICON_RESOURCES[0]);
+        assertEquals(-1, Utility.ART_RESOURCES[0]);
+        for (int kind = 0; kind < WeatherConditions.KIND_COUNT; kind++) {
+            assertEquals("ic_" + ICON_NAMES[kind],
+                    res.getResourceEntryName(Utility.ICON_RESOURCES[kind + 1]));
+            assertEquals("art_" + ART_NAMES[kind],
+                    res.getResourceEntryName(Utility.ART_RESOURCES[kind + 1]));
+            // Art packs are named after the kinds.
+            assertEquals(ART_NAMES[kind], WeatherConditions.getKindName(kind));
+        }
+    }
+
+    public void testLabelsFollowWeatherConditions() {
+        Resources res = mContext.getResources();
+        assertEquals(WeatherConditions.getLabelCount(), Utility.CONDITION_LABELS.length);
+        for (int label = 0; label < Utility.CONDITION_LABELS.length; label++) {
+            assertEquals("condition_" + WeatherConditions.getLabelName(label),
+                    res.getResourceEntryName(Utility.CONDITION_LABELS[label]));
+        }
+    }
+
+    public void testUnknownConditions() {
+        assertEquals(-1, Utility.getIconResourceForWeatherCondition(0));
+        assertEquals(-1, Utility.getArtResourceForWeatherCondition(999));
+        assertNull(Utility.getArtUrlForWeatherCondition(mContext, 42));
+        assertNull(Utility.getImageUrlForWeatherCondition(-5));
+        assertEquals(mContext.getString(R.string.condition_unknown, 123),
+                Utility.getStringForWeatherCondition(mContext, 123));
+    }
+}
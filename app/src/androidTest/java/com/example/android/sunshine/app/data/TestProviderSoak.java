@@ -0,0 +1,394 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+import com.example.android.sunshine.app.ForecastFragment;
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+    Soak benchmark for the data layer.  TestProvider and TestDb only look at a handful of rows, so
+    this seeds the provider with a large synthetic history (many locations, years of daily rows)
+    and then runs the same mix of operations the app performs in the field, concurrently:
+
+        - sync:    bulkInsert of a 14 day forecast, as SunshineSyncAdapter does
+        - list:    weather/<location>?date=<today>, as ForecastFragment does
+        - detail:  weather/<location>/<date>, as DetailFragment does
+        - widget:  weather/<location>?date=<today> with the widget projection
+
+    Throughput, p50/p99 latency per operation and database file growth are written to logcat
+    under the TestProviderSoak tag.  The sizes below are deliberately large; shrink them when
+    running on slow emulators.
+ */
+@LargeTest
+public class TestProviderSoak extends AndroidTestCase {
+
+    public static final String LOG_TAG = TestProviderSoak.class.getSimpleName();
+
+    // Seed size: LOCATION_COUNT * HISTORY_DAYS weather rows.
+    static final int LOCATION_COUNT = 1000;
+    static final int HISTORY_DAYS = 2 * 365;
+    static final int FORECAST_DAYS = 14;
+
+    // Mixed workload configuration.
+    static final int SYNC_THREADS = 2;
+    static final int LIST_THREADS = 2;
+    static final int DETAIL_THREADS = 2;
+    static final int WIDGET_THREADS = 1;
+    static final long WORKLOAD_DURATION_MS = 30 * 1000;
+
+    // Upper bound of latency samples kept per worker; later samples only count towards throughput.
+    static final int MAX_SAMPLES_PER_WORKER = 50000;
+
+    static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+
+    private static final String LOCATION_PREFIX = "soak-";
+
+    // The list and the detail view both query with ForecastFragment.FORECAST_COLUMNS; this
+    // mirrors the widget's, so the queries cost the same as the app's.
+    private static final String[] WIDGET_COLUMNS = {
+            WeatherEntry.TABLE_NAME + "." + WeatherEntry._ID,
+            WeatherEntry.COLUMN_DATE,
+            WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherEntry.COLUMN_MIN_TEMP
+    };
+
+    private static final String SORT_ORDER = WeatherEntry.COLUMN_DATE + " ASC";
+
+    private long[] mLocationIds;
+    private long mToday;
+    private long mFirstDay;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        deleteAllRecords();
+        mToday = WeatherContract.normalizeDate(System.currentTimeMillis());
+        // Leave room for the forecast after the history so that syncs overwrite real rows.
+        mFirstDay = mToday - (HISTORY_DAYS - FORECAST_DAYS) * DAY_IN_MILLIS;
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteAllRecords();
+        super.tearDown();
+    }
+
+    private void deleteAllRecords() {
+        ContentResolver resolver = mContext.getContentResolver();
+        resolver.delete(WeatherEntry.CONTENT_URI, null, null);
+        resolver.delete(LocationEntry.CONTENT_URI, null, null);
+    }
+
+    private long databaseSize() {
+        File db = mContext.getDatabasePath(WeatherDbHelper.DATABASE_NAME);
+        File journal = new File(db.getPath() + "-journal");
+        File wal = new File(db.getPath() + "-wal");
+        return db.length() + journal.length() + wal.length();
+    }
+
+    public void testMixedWorkloadSoak() throws Throwable {
+        long emptySize = databaseSize();
+
+        long seedStart = SystemClock.elapsedRealtime();
+        int seededRows = seed();
+        long seedMillis = SystemClock.elapsedRealtime() - seedStart;
+        long seededSize = databaseSize();
+
+        assertEquals("Error: not every seeded row was inserted",
+                LOCATION_COUNT * HISTORY_DAYS, seededRows);
+        Log.i(LOG_TAG, String.format("seed: %d locations, %d rows in %d ms (%.0f rows/s), "
+                        + "db %d -> %d bytes (%.1f bytes/row)",
+                LOCATION_COUNT, seededRows, seedMillis, seededRows * 1000.0 / seedMillis,
+                emptySize, seededSize, (seededSize - emptySize) / (double) seededRows));
+
+        Worker[] workers = new Worker[SYNC_THREADS + LIST_THREADS + DETAIL_THREADS
+                + WIDGET_THREADS];
+        int w = 0;
+        for (int i = 0; i < SYNC_THREADS; i++) workers[w++] = new SyncWorker(w);
+        for (int i = 0; i < LIST_THREADS; i++) workers[w++] = new ListWorker(w);
+        for (int i = 0; i < DETAIL_THREADS; i++) workers[w++] = new DetailWorker(w);
+        for (int i = 0; i < WIDGET_THREADS; i++) workers[w++] = new WidgetWorker(w);
+
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(workers.length);
+        AtomicInteger failures = new AtomicInteger();
+        long deadline = SystemClock.elapsedRealtime() + WORKLOAD_DURATION_MS;
+        for (Worker worker : workers) {
+            worker.start(start, done, deadline, failures);
+        }
+        long workloadStart = SystemClock.elapsedRealtime();
+        start.countDown();
+        done.await();
+        long workloadMillis = SystemClock.elapsedRealtime() - workloadStart;
+
+        for (Worker worker : workers) {
+            if (worker.mError != null) {
+                throw worker.mError;
+            }
+        }
+
+        report("sync", workers, SyncWorker.class, workloadMillis);
+        report("list", workers, ListWorker.class, workloadMillis);
+        report("detail", workers, DetailWorker.class, workloadMillis);
+        report("widget", workers, WidgetWorker.class, workloadMillis);
+
+        long finalSize = databaseSize();
+        Log.i(LOG_TAG, String.format("db size: empty %d, seeded %d, after workload %d bytes",
+                emptySize, seededSize, finalSize));
+
+        assertEquals("Error: queries returned unexpected results during the soak",
+                0, failures.get());
+    }
+
+    /**
+     * Inserts LOCATION_COUNT locations and HISTORY_DAYS of weather for each of them through the
+     * provider, one bulkInsert per location.
+     *
+     * @return the number of weather rows inserted
+     */
+    private int seed() {
+        ContentResolver resolver = mContext.getContentResolver();
+        Random random = new Random(LOCATION_COUNT);
+        mLocationIds = new long[LOCATION_COUNT];
+        int inserted = 0;
+        for (int i = 0; i < LOCATION_COUNT; i++) {
+            ContentValues location = new ContentValues();
+            location.put(LocationEntry.COLUMN_LOCATION_SETTING, LOCATION_PREFIX + i);
+            location.put(LocationEntry.COLUMN_CITY_NAME, "Soak City " + i);
+            location.put(LocationEntry.COLUMN_COORD_LAT, random.nextDouble() * 180 - 90);
+            location.put(LocationEntry.COLUMN_COORD_LONG, random.nextDouble() * 360 - 180);
+            Uri locationUri = resolver.insert(LocationEntry.CONTENT_URI, location);
+            mLocationIds[i] = ContentUris.parseId(locationUri);
+            assertTrue("Error: failed to insert location " + i, mLocationIds[i] != -1);
+
+            inserted += resolver.bulkInsert(WeatherEntry.CONTENT_URI,
+                    createWeatherValues(mLocationIds[i], mFirstDay, HISTORY_DAYS, random));
+        }
+        return inserted;
+    }
+
+    static ContentValues[] createWeatherValues(long locationRowId, long firstDay, int days,
+            Random random) {
+        ContentValues[] values = new ContentValues[days];
+        for (int i = 0; i < days; i++) {
+            double low = random.nextInt(40) - 10 + random.nextDouble();
+            ContentValues weatherValues = new ContentValues();
+            weatherValues.put(WeatherEntry.COLUMN_LOC_KEY, locationRowId);
+            weatherValues.put(WeatherEntry.COLUMN_DATE, firstDay + i * DAY_IN_MILLIS);
+            weatherValues.put(WeatherEntry.COLUMN_DEGREES, random.nextDouble() * 360);
+            weatherValues.put(WeatherEntry.COLUMN_HUMIDITY, random.nextInt(100));
+            weatherValues.put(WeatherEntry.COLUMN_PRESSURE, 980 + random.nextDouble() * 60);
+            weatherValues.put(WeatherEntry.COLUMN_MAX_TEMP, low + random.nextInt(15));
+            weatherValues.put(WeatherEntry.COLUMN_MIN_TEMP, low);
+            weatherValues.put(WeatherEntry.COLUMN_SHORT_DESC, "Clouds");
+            weatherValues.put(WeatherEntry.COLUMN_WIND_SPEED, random.nextDouble() * 20);
+            weatherValues.put(WeatherEntry.COLUMN_WEATHER_ID, 800 + random.nextInt(5));
+            values[i] = weatherValues;
+        }
+        return values;
+    }
+
+    private static void report(String name, Worker[] workers, Class<? extends Worker> type,
+            long workloadMillis) {
+        int operations = 0;
+        int sampleCount = 0;
+        for (Worker worker : workers) {
+            if (type.isInstance(worker)) {
+                operations += worker.mOperations;
+                sampleCount += worker.mSampleCount;
+            }
+        }
+        long[] samples = new long[sampleCount];
+        int offset = 0;
+        for (Worker worker : workers) {
+            if (type.isInstance(worker)) {
+                System.arraycopy(worker.mSamples, 0, samples, offset, worker.mSampleCount);
+                offset += worker.mSampleCount;
+            }
+        }
+        Arrays.sort(samples);
+        Log.i(LOG_TAG, String.format("%s: %d ops, %.1f ops/s, p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+                name, operations, operations * 1000.0 / workloadMillis,
+                percentile(samples, 50) / 1e6, percentile(samples, 99) / 1e6,
+                samples.length == 0 ? 0 : samples[samples.length - 1] / 1e6));
+    }
+
+    static long percentile(long[] sortedSamples, int percentile) {
+        if (sortedSamples.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sortedSamples.length) - 1;
+        return sortedSamples[Math.max(0, Math.min(index, sortedSamples.length - 1))];
+    }
+
+    /**
+     * A worker thread that repeats one kind of operation until the deadline, recording the
+     * latency of each operation in nanoseconds.
+     */
+    abstract class Worker implements Runnable {
+        final Random mRandom;
+        final long[] mSamples = new long[MAX_SAMPLES_PER_WORKER];
+        int mSampleCount;
+        int mOperations;
+        volatile Throwable mError;
+
+        private CountDownLatch mStart;
+        private CountDownLatch mDone;
+        private long mDeadline;
+        AtomicInteger mFailures;
+
+        Worker(int seed) {
+            mRandom = new Random(seed);
+        }
+
+        void start(CountDownLatch start, CountDownLatch done, long deadline,
+                AtomicInteger failures) {
+            mStart = start;
+            mDone = done;
+            mDeadline = deadline;
+            mFailures = failures;
+            new Thread(this, LOG_TAG + "-" + getClass().getSimpleName()).start();
+        }
+
+        @Override
+        public void run() {
+            try {
+                mStart.await();
+                while (SystemClock.elapsedRealtime() < mDeadline) {
+                    long begin = System.nanoTime();
+                    operation();
+                    long elapsed = System.nanoTime() - begin;
+                    if (mSampleCount < mSamples.length) {
+                        mSamples[mSampleCount++] = elapsed;
+                    }
+                    mOperations++;
+                }
+            } catch (Throwable t) {
+                mError = t;
+            } finally {
+                mDone.countDown();
+            }
+        }
+
+        String randomLocation() {
+            return LOCATION_PREFIX + mRandom.nextInt(LOCATION_COUNT);
+        }
+
+        /**
+         * Reads every row of the cursor the way the adapters do, so the timing includes filling
+         * the cursor window and not just the query preparation.
+         */
+        int drain(Cursor cursor) {
+            if (cursor == null) {
+                mFailures.incrementAndGet();
+                return 0;
+            }
+            int rows = 0;
+            while (cursor.moveToNext()) {
+                cursor.getLong(1);
+                rows++;
+            }
+            cursor.close();
+            return rows;
+        }
+
+        abstract void operation();
+    }
+
+    class SyncWorker extends Worker {
+        SyncWorker(int seed) {
+            super(seed);
+        }
+
+        @Override
+        void operation() {
+            long locationId = mLocationIds[mRandom.nextInt(LOCATION_COUNT)];
+            int inserted = mContext.getContentResolver().bulkInsert(WeatherEntry.CONTENT_URI,
+                    createWeatherValues(locationId, mToday, FORECAST_DAYS, mRandom));
+            if (inserted != FORECAST_DAYS) {
+                mFailures.incrementAndGet();
+            }
+        }
+    }
+
+    class ListWorker extends Worker {
+        ListWorker(int seed) {
+            super(seed);
+        }
+
+        @Override
+        void operation() {
+            Uri uri = WeatherEntry.buildWeatherLocationWithStartDate(randomLocation(), mToday);
+            int rows = drain(mContext.getContentResolver().query(uri,
+                    ForecastFragment.FORECAST_COLUMNS, null, null, SORT_ORDER));
+            if (rows < FORECAST_DAYS) {
+                mFailures.incrementAndGet();
+            }
+        }
+    }
+
+    class DetailWorker extends Worker {
+        DetailWorker(int seed) {
+            super(seed);
+        }
+
+        @Override
+        void operation() {
+            long date = mToday + mRandom.nextInt(FORECAST_DAYS) * DAY_IN_MILLIS;
+            Uri uri = WeatherEntry.buildWeatherLocationWithDate(randomLocation(), date);
+            int rows = drain(mContext.getContentResolver().query(uri,
+                    ForecastFragment.FORECAST_COLUMNS, null, null, null));
+            if (rows != 1) {
+                mFailures.incrementAndGet();
+            }
+        }
+    }
+
+    class WidgetWorker extends Worker {
+        WidgetWorker(int seed) {
+            super(seed);
+        }
+
+        @Override
+        void operation() {
+            Uri uri = WeatherEntry.buildWeatherLocationWithStartDate(randomLocation(), mToday);
+            int rows = drain(mContext.getContentResolver().query(uri, WIDGET_COLUMNS, null, null,
+                    SORT_ORDER));
+            if (rows < FORECAST_DAYS) {
+                mFailures.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.widget;
+
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.R;
+
+public class TestTodayWidgetUpdates extends AndroidTestCase {
+
+    private static final TodayWidgetIntentService.PushedState PUSHED =
+            new TodayWidgetIntentService.PushedState(R.layout.widget_today, 1, 2);
+
+    public void testUpdateKind() {
+        assertEquals("Never pushed", TodayWidgetIntentService.UPDATE_FULL,
+                TodayWidgetIntentService.getUpdateKind(null, R.layout.widget_today, 1, 2));
+        assertEquals("Unchanged", TodayWidgetIntentService.UPDATE_NONE,
+                TodayWidgetIntentService.getUpdateKind(PUSHED, R.layout.widget_today, 1, 2));
+        assertEquals("New temperatures", TodayWidgetIntentService.UPDATE_TEXT,
+                TodayWidgetIntentService.getUpdateKind(PUSHED, R.layout.widget_today, 1, 3));
+        assertEquals("New art", TodayWidgetIntentService.UPDATE_FULL,
+                TodayWidgetIntentService.getUpdateKind(PUSHED, R.layout.widget_today, 4, 2));
+        assertEquals("Resized", TodayWidgetIntentService.UPDATE_FULL,
+                TodayWidgetIntentService.getUpdateKind(PUSHED, R.layout.widget_today_large, 1, 2));
+    }
+}
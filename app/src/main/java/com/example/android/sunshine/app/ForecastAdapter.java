@@ -29,9 +29,10 @@ import android.widget.Checkable;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import com.bumptech.glide.Glide;
 import com.example.android.sunshine.app.data.WeatherContract;
 
+import java.util.List;
+
 /**
  * {@link ForecastAdapter} exposes a list of weather forecasts
  * from a {@link android.database.Cursor} to a {@link android.support.v7.widget.RecyclerView}.
@@ -44,11 +45,16 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
     // Flag to determine if we want to use a separate view for "today".
     private boolean mUseTodayLayout = true;
 
+    private static final ForecastItem[] NO_ITEMS = new ForecastItem[0];
+
     private Cursor mCursor;
+    private ForecastItem[] mItems = NO_ITEMS;
     final private Context mContext;
     final private ForecastAdapterOnClickHandler mClickHandler;
     final private View mEmptyView;
     final private ItemChoiceManager mICM;
+    // Null unless ListMetrics are enabled.
+    private ListMetrics mMetrics;
 
     /**
      * Cache of the children views for a forecast list item.
@@ -73,9 +79,11 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
         @Override
         public void onClick(View v) {
             int adapterPosition = getAdapterPosition();
-            mCursor.moveToPosition(adapterPosition);
-            int dateColumnIndex = mCursor.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_DATE);
-            mClickHandler.onClick(mCursor.getLong(dateColumnIndex), this);
+            // A removed row can still be tapped while it animates out.
+            if (adapterPosition == RecyclerView.NO_POSITION) {
+                return;
+            }
+            mClickHandler.onClick(mItems[adapterPosition].mDate, this);
             mICM.onClick(this);
         }
     }
@@ -88,6 +96,9 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
         mContext = context;
         mClickHandler = dh;
         mEmptyView = emptyView;
+        // Each row is one day, so the date is a natural stable ID.  This has to be set before
+        // the ItemChoiceManager registers its observer.
+        setHasStableIds(true);
         mICM = new ItemChoiceManager(this);
         mICM.setChoiceMode(choiceMode);
     }
@@ -124,65 +135,114 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
 
     @Override
     public void onBindViewHolder(ForecastAdapterViewHolder forecastAdapterViewHolder, int position) {
-        mCursor.moveToPosition(position);
-        int weatherId = mCursor.getInt(ForecastFragment.COL_WEATHER_CONDITION_ID);
-        int defaultImage;
-        boolean useLongToday;
-
-        switch (getItemViewType(position)) {
-            case VIEW_TYPE_TODAY:
-                defaultImage = Utility.getArtResourceForWeatherCondition(weatherId);
-                useLongToday = true;
-                break;
-            default:
-                defaultImage = Utility.getIconResourceForWeatherCondition(weatherId);
-                useLongToday = false;
-        }
-
-        if ( Utility.usingLocalGraphics(mContext) ) {
-            forecastAdapterViewHolder.mIconView.setImageResource(defaultImage);
-        } else {
-            Glide.with(mContext)
-                    .load(Utility.getArtUrlForWeatherCondition(mContext, weatherId))
-                    .error(defaultImage)
-                    .crossFade()
-                    .into(forecastAdapterViewHolder.mIconView);
-        }
-
-        // this enables better animations. even if we lose state due to a device rotation,
-        // the animator can use this to re-find the original view
-        ViewCompat.setTransitionName(forecastAdapterViewHolder.mIconView, "iconView" + position);
+        long bindStart = mMetrics == null ? 0 : System.nanoTime();
+        // Everything shown here was formatted by the loader, off the main thread.
+        ForecastItem item = mItems[position];
+        boolean useTodayLayout = getItemViewType(position) == VIEW_TYPE_TODAY;
 
-        // Read date from cursor
-        long dateInMillis = mCursor.getLong(ForecastFragment.COL_WEATHER_DATE);
+        bindIcon(forecastAdapterViewHolder, item, useTodayLayout);
 
-        // Find TextView and set formatted date on it
-        forecastAdapterViewHolder.mDateView.setText(Utility.getFriendlyDayString(mContext, dateInMillis, useLongToday));
+        // this enables better animations. even if we lose state due to a device rotation,
+        // the animator can use this to re-find the original view.  Keyed by date rather than
+        // position, since rows that only move are not rebound after a diff.
+        ViewCompat.setTransitionName(forecastAdapterViewHolder.mIconView, "iconView" + item.mDate);
 
-        // Read weather forecast from cursor
-        String description = Utility.getStringForWeatherCondition(mContext, weatherId);
+        forecastAdapterViewHolder.mDateView.setText(
+                useTodayLayout ? item.mLongFriendlyDate : item.mFriendlyDate);
 
-        // Find TextView and set weather forecast on it
-        forecastAdapterViewHolder.mDescriptionView.setText(description);
-        forecastAdapterViewHolder.mDescriptionView.setContentDescription(mContext.getString(R.string.a11y_forecast, description));
+        forecastAdapterViewHolder.mDescriptionView.setText(item.mDescription);
+        forecastAdapterViewHolder.mDescriptionView.setContentDescription(item.mDescriptionA11y);
 
         // For accessibility, we don't want a content description for the icon field
         // because the information is repeated in the description view and the icon
         // is not individually selectable
 
-        // Read high temperature from cursor
-        double high = mCursor.getDouble(ForecastFragment.COL_WEATHER_MAX_TEMP);
-        String highString = Utility.formatTemperature(mContext, high);
-        forecastAdapterViewHolder.mHighTempView.setText(highString);
-        forecastAdapterViewHolder.mHighTempView.setContentDescription(mContext.getString(R.string.a11y_high_temp, highString));
+        forecastAdapterViewHolder.mHighTempView.setText(item.mHigh);
+        forecastAdapterViewHolder.mHighTempView.setContentDescription(item.mHighA11y);
 
-        // Read low temperature from cursor
-        double low = mCursor.getDouble(ForecastFragment.COL_WEATHER_MIN_TEMP);
-        String lowString = Utility.formatTemperature(mContext, low);
-        forecastAdapterViewHolder.mLowTempView.setText(lowString);
-        forecastAdapterViewHolder.mLowTempView.setContentDescription(mContext.getString(R.string.a11y_low_temp, lowString));
+        forecastAdapterViewHolder.mLowTempView.setText(item.mLow);
+        forecastAdapterViewHolder.mLowTempView.setContentDescription(item.mLowA11y);
 
         mICM.onBindViewHolder(forecastAdapterViewHolder, position);
+        if ( mMetrics != null ) {
+            mMetrics.recordBind(System.nanoTime() - bindStart);
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(ForecastAdapterViewHolder forecastAdapterViewHolder, int position,
+                                 List<Object> payloads) {
+        if ( payloads.isEmpty() ) {
+            onBindViewHolder(forecastAdapterViewHolder, position);
+            return;
+        }
+
+        // Partial rebind: only touch the views whose fields changed, see ForecastDiff.
+        long bindStart = mMetrics == null ? 0 : System.nanoTime();
+        int changes = 0;
+        for (int i = 0; i < payloads.size(); i++) {
+            Object payload = payloads.get(i);
+            if ( payload instanceof Integer ) {
+                changes |= (Integer) payload;
+            }
+        }
+        ForecastItem item = mItems[position];
+        boolean useTodayLayout = getItemViewType(position) == VIEW_TYPE_TODAY;
+
+        if ( (changes & ForecastDiff.CHANGED_ICON) != 0 ) {
+            bindIcon(forecastAdapterViewHolder, item, useTodayLayout);
+        }
+        if ( (changes & ForecastDiff.CHANGED_DATE) != 0 ) {
+            forecastAdapterViewHolder.mDateView.setText(
+                    useTodayLayout ? item.mLongFriendlyDate : item.mFriendlyDate);
+        }
+        if ( (changes & ForecastDiff.CHANGED_DESCRIPTION) != 0 ) {
+            forecastAdapterViewHolder.mDescriptionView.setText(item.mDescription);
+            forecastAdapterViewHolder.mDescriptionView.setContentDescription(item.mDescriptionA11y);
+        }
+        if ( (changes & ForecastDiff.CHANGED_HIGH) != 0 ) {
+            forecastAdapterViewHolder.mHighTempView.setText(item.mHigh);
+            forecastAdapterViewHolder.mHighTempView.setContentDescription(item.mHighA11y);
+        }
+        if ( (changes & ForecastDiff.CHANGED_LOW) != 0 ) {
+            forecastAdapterViewHolder.mLowTempView.setText(item.mLow);
+            forecastAdapterViewHolder.mLowTempView.setContentDescription(item.mLowA11y);
+        }
+        if ( mMetrics != null ) {
+            mMetrics.recordBind(System.nanoTime() - bindStart);
+        }
+    }
+
+    private void bindIcon(ForecastAdapterViewHolder forecastAdapterViewHolder, ForecastItem item,
+                          boolean useTodayLayout) {
+        int defaultImage = useTodayLayout ? item.mArtResourceId : item.mIconResourceId;
+        if ( item.mArtUrl == null ) {
+            forecastAdapterViewHolder.mIconView.setImageResource(defaultImage);
+        } else {
+            // Prefetched after each sync at exactly this size, see WeatherArt.
+            WeatherArt.load(mContext, item.mArtUrl,
+                    useTodayLayout ? WeatherArt.SIZE_ART : WeatherArt.SIZE_ICON)
+                    .error(defaultImage)
+                    .animate(android.R.anim.fade_in)
+                    .into(forecastAdapterViewHolder.mIconView);
+        }
+    }
+
+    /**
+     * The first row uses a different layout.  When a diff changes which day is first, neither
+     * the new first row nor the old one (if it is still in the list) gets a notification from
+     * the diff that would make it switch layouts, so ask for a full rebind of both.
+     */
+    private void rebindTodayRow(ForecastItem[] oldItems) {
+        if ( !mUseTodayLayout || mItems.length == 0 || oldItems.length == 0 ||
+                mItems[0].mDate == oldItems[0].mDate ) {
+            return;
+        }
+        notifyItemChanged(0);
+        int oldTodayPosition = ForecastDiff.indexOfDate(mItems, oldItems[0].mDate);
+        if ( oldTodayPosition > 0 ) {
+            notifyItemChanged(oldTodayPosition);
+        }
     }
 
     public void onRestoreInstanceState(Bundle savedInstanceState) {
@@ -193,6 +253,10 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
         mICM.onSaveInstanceState(outState);
     }
 
+    public void setMetrics(ListMetrics metrics) {
+        mMetrics = metrics;
+    }
+
     public void setUseTodayLayout(boolean useTodayLayout) {
         mUseTodayLayout = useTodayLayout;
     }
@@ -206,14 +270,49 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
         return (position == 0 && mUseTodayLayout) ? VIEW_TYPE_TODAY : VIEW_TYPE_FUTURE_DAY;
     }
 
+    @Override
+    public long getItemId(int position) {
+        return mItems[position].mDate;
+    }
+
     @Override
     public int getItemCount() {
-        if ( null == mCursor ) return 0;
-        return mCursor.getCount();
+        return mItems.length;
     }
 
     public void swapCursor(Cursor newCursor) {
+        ForecastItem[] oldItems = mItems;
+        ForecastDiff diff = null;
         mCursor = newCursor;
+        if ( null == newCursor ) {
+            mItems = NO_ITEMS;
+        } else if ( newCursor instanceof ForecastLoader.ForecastCursor ) {
+            ForecastLoader.ForecastCursor forecastCursor = (ForecastLoader.ForecastCursor) newCursor;
+            mItems = forecastCursor.getItems();
+            diff = forecastCursor.getDiff();
+        } else {
+            // Not from a ForecastLoader, so we have to pay for the formatting here.
+            mItems = ForecastItem.fromCursor(mContext, newCursor);
+        }
+
+        if ( null != diff && diff.isBasedOn(oldItems) ) {
+            // The loader diffed against exactly what we are showing, so we can tell the
+            // RecyclerView precisely what changed instead of rebinding every row.
+            diff.dispatchUpdatesTo(this);
+            rebindTodayRow(oldItems);
+        } else {
+            notifyDataSetChanged();
+        }
+        mEmptyView.setVisibility(getItemCount() == 0 ? View.VISIBLE : View.GONE);
+    }
+
+    /**
+     * Shows rows that did not come from a cursor, such as a {@link ForecastSnapshot}, until the
+     * next {@link #swapCursor}.
+     */
+    public void swapItems(ForecastItem[] items) {
+        mCursor = null;
+        mItems = items;
         notifyDataSetChanged();
         mEmptyView.setVisibility(getItemCount() == 0 ? View.VISIBLE : View.GONE);
     }
@@ -222,6 +321,10 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
         return mCursor;
     }
 
+    public ForecastItem[] getItems() {
+        return mItems;
+    }
+
     public void selectView(RecyclerView.ViewHolder viewHolder) {
         if ( viewHolder instanceof ForecastAdapterViewHolder ) {
             ForecastAdapterViewHolder vfh = (ForecastAdapterViewHolder)viewHolder;
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+/**
+ * Immutable, fully formatted contents of the detail view for one day.
+ *
+ * {@link ForecastLoader} builds one for every row of the forecast list and publishes them with
+ * {@link #publish}, so that {@link DetailFragment} can show a day the list has already loaded
+ * on its first frame, without querying the provider again.
+ */
+public class ForecastDetail {
+    public final long mDate;
+    public final int mWeatherId;
+
+    public final String mFullFriendlyDate;
+    public final String mDescription;
+    public final String mDescriptionA11y;
+    public final String mIconA11y;
+    public final String mHigh;
+    public final String mHighA11y;
+    public final String mLow;
+    public final String mLowA11y;
+    public final String mHumidity;
+    public final String mHumidityA11y;
+    public final String mWind;
+    public final String mWindA11y;
+    public final String mPressure;
+    public final String mPressureA11y;
+
+    public final int mArtResourceId;
+    // Only set when the user has picked a remote art pack; null means use the local resources.
+    public final String mArtUrl;
+
+    public final String mShareText;
+
+    private ForecastDetail(Context context, Cursor cursor, boolean localGraphics) {
+        mWeatherId = cursor.getInt(ForecastFragment.COL_WEATHER_CONDITION_ID);
+        mDate = cursor.getLong(ForecastFragment.COL_WEATHER_DATE);
+
+        mFullFriendlyDate = Utility.getFullFriendlyDayString(context, mDate);
+        mDescription = Utility.getStringForWeatherCondition(context, mWeatherId);
+        mDescriptionA11y = context.getString(R.string.a11y_forecast, mDescription);
+        mIconA11y = context.getString(R.string.a11y_forecast_icon, mDescription);
+
+        double high = cursor.getDouble(ForecastFragment.COL_WEATHER_MAX_TEMP);
+        mHigh = Utility.formatTemperature(context, high);
+        mHighA11y = context.getString(R.string.a11y_high_temp, mHigh);
+        double low = cursor.getDouble(ForecastFragment.COL_WEATHER_MIN_TEMP);
+        mLow = Utility.formatTemperature(context, low);
+        mLowA11y = context.getString(R.string.a11y_low_temp, mLow);
+
+        mHumidity = context.getString(R.string.format_humidity,
+                cursor.getFloat(ForecastFragment.COL_WEATHER_HUMIDITY));
+        mHumidityA11y = context.getString(R.string.a11y_humidity, mHumidity);
+        mWind = Utility.getFormattedWind(context,
+                cursor.getFloat(ForecastFragment.COL_WEATHER_WIND_SPEED),
+                cursor.getFloat(ForecastFragment.COL_WEATHER_DEGREES));
+        mWindA11y = context.getString(R.string.a11y_wind, mWind);
+        mPressure = context.getString(R.string.format_pressure,
+                cursor.getFloat(ForecastFragment.COL_WEATHER_PRESSURE));
+        mPressureA11y = context.getString(R.string.a11y_pressure, mPressure);
+
+        mArtResourceId = Utility.getArtResourceForWeatherCondition(mWeatherId);
+        mArtUrl = localGraphics ? null : Utility.getArtUrlForWeatherCondition(context, mWeatherId);
+
+        mShareText = String.format("%s - %s - %s/%s", mFullFriendlyDate, mDescription, high, low);
+    }
+
+    /**
+     * Formats the current row of a cursor with the {@link ForecastFragment#FORECAST_COLUMNS}
+     * projection.  This reads preferences and resources; off the main thread is best.
+     */
+    static ForecastDetail fromCurrentRow(Context context, Cursor cursor) {
+        return new ForecastDetail(context, cursor, Utility.usingLocalGraphics(context));
+    }
+
+    /**
+     * Formats every row of a cursor with the {@link ForecastFragment#FORECAST_COLUMNS}
+     * projection, in cursor order.  Call it off the main thread.
+     */
+    static ForecastDetail[] fromCursor(Context context, Cursor cursor) {
+        ForecastDetail[] details = new ForecastDetail[cursor.getCount()];
+        boolean localGraphics = Utility.usingLocalGraphics(context);
+        cursor.moveToPosition(-1);
+        for (int i = 0; cursor.moveToNext(); i++) {
+            details[i] = new ForecastDetail(context, cursor, localGraphics);
+        }
+        return details;
+    }
+
+    // The details of the last forecast list load, and the ForecastSnapshot key of the settings
+    // they were formatted with.  Replaced as a unit.
+    private static volatile Published sPublished;
+
+    private static class Published {
+        final String mKey;
+        final ForecastDetail[] mDetails;
+
+        Published(String key, ForecastDetail[] details) {
+            mKey = key;
+            mDetails = details;
+        }
+    }
+
+    /**
+     * Makes the details of a forecast list load available to {@link #getCached}.
+     *
+     * @param key     {@link ForecastSnapshot#currentKey} from before the rows were formatted
+     * @param details the rows, sorted by date
+     */
+    static void publish(String key, ForecastDetail[] details) {
+        sPublished = new Published(key, details);
+    }
+
+    /**
+     * @param uri a weather/location/date URI, as passed to {@link DetailFragment}
+     * @return the day's details if the forecast list has loaded them with the current
+     *         settings, otherwise null
+     */
+    public static ForecastDetail getCached(Context context, Uri uri) {
+        Published published = sPublished;
+        if (published == null || uri == null) {
+            return null;
+        }
+        String location = WeatherContract.WeatherEntry.getLocationSettingFromUri(uri);
+        if (!location.equals(SettingsSnapshot.get(context).mLocation)
+                || !published.mKey.equals(ForecastSnapshot.currentKey(context))) {
+            return null;
+        }
+        long date = WeatherContract.WeatherEntry.getDateFromUri(uri);
+        ForecastDetail[] details = published.mDetails;
+        int low = 0;
+        int high = details.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midDate = details[mid].mDate;
+            if (midDate < date) {
+                low = mid + 1;
+            } else if (midDate > date) {
+                high = mid - 1;
+            } else {
+                return details[mid];
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * The difference between two forecast lists, keyed by {@link ForecastItem#mDate}, expressed as
+ * the precise RecyclerView notifications that turn the old list into the new one.
+ *
+ * Both lists come from the provider sorted by ascending date, and there is at most one row per
+ * date, so a single merge pass finds every insertion, removal and change.  Rows can never change
+ * order relative to each other, which means there are no moves to report.
+ *
+ * Changes carry a payload with the {@code CHANGED_*} bits of the fields that differ, so the
+ * adapter can rebind just those views.
+ */
+public class ForecastDiff {
+
+    public static final int CHANGED_DATE = 1;
+    public static final int CHANGED_ICON = 1 << 1;
+    public static final int CHANGED_DESCRIPTION = 1 << 2;
+    public static final int CHANGED_HIGH = 1 << 3;
+    public static final int CHANGED_LOW = 1 << 4;
+
+    private static final int OP_INSERT = 0;
+    private static final int OP_REMOVE = 1;
+    private static final int OP_CHANGE = 2;
+
+    private final ForecastItem[] mOldItems;
+    private final ForecastItem[] mNewItems;
+
+    // Parallel arrays describing the operations, in the order they must be dispatched.
+    private final int[] mOps;
+    private final int[] mPositions;
+    private final int[] mCounts;
+    private final int[] mPayloads;
+    private int mOpCount;
+
+    private ForecastDiff(ForecastItem[] oldItems, ForecastItem[] newItems) {
+        mOldItems = oldItems;
+        mNewItems = newItems;
+        int maxOps = oldItems.length + newItems.length;
+        mOps = new int[maxOps];
+        mPositions = new int[maxOps];
+        mCounts = new int[maxOps];
+        mPayloads = new int[maxOps];
+    }
+
+    /**
+     * Computes the difference between two date-sorted lists.  Safe to call off the main thread.
+     */
+    public static ForecastDiff calculate(ForecastItem[] oldItems, ForecastItem[] newItems) {
+        ForecastDiff diff = new ForecastDiff(oldItems, newItems);
+        int oldIndex = 0;
+        int newIndex = 0;
+        // Position in the list as it looks after applying the operations recorded so far.
+        int position = 0;
+        while (oldIndex < oldItems.length || newIndex < newItems.length) {
+            if (newIndex == newItems.length || (oldIndex < oldItems.length
+                    && oldItems[oldIndex].mDate < newItems[newIndex].mDate)) {
+                diff.add(OP_REMOVE, position, 0);
+                oldIndex++;
+            } else if (oldIndex == oldItems.length
+                    || newItems[newIndex].mDate < oldItems[oldIndex].mDate) {
+                diff.add(OP_INSERT, position, 0);
+                position++;
+                newIndex++;
+            } else {
+                int changes = changedFields(oldItems[oldIndex], newItems[newIndex]);
+                if (changes != 0) {
+                    diff.add(OP_CHANGE, position, changes);
+                }
+                position++;
+                oldIndex++;
+                newIndex++;
+            }
+        }
+        return diff;
+    }
+
+    /**
+     * @return the CHANGED_* bits for every displayed field that differs between the two rows.
+     */
+    static int changedFields(ForecastItem oldItem, ForecastItem newItem) {
+        int changes = 0;
+        if (!oldItem.mFriendlyDate.equals(newItem.mFriendlyDate)
+                || !oldItem.mLongFriendlyDate.equals(newItem.mLongFriendlyDate)) {
+            changes |= CHANGED_DATE;
+        }
+        if (oldItem.mIconResourceId != newItem.mIconResourceId
+                || oldItem.mArtResourceId != newItem.mArtResourceId
+                || !equals(oldItem.mArtUrl, newItem.mArtUrl)) {
+            changes |= CHANGED_ICON;
+        }
+        if (!oldItem.mDescription.equals(newItem.mDescription)) {
+            changes |= CHANGED_DESCRIPTION;
+        }
+        if (!oldItem.mHigh.equals(newItem.mHigh)) {
+            changes |= CHANGED_HIGH;
+        }
+        if (!oldItem.mLow.equals(newItem.mLow)) {
+            changes |= CHANGED_LOW;
+        }
+        return changes;
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private void add(int op, int position, int payload) {
+        if (mOpCount > 0) {
+            // Coalesce with the previous operation into a range when possible.
+            int last = mOpCount - 1;
+            if (mOps[last] == op && mPayloads[last] == payload) {
+                if (op == OP_REMOVE && mPositions[last] == position) {
+                    mCounts[last]++;
+                    return;
+                }
+                if (op != OP_REMOVE && mPositions[last] + mCounts[last] == position) {
+                    mCounts[last]++;
+                    return;
+                }
+            }
+        }
+        mOps[mOpCount] = op;
+        mPositions[mOpCount] = position;
+        mCounts[mOpCount] = 1;
+        mPayloads[mOpCount] = payload;
+        mOpCount++;
+    }
+
+    /**
+     * @return true if this diff was calculated against exactly this list instance.
+     */
+    public boolean isBasedOn(ForecastItem[] items) {
+        return mOldItems == items;
+    }
+
+    public ForecastItem[] getNewItems() {
+        return mNewItems;
+    }
+
+    public boolean isEmpty() {
+        return mOpCount == 0;
+    }
+
+    /**
+     * Sends the insert, remove and change notifications to the adapter.  The adapter must
+     * already be reporting the new list.
+     */
+    public void dispatchUpdatesTo(RecyclerView.Adapter adapter) {
+        for (int i = 0; i < mOpCount; i++) {
+            switch (mOps[i]) {
+                case OP_INSERT:
+                    adapter.notifyItemRangeInserted(mPositions[i], mCounts[i]);
+                    break;
+                case OP_REMOVE:
+                    adapter.notifyItemRangeRemoved(mPositions[i], mCounts[i]);
+                    break;
+                case OP_CHANGE:
+                    adapter.notifyItemRangeChanged(mPositions[i], mCounts[i], mPayloads[i]);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Binary search of a date-sorted list.
+     *
+     * @return the index of the row with this date, or -1 if there is none.
+     */
+    public static int indexOfDate(ForecastItem[] items, long date) {
+        int low = 0;
+        int high = items.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midDate = items[mid].mDate;
+            if (midDate < date) {
+                low = mid + 1;
+            } else if (midDate > date) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+}
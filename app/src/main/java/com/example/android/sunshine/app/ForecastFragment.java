@@ -24,17 +24,17 @@ import android.database.Cursor;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
-import android.preference.PreferenceManager;
+import android.os.SystemClock;
 import android.support.design.widget.AppBarLayout;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.LoaderManager;
-import android.support.v4.content.CursorLoader;
 import android.support.v4.content.Loader;
 import android.support.v4.view.ViewCompat;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuInflater;
@@ -43,11 +43,16 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewTreeObserver;
 import android.widget.AbsListView;
+import android.widget.FrameLayout;
 import android.widget.TextView;
 
 import com.example.android.sunshine.app.data.WeatherContract;
 import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.Arrays;
+
 /**
  * Encapsulates fetching the forecast and displaying it as a {@link android.support.v7.widget.RecyclerView} layout.
  */
@@ -60,12 +65,22 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
     private boolean mHoldForTransition;
     private long mInitialSelectedDate = -1;
 
+    // For measuring time to first content on a cold start.
+    private long mCreatedUptime;
+    private boolean mReportedFirstContent;
+    private boolean mReportedFirstLoad;
+
+    // Null unless enabled, see ListMetrics.
+    private ListMetrics mMetrics;
+    private View mMetricsOverlay;
+
     private static final String SELECTED_KEY = "selected_position";
 
     private static final int FORECAST_LOADER = 0;
     // For the forecast view we're showing only a small subset of the stored data.
-    // Specify the columns we need.
-    private static final String[] FORECAST_COLUMNS = {
+    // Specify the columns we need.  Public so the provider soak test queries with the same
+    // projection.
+    public static final String[] FORECAST_COLUMNS = {
             // In this case the id needs to be fully qualified with a table name, since
             // the content provider joins the location & weather tables in the background
             // (both have an _id column)
@@ -80,7 +95,13 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
             WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING,
             WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
             WeatherContract.LocationEntry.COLUMN_COORD_LAT,
-            WeatherContract.LocationEntry.COLUMN_COORD_LONG
+            WeatherContract.LocationEntry.COLUMN_COORD_LONG,
+            // The rest is only shown by the detail view.  Loading it here lets DetailFragment
+            // open a day from ForecastDetail's cache instead of querying again.
+            WeatherContract.WeatherEntry.COLUMN_HUMIDITY,
+            WeatherContract.WeatherEntry.COLUMN_PRESSURE,
+            WeatherContract.WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherContract.WeatherEntry.COLUMN_DEGREES
     };
 
     // These indices are tied to FORECAST_COLUMNS.  If FORECAST_COLUMNS changes, these
@@ -94,6 +115,10 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
     static final int COL_WEATHER_CONDITION_ID = 6;
     static final int COL_COORD_LAT = 7;
     static final int COL_COORD_LONG = 8;
+    static final int COL_WEATHER_HUMIDITY = 9;
+    static final int COL_WEATHER_PRESSURE = 10;
+    static final int COL_WEATHER_WIND_SPEED = 11;
+    static final int COL_WEATHER_DEGREES = 12;
 
     /**
      * A callback interface that all activities containing this fragment must
@@ -113,21 +138,23 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        mCreatedUptime = SystemClock.uptimeMillis();
+        if ( ListMetrics.isEnabled() ) {
+            mMetrics = new ListMetrics();
+        }
         // Add this line in order for this fragment to handle menu events.
         setHasOptionsMenu(true);
     }
 
     @Override
     public void onResume() {
-        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(getActivity());
-        sp.registerOnSharedPreferenceChangeListener(this);
+        SettingsSnapshot.registerListener(getActivity(), this);
         super.onResume();
     }
 
     @Override
     public void onPause() {
-        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(getActivity());
-        sp.unregisterOnSharedPreferenceChangeListener(this);
+        SettingsSnapshot.unregisterListener(this);
         super.onPause();
     }
 
@@ -200,6 +227,17 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
         // specify an adapter (see also next example)
         mRecyclerView.setAdapter(mForecastAdapter);
 
+        if ( null != mMetrics ) {
+            mForecastAdapter.setMetrics(mMetrics);
+            mMetrics.setRefreshRate(
+                    getActivity().getWindowManager().getDefaultDisplay().getRefreshRate());
+            mRecyclerView.addOnScrollListener(mMetrics.createScrollListener());
+            mMetricsOverlay = mMetrics.createOverlay(getActivity());
+            ((ViewGroup) getActivity().getWindow().getDecorView()).addView(mMetricsOverlay,
+                    new FrameLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+                            ViewGroup.LayoutParams.WRAP_CONTENT, Gravity.BOTTOM | Gravity.LEFT));
+        }
+
         final View parallaxView = rootView.findViewById(R.id.parallax_bar);
         if (null != parallaxView) {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
@@ -259,6 +297,15 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
         if ( mHoldForTransition ) {
             getActivity().supportPostponeEnterTransition();
         }
+        if ( getLoaderManager().getLoader(FORECAST_LOADER) == null ) {
+            // Cold start: opening the database takes a while, so show what we showed last time
+            // until the loader has the real rows.  onCreateLoader diffs against it.
+            ForecastItem[] snapshot = ForecastSnapshot.read(getActivity());
+            if ( snapshot != null && snapshot.length > 0 ) {
+                mForecastAdapter.swapItems(snapshot);
+                reportFirstContent("snapshot");
+            }
+        }
         getLoaderManager().initLoader(FORECAST_LOADER, null, this);
         super.onActivityCreated(savedInstanceState);
     }
@@ -316,18 +363,36 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
         Uri weatherForLocationUri = WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(
                 locationSetting, System.currentTimeMillis());
 
-        return new CursorLoader(getActivity(),
+        // ForecastLoader also formats the rows in the background, so that binding is cheap.
+        ForecastLoader loader = new ForecastLoader(getActivity(),
                 weatherForLocationUri,
                 FORECAST_COLUMNS,
                 null,
                 null,
                 sortOrder);
+        // Whatever is on screen now, a snapshot or another location's rows, is what the first
+        // result has to reconcile with.
+        loader.setBaseline(mForecastAdapter.getItems());
+        return loader;
     }
 
     @Override
     public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
         mForecastAdapter.swapCursor(data);
         updateEmptyView();
+        if ( null != mMetrics ) {
+            // Zero when the same result is delivered again, e.g. after a rotation.
+            long roundTripNanos = ((ForecastLoader) loader).takeRoundTripNanos();
+            if ( roundTripNanos > 0 ) {
+                mMetrics.recordLoad(roundTripNanos);
+            }
+        }
+        if ( !mReportedFirstLoad ) {
+            mReportedFirstLoad = true;
+            Log.d(LOG_TAG, "First load finished after "
+                    + (SystemClock.uptimeMillis() - mCreatedUptime) + " ms");
+        }
+        reportFirstContent("loader");
         if ( data.getCount() == 0 ) {
             getActivity().supportStartPostponedEnterTransition();
         } else {
@@ -341,12 +406,9 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
                         int position = mForecastAdapter.getSelectedItemPosition();
                         if (position == RecyclerView.NO_POSITION &&
                                 -1 != mInitialSelectedDate) {
-                            Cursor data = mForecastAdapter.getCursor();
-                            int count = data.getCount();
-                            int dateColumn = data.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_DATE);
-                            for ( int i = 0; i < count; i++ ) {
-                                data.moveToPosition(i);
-                                if ( data.getLong(dateColumn) == mInitialSelectedDate ) {
+                            ForecastItem[] items = mForecastAdapter.getItems();
+                            for ( int i = 0; i < items.length; i++ ) {
+                                if ( items[i].mDate == mInitialSelectedDate ) {
                                     position = i;
                                     break;
                                 }
@@ -374,6 +436,31 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
 
 
 
+    @Override
+    public void onDestroyView() {
+        if ( null != mMetricsOverlay ) {
+            ((ViewGroup) mMetricsOverlay.getParent()).removeView(mMetricsOverlay);
+            mMetricsOverlay = null;
+        }
+        super.onDestroyView();
+    }
+
+    /**
+     * Adds the list metrics, when enabled, to
+     * {@code adb shell dumpsys activity com.example.android.sunshine.app}.  Pass
+     * {@code reset-list-metrics} as an extra argument to start over after dumping.
+     */
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        if ( null != mMetrics ) {
+            mMetrics.dump(prefix, writer);
+            if ( null != args && Arrays.asList(args).contains("reset-list-metrics") ) {
+                mMetrics.reset();
+            }
+        }
+    }
+
     @Override
     public void onDestroy() {
         super.onDestroy();
@@ -387,6 +474,30 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
         mForecastAdapter.swapCursor(null);
     }
 
+    /*
+        Logs how long after creation the list first drew content, and tells the system the
+        activity is fully drawn so that the "Fully drawn" launch time in the log covers it.
+     */
+    private void reportFirstContent(final String source) {
+        if ( mReportedFirstContent ) {
+            return;
+        }
+        mReportedFirstContent = true;
+        mRecyclerView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                mRecyclerView.getViewTreeObserver().removeOnPreDrawListener(this);
+                Log.d(LOG_TAG, "First content from " + source + " after "
+                        + (SystemClock.uptimeMillis() - mCreatedUptime) + " ms");
+                Activity activity = getActivity();
+                if ( null != activity && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT ) {
+                    activity.reportFullyDrawn();
+                }
+                return true;
+            }
+        });
+    }
+
     public void setUseTodayLayout(boolean useTodayLayout) {
         mUseTodayLayout = useTodayLayout;
         if (mForecastAdapter != null) {
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.database.Cursor;
+
+/**
+ * Immutable, fully formatted representation of one row of the forecast list.
+ *
+ * Rows are built off the main thread by {@link ForecastLoader}, so that binding a list item in
+ * {@link ForecastAdapter} is nothing more than assigning these fields to views.
+ */
+public class ForecastItem {
+    public final long mId;
+    public final long mDate;
+    public final int mWeatherId;
+
+    // "Wednesday" style label used by the regular list item, and the "Today, June 24" style
+    // label used by the today list item.  They only differ for today's row.
+    public final String mFriendlyDate;
+    public final String mLongFriendlyDate;
+
+    public final String mDescription;
+    public final String mDescriptionA11y;
+    public final String mHigh;
+    public final String mHighA11y;
+    public final String mLow;
+    public final String mLowA11y;
+
+    public final int mIconResourceId;
+    public final int mArtResourceId;
+    // Only set when the user has picked a remote art pack; null means use the local resources.
+    public final String mArtUrl;
+
+    ForecastItem(long id, long date, int weatherId, String friendlyDate, String longFriendlyDate,
+                 String description, String descriptionA11y, String high, String highA11y,
+                 String low, String lowA11y, int iconResourceId, int artResourceId,
+                 String artUrl) {
+        mId = id;
+        mDate = date;
+        mWeatherId = weatherId;
+        mFriendlyDate = friendlyDate;
+        mLongFriendlyDate = longFriendlyDate;
+        mDescription = description;
+        mDescriptionA11y = descriptionA11y;
+        mHigh = high;
+        mHighA11y = highA11y;
+        mLow = low;
+        mLowA11y = lowA11y;
+        mIconResourceId = iconResourceId;
+        mArtResourceId = artResourceId;
+        mArtUrl = artUrl;
+    }
+
+    /**
+     * Formats every row of a cursor with the {@link ForecastFragment#FORECAST_COLUMNS}
+     * projection.  This reads preferences and resources, so call it off the main thread.
+     *
+     * @param context Context to use for resource localization and preferences
+     * @param cursor  cursor to read; its position is left after the last row
+     * @return one item per row, in cursor order
+     */
+    static ForecastItem[] fromCursor(Context context, Cursor cursor) {
+        ForecastItem[] items = new ForecastItem[cursor.getCount()];
+        boolean localGraphics = Utility.usingLocalGraphics(context);
+        cursor.moveToPosition(-1);
+        for (int i = 0; cursor.moveToNext(); i++) {
+            items[i] = fromCurrentRow(context, cursor, localGraphics);
+        }
+        return items;
+    }
+
+    private static ForecastItem fromCurrentRow(Context context, Cursor cursor,
+                                               boolean localGraphics) {
+        int weatherId = cursor.getInt(ForecastFragment.COL_WEATHER_CONDITION_ID);
+        long date = cursor.getLong(ForecastFragment.COL_WEATHER_DATE);
+
+        String friendlyDate = Utility.getFriendlyDayString(context, date, false);
+        String longFriendlyDate = Utility.getFriendlyDayString(context, date, true);
+        String description = Utility.getStringForWeatherCondition(context, weatherId);
+        String high = Utility.formatTemperature(context,
+                cursor.getDouble(ForecastFragment.COL_WEATHER_MAX_TEMP));
+        String low = Utility.formatTemperature(context,
+                cursor.getDouble(ForecastFragment.COL_WEATHER_MIN_TEMP));
+
+        return new ForecastItem(
+                cursor.getLong(ForecastFragment.COL_WEATHER_ID),
+                date,
+                weatherId,
+                friendlyDate,
+                // Share the instance when the labels are equal, which is every day but today.
+                longFriendlyDate.equals(friendlyDate) ? friendlyDate : longFriendlyDate,
+                description,
+                context.getString(R.string.a11y_forecast, description),
+                high,
+                context.getString(R.string.a11y_high_temp, high),
+                low,
+                context.getString(R.string.a11y_low_temp, low),
+                Utility.getIconResourceForWeatherCondition(weatherId),
+                Utility.getArtResourceForWeatherCondition(weatherId),
+                localGraphics ? null : Utility.getArtUrlForWeatherCondition(context, weatherId));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.net.Uri;
+import android.support.v4.content.CursorLoader;
+import android.support.v4.os.TraceCompat;
+
+/**
+ * {@link CursorLoader} for the forecast list that also formats every row into a
+ * {@link ForecastItem} while it is still on the loader's background thread.
+ *
+ * The result is delivered as a {@link ForecastCursor}, so the loader keeps the usual
+ * CursorLoader behaviour (content observation, closing old cursors) while the adapter gets
+ * ready-to-bind rows.  Each result also carries a {@link ForecastDiff} against the rows that were
+ * delivered before it, so the adapter can animate precise changes instead of rebinding
+ * everything.  The detail view's contents are formatted too and published to
+ * {@link ForecastDetail#getCached}.  Every result is also saved as the
+ * {@link ForecastSnapshot} that the next cold start shows before its first load.
+ */
+public class ForecastLoader extends CursorLoader {
+
+    private static final ForecastItem[] NO_ITEMS = new ForecastItem[0];
+
+    // The rows the next result is diffed against: normally the last delivered result.
+    private volatile ForecastItem[] mBaseline = NO_ITEMS;
+
+    // Main thread only.
+    private long mLoadStartNanos;
+    private long mLastRoundTripNanos;
+
+    public ForecastLoader(Context context, Uri uri, String[] projection, String selection,
+                          String[] selectionArgs, String sortOrder) {
+        super(context, uri, projection, selection, selectionArgs, sortOrder);
+    }
+
+    @Override
+    public Cursor loadInBackground() {
+        Cursor cursor = super.loadInBackground();
+        if (cursor == null) {
+            return null;
+        }
+        TraceCompat.beginSection("ForecastLoader.format");
+        try {
+            // Taken before formatting, so a settings change during the load can only make the
+            // snapshot look stale, never make stale rows look current.
+            String snapshotKey = ForecastSnapshot.currentKey(getContext());
+            ForecastItem[] items = ForecastItem.fromCursor(getContext(), cursor);
+            ForecastDetail[] details = ForecastDetail.fromCursor(getContext(), cursor);
+            ForecastDiff diff = ForecastDiff.calculate(mBaseline, items);
+            ForecastSnapshot.write(getContext(), snapshotKey, items);
+            return new ForecastCursor(cursor, items, diff, snapshotKey, details);
+        } finally {
+            TraceCompat.endSection();
+        }
+    }
+
+    @Override
+    protected void onForceLoad() {
+        mLoadStartNanos = System.nanoTime();
+        super.onForceLoad();
+    }
+
+    @Override
+    public void deliverResult(Cursor cursor) {
+        // A cached cursor delivered again from onStartLoading had no load behind it.
+        if (mLoadStartNanos != 0) {
+            mLastRoundTripNanos = System.nanoTime() - mLoadStartNanos;
+            mLoadStartNanos = 0;
+        }
+        if (cursor instanceof ForecastCursor && !isReset()) {
+            ForecastCursor forecastCursor = (ForecastCursor) cursor;
+            mBaseline = forecastCursor.getItems();
+            ForecastDetail.publish(forecastCursor.mSettingsKey, forecastCursor.mDetails);
+        }
+        super.deliverResult(cursor);
+    }
+
+    /**
+     * @return time from the start of the last delivered load to its delivery, including the
+     *         wait for the loader thread, or 0 if it has already been taken
+     */
+    public long takeRoundTripNanos() {
+        long nanos = mLastRoundTripNanos;
+        mLastRoundTripNanos = 0;
+        return nanos;
+    }
+
+    /**
+     * Sets the rows that the next result will be diffed against, for when the adapter is
+     * showing something other than this loader's last result.
+     */
+    public void setBaseline(ForecastItem[] items) {
+        mBaseline = items == null ? NO_ITEMS : items;
+    }
+
+    /**
+     * A cursor carrying the formatted rows that were built from it.
+     */
+    public static class ForecastCursor extends CursorWrapper {
+        private final ForecastItem[] mItems;
+        private final ForecastDiff mDiff;
+        private final String mSettingsKey;
+        private final ForecastDetail[] mDetails;
+
+        ForecastCursor(Cursor cursor, ForecastItem[] items, ForecastDiff diff,
+                       String settingsKey, ForecastDetail[] details) {
+            super(cursor);
+            mItems = items;
+            mDiff = diff;
+            mSettingsKey = settingsKey;
+            mDetails = details;
+        }
+
+        public ForecastItem[] getItems() {
+            return mItems;
+        }
+
+        public ForecastDiff getDiff() {
+            return mDiff;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.support.v4.util.AtomicFile;
+import android.util.Log;
+
+import com.example.android.sunshine.common.DayFormatter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.TimeZone;
+
+/**
+ * The last forecast list shown, persisted so that a cold start can draw it before the loader
+ * has opened the database.
+ *
+ * The file holds the formatted {@link ForecastItem}s and a key describing everything the
+ * formatting depended on: location, day, time zone, locale, units and art pack.  A snapshot is
+ * only returned when its key matches the current settings, so it never shows rows the loader
+ * would have formatted differently.  Resource IDs are not stored, they are looked up again from
+ * the weather ID because they can change between builds.
+ */
+public class ForecastSnapshot {
+    public static final String LOG_TAG = ForecastSnapshot.class.getSimpleName();
+
+    static final String FILE_NAME = "forecast_snapshot";
+
+    // Bump whenever the layout of the file changes.
+    private static final int VERSION = 1;
+
+    // A real forecast is 14 rows; anything far beyond that is a corrupt file.
+    private static final int MAX_ITEMS = 64;
+
+    /**
+     * @return the key a snapshot written now would have
+     */
+    static String currentKey(Context context) {
+        SettingsSnapshot settings = SettingsSnapshot.get(context);
+        long now = System.currentTimeMillis();
+        TimeZone zone = DayFormatter.getDefaultZone();
+        return settings.mLocation + '\n'
+                + DayFormatter.julianDay(now, zone) + '\n'
+                + zone.getID() + '\n'
+                + settings.mLocale + '\n'
+                + settings.mMetric + '\n'
+                + settings.mArtUrlFormat;
+    }
+
+    private static AtomicFile getFile(Context context) {
+        return new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+    }
+
+    /**
+     * Reads the snapshot.  This is a single small file read, meant to be done on the main thread
+     * in place of waiting for the first load.
+     *
+     * @return the rows, or null if there is no snapshot or it was made for other settings
+     */
+    public static ForecastItem[] read(Context context) {
+        String key = currentKey(context);
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(getFile(context).openRead()));
+            if (in.readInt() != VERSION || !key.equals(in.readUTF())) {
+                return null;
+            }
+            int count = in.readInt();
+            if (count < 0 || count > MAX_ITEMS) {
+                return null;
+            }
+            ForecastItem[] items = new ForecastItem[count];
+            for (int i = 0; i < count; i++) {
+                items[i] = readItem(in);
+            }
+            return items;
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Ignoring unreadable forecast snapshot", e);
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Replaces the snapshot.  Call off the main thread.
+     *
+     * @param key   {@link #currentKey} as it was before the items were formatted
+     * @param items the rows, as delivered to the list
+     */
+    public static void write(Context context, String key, ForecastItem[] items) {
+        AtomicFile file = getFile(context);
+        FileOutputStream stream = null;
+        try {
+            stream = file.startWrite();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(VERSION);
+            out.writeUTF(key);
+            int count = Math.min(items.length, MAX_ITEMS);
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                writeItem(out, items[i]);
+            }
+            out.flush();
+            file.finishWrite(stream);
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Unable to write forecast snapshot", e);
+            if (stream != null) {
+                file.failWrite(stream);
+            }
+        }
+    }
+
+    private static void writeItem(DataOutputStream out, ForecastItem item) throws IOException {
+        out.writeLong(item.mId);
+        out.writeLong(item.mDate);
+        out.writeInt(item.mWeatherId);
+        out.writeUTF(item.mFriendlyDate);
+        // The labels only differ for today; store the long one once otherwise.
+        boolean sameLabel = item.mLongFriendlyDate.equals(item.mFriendlyDate);
+        out.writeBoolean(sameLabel);
+        if (!sameLabel) {
+            out.writeUTF(item.mLongFriendlyDate);
+        }
+        out.writeUTF(item.mDescription);
+        out.writeUTF(item.mDescriptionA11y);
+        out.writeUTF(item.mHigh);
+        out.writeUTF(item.mHighA11y);
+        out.writeUTF(item.mLow);
+        out.writeUTF(item.mLowA11y);
+        out.writeBoolean(item.mArtUrl != null);
+        if (item.mArtUrl != null) {
+            out.writeUTF(item.mArtUrl);
+        }
+    }
+
+    private static ForecastItem readItem(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        long date = in.readLong();
+        int weatherId = in.readInt();
+        String friendlyDate = in.readUTF();
+        String longFriendlyDate = in.readBoolean() ? friendlyDate : in.readUTF();
+        String description = in.readUTF();
+        String descriptionA11y = in.readUTF();
+        String high = in.readUTF();
+        String highA11y = in.readUTF();
+        String low = in.readUTF();
+        String lowA11y = in.readUTF();
+        String artUrl = in.readBoolean() ? in.readUTF() : null;
+        return new ForecastItem(id, date, weatherId, friendlyDate, longFriendlyDate,
+                description, descriptionA11y, high, highA11y, low, lowA11y,
+                Utility.getIconResourceForWeatherCondition(weatherId),
+                Utility.getArtResourceForWeatherCondition(weatherId),
+                artUrl);
+    }
+
+    private static void closeQuietly(DataInputStream in) {
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // Nothing was written, there is nothing to lose.
+            }
+        }
+    }
+}
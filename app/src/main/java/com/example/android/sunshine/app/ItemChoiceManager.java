@@ -19,7 +19,6 @@ import android.os.Build;
 import android.os.Bundle;
 import android.os.Parcel;
 import android.os.Parcelable;
-import android.support.v4.util.LongSparseArray;
 import android.support.v4.view.ViewCompat;
 import android.support.v7.widget.RecyclerView;
 import android.util.Log;
@@ -28,8 +27,10 @@ import android.widget.AbsListView;
 import android.widget.Checkable;
 
 /**
- * The ItemChoiceManager class keeps track of which positions have been selected.  Note that it
- * doesn't take advantage of new adapter features to track changes in the underlying data.
+ * The ItemChoiceManager class keeps track of which positions have been selected.  When the
+ * adapter has stable IDs, selections follow their item across data set changes: the ID to
+ * position index is rebuilt once per change, so a checked item is found again in O(1) no matter
+ * how far it moved.
  */
 public class ItemChoiceManager {
     private final String LOG_TAG = MainActivity.class.getSimpleName();
@@ -41,9 +42,25 @@ public class ItemChoiceManager {
         @Override
         public void onChanged() {
             super.onChanged();
-            if (mAdapter != null && mAdapter.hasStableIds())
-                confirmCheckedPositionsById(mAdapter.getItemCount());
+            invalidatePositions();
         }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            invalidatePositions();
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            invalidatePositions();
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            invalidatePositions();
+        }
+
+        // Range changes leave every item where it was, so there is nothing to do for them.
     };
 
     private ItemChoiceManager() {
@@ -53,15 +70,9 @@ public class ItemChoiceManager {
 
     public ItemChoiceManager(RecyclerView.Adapter adapter) {
         mAdapter = adapter;
+        mAdapter.registerAdapterDataObserver(mAdapterDataObserver);
     }
 
-    /**
-     * How many positions in either direction we will search to try to
-     * find a checked item with a stable ID that moved position across
-     * a data set change. If the item isn't found it will be unselected.
-     */
-    private static final int CHECK_POSITION_SEARCH_DISTANCE = 20;
-
     /**
      * Running state of which positions are currently checked
      */
@@ -72,12 +83,38 @@ public class ItemChoiceManager {
      * If there is a value for a given key, the checked state for that ID is true
      * and the value holds the last known position in the adapter for that id.
      */
-    LongSparseArray<Integer> mCheckedIdStates = new LongSparseArray<Integer>();
+    LongIntMap mCheckedIdStates = new LongIntMap();
+
+    /**
+     * Index from item ID to adapter position, rebuilt lazily after each data set change.
+     */
+    private final LongIntMap mPositionsById = new LongIntMap();
+
+    /**
+     * Set when the adapter's items may have moved since mCheckStates was last confirmed.
+     * Several notifications usually arrive for a single data change, so the positions are
+     * only confirmed when they are next needed.
+     */
+    private boolean mPositionsInvalid;
+
+    private void invalidatePositions() {
+        if (mAdapter != null && mAdapter.hasStableIds()) {
+            mPositionsInvalid = true;
+        }
+    }
+
+    private void ensurePositionsValid() {
+        if (mPositionsInvalid) {
+            mPositionsInvalid = false;
+            confirmCheckedPositionsById(mAdapter.getItemCount());
+        }
+    }
 
     public void onClick(RecyclerView.ViewHolder vh) {
         if (mChoiceMode == AbsListView.CHOICE_MODE_NONE)
             return;
 
+        ensurePositionsValid();
         int checkedItemCount = mCheckStates.size();
         int position = vh.getAdapterPosition();
 
@@ -109,6 +146,11 @@ public class ItemChoiceManager {
             case AbsListView.CHOICE_MODE_MULTIPLE: {
                 boolean checked = mCheckStates.get(position, false);
                 mCheckStates.put(position, !checked);
+                if (checked) {
+                    mCheckedIdStates.remove(mAdapter.getItemId(position));
+                } else {
+                    mCheckedIdStates.put(mAdapter.getItemId(position), position);
+                }
                 // We directly call onBindViewHolder here because notifying that an item has
                 // changed on an item that has the focus causes it to lose focus, which makes
                 // keyboard navigation a bit annoying
@@ -146,6 +188,7 @@ public class ItemChoiceManager {
      * @see #setChoiceMode(int)
      */
     public boolean isItemChecked(int position) {
+        ensurePositionsValid();
         return mCheckStates.get(position);
     }
 
@@ -154,36 +197,37 @@ public class ItemChoiceManager {
         mCheckedIdStates.clear();
     }
 
-    void confirmCheckedPositionsById(int oldItemCount) {
+    void confirmCheckedPositionsById(int itemCount) {
         // Clear out the positional check states, we'll rebuild it below from IDs.
         mCheckStates.clear();
+        if (mCheckedIdStates.size() == 0) {
+            return;
+        }
+        if (itemCount == 0) {
+            // Most likely the data is being reloaded; keep the IDs so the selection comes back
+            // once the items do.
+            mPositionsInvalid = true;
+            return;
+        }
 
-        for (int checkedIndex = 0; checkedIndex < mCheckedIdStates.size(); checkedIndex++) {
-            final long id = mCheckedIdStates.keyAt(checkedIndex);
-            final int lastPos = mCheckedIdStates.valueAt(checkedIndex);
-
-            final long lastPosId = mAdapter.getItemId(lastPos);
-            if (id != lastPosId) {
-                // Look around to see if the ID is nearby. If not, uncheck it.
-                final int start = Math.max(0, lastPos - CHECK_POSITION_SEARCH_DISTANCE);
-                final int end = Math.min(lastPos + CHECK_POSITION_SEARCH_DISTANCE, oldItemCount);
-                boolean found = false;
-                for (int searchPos = start; searchPos < end; searchPos++) {
-                    final long searchId = mAdapter.getItemId(searchPos);
-                    if (id == searchId) {
-                        found = true;
-                        mCheckStates.put(searchPos, true);
-                        mCheckedIdStates.setValueAt(checkedIndex, searchPos);
-                        break;
-                    }
-                }
+        mPositionsById.clear();
+        for (int position = 0; position < itemCount; position++) {
+            mPositionsById.put(mAdapter.getItemId(position), position);
+        }
 
-                if (!found) {
-                    mCheckedIdStates.delete(id);
-                    checkedIndex--;
-                }
+        int slot = mCheckedIdStates.nextSlot(0);
+        while (slot != -1) {
+            final long id = mCheckedIdStates.keyAtSlot(slot);
+            final int position = mPositionsById.get(id, RecyclerView.NO_POSITION);
+            if (position == RecyclerView.NO_POSITION) {
+                // The item is gone, so uncheck it.  Removing may shift a later entry into this
+                // slot, so look at the same slot again.
+                mCheckedIdStates.remove(id);
+                slot = mCheckedIdStates.nextSlot(slot);
             } else {
-                mCheckStates.put(lastPos, true);
+                mCheckStates.put(position, true);
+                mCheckedIdStates.setValueAtSlot(slot, position);
+                slot = mCheckedIdStates.nextSlot(slot + 1);
             }
         }
     }
@@ -210,17 +254,22 @@ public class ItemChoiceManager {
                 final int value = inParcel.readInt();
                 mCheckedIdStates.put(key, value);
             }
+            inParcel.recycle();
+            // The restored positions are from before the data was reloaded.
+            invalidatePositions();
         }
     }
 
     public void onSaveInstanceState(Bundle outState) {
+        ensurePositionsValid();
         Parcel outParcel = Parcel.obtain();
         outParcel.writeSparseBooleanArray(mCheckStates);
         final int numStates = mCheckedIdStates.size();
         outParcel.writeInt(numStates);
-        for (int i=0; i<numStates; i++) {
-            outParcel.writeLong(mCheckedIdStates.keyAt(i));
-            outParcel.writeInt(mCheckedIdStates.valueAt(i));
+        for (int slot = mCheckedIdStates.nextSlot(0); slot != -1;
+             slot = mCheckedIdStates.nextSlot(slot + 1)) {
+            outParcel.writeLong(mCheckedIdStates.keyAtSlot(slot));
+            outParcel.writeInt(mCheckedIdStates.valueAtSlot(slot));
         }
         byte[] states = outParcel.marshall();
         outState.putByteArray(SELECTED_ITEMS_KEY, states);
@@ -228,6 +277,7 @@ public class ItemChoiceManager {
     }
 
     public int getSelectedItemPosition() {
+        ensurePositionsValid();
         if ( mCheckStates.size() == 0 ) {
             return RecyclerView.NO_POSITION;
         } else {
@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.util.TypedValue;
+import android.view.Choreographer;
+import android.view.View;
+import android.widget.TextView;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Opt-in performance counters for the forecast list: bind durations, frame durations while
+ * scrolling, dropped frames and loader round trips.
+ *
+ * Off unless enabled with {@code adb shell setprop log.tag.ListMetrics VERBOSE} before the
+ * list is created.  Samples go into fixed-size ring buffers that are written without locks, so
+ * recording costs a couple of atomic operations and never allocates.  Read the results from
+ * the on-screen overlay or with {@code adb shell dumpsys activity
+ * com.example.android.sunshine.app}.
+ */
+public class ListMetrics {
+    public static final String LOG_TAG = ListMetrics.class.getSimpleName();
+
+    // Enough for a long scroll; older samples are overwritten.  Must be a power of two.
+    private static final int CAPACITY = 1024;
+
+    private static final long OVERLAY_REFRESH_MILLIS = 1000;
+
+    private final Ring mBinds = new Ring();
+    private final Ring mFrames = new Ring();
+    private final Ring mLoads = new Ring();
+    private final AtomicLong mDroppedFrames = new AtomicLong();
+    private volatile long mFrameIntervalNanos = 1000000000L / 60;
+
+    /**
+     * @return true if the metrics were asked for on this device
+     */
+    public static boolean isEnabled() {
+        return Log.isLoggable(LOG_TAG, Log.VERBOSE);
+    }
+
+    /**
+     * A ring buffer of the last {@link #CAPACITY} samples.  Writers claim a slot with one
+     * atomic increment; readers may see a slot that is being overwritten, which only skews a
+     * percentile by one sample.
+     */
+    private static class Ring {
+        private final AtomicLongArray mSamples = new AtomicLongArray(CAPACITY);
+        private final AtomicLong mCount = new AtomicLong();
+
+        void add(long value) {
+            long index = mCount.getAndIncrement();
+            mSamples.lazySet((int) (index & (CAPACITY - 1)), value);
+        }
+
+        long getCount() {
+            return mCount.get();
+        }
+
+        long[] getSortedSamples() {
+            int size = (int) Math.min(mCount.get(), CAPACITY);
+            long[] samples = new long[size];
+            for (int i = 0; i < size; i++) {
+                samples[i] = mSamples.get(i);
+            }
+            Arrays.sort(samples);
+            return samples;
+        }
+
+        void clear() {
+            mCount.set(0);
+        }
+    }
+
+    public void setRefreshRate(float framesPerSecond) {
+        if (framesPerSecond > 0) {
+            mFrameIntervalNanos = (long) (1000000000L / framesPerSecond);
+        }
+    }
+
+    public void recordBind(long nanos) {
+        mBinds.add(nanos);
+    }
+
+    /**
+     * @param nanos time between the starts of two consecutive frames
+     */
+    public void recordFrame(long nanos) {
+        mFrames.add(nanos);
+        // A frame that took more than one interval pushed the frames after it back.
+        long dropped = nanos / mFrameIntervalNanos - 1;
+        if (dropped > 0) {
+            mDroppedFrames.addAndGet(dropped);
+        }
+    }
+
+    public void recordLoad(long nanos) {
+        mLoads.add(nanos);
+    }
+
+    /**
+     * @return a listener that records frame durations while the list scrolls.  Frame timing
+     *         needs Choreographer, so on older releases only binds and loads are recorded.
+     */
+    public RecyclerView.OnScrollListener createScrollListener() {
+        return new RecyclerView.OnScrollListener() {
+            private FrameMonitor mMonitor;
+
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+                    return;
+                }
+                if (mMonitor == null) {
+                    mMonitor = new FrameMonitor(ListMetrics.this);
+                    // A list torn down mid-fling never goes idle, so stop with it too.
+                    recyclerView.addOnAttachStateChangeListener(mMonitor);
+                }
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    mMonitor.stop();
+                } else {
+                    mMonitor.start();
+                }
+            }
+        };
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static class FrameMonitor implements Choreographer.FrameCallback,
+            View.OnAttachStateChangeListener {
+        private final ListMetrics mMetrics;
+        private boolean mRunning;
+        private long mLastFrameNanos;
+
+        FrameMonitor(ListMetrics metrics) {
+            mMetrics = metrics;
+        }
+
+        void start() {
+            if (!mRunning) {
+                mRunning = true;
+                mLastFrameNanos = 0;
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+        }
+
+        void stop() {
+            mRunning = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!mRunning) {
+                return;
+            }
+            if (mLastFrameNanos != 0) {
+                mMetrics.recordFrame(frameTimeNanos - mLastFrameNanos);
+            }
+            mLastFrameNanos = frameTimeNanos;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        @Override
+        public void onViewAttachedToWindow(View v) {
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            stop();
+        }
+    }
+
+    /**
+     * @return a small text view showing {@link #getSummary()}, refreshed while it is attached
+     */
+    public View createOverlay(Context context) {
+        final TextView overlay = new TextView(context);
+        overlay.setTextSize(TypedValue.COMPLEX_UNIT_SP, 10);
+        overlay.setTypeface(Typeface.MONOSPACE);
+        overlay.setTextColor(Color.WHITE);
+        overlay.setBackgroundColor(0xA0000000);
+        // Touches go to the list underneath.
+        overlay.setClickable(false);
+        overlay.setFocusable(false);
+        overlay.post(new Runnable() {
+            @Override
+            public void run() {
+                overlay.setText(getSummary());
+                if (overlay.getWindowToken() != null) {
+                    overlay.postDelayed(this, OVERLAY_REFRESH_MILLIS);
+                }
+            }
+        });
+        return overlay;
+    }
+
+    public void reset() {
+        mBinds.clear();
+        mFrames.clear();
+        mLoads.clear();
+        mDroppedFrames.set(0);
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+    }
+
+    private static String describe(String name, Ring ring, long unit, String unitName) {
+        long[] samples = ring.getSortedSamples();
+        return name + ": n=" + ring.getCount()
+                + " p50=" + percentile(samples, 50) / unit
+                + " p90=" + percentile(samples, 90) / unit
+                + " p99=" + percentile(samples, 99) / unit
+                + " max=" + (samples.length == 0 ? 0 : samples[samples.length - 1] / unit)
+                + " " + unitName;
+    }
+
+    /**
+     * @return a few lines for the debug overlay
+     */
+    public String getSummary() {
+        return describe("bind", mBinds, 1000, "us") + '\n'
+                + describe("frame", mFrames, 1000000, "ms") + '\n'
+                + "dropped frames: " + mDroppedFrames.get() + '\n'
+                + describe("load", mLoads, 1000000, "ms");
+    }
+
+    /**
+     * Writes a report that identifies the build and device, for comparing runs.
+     */
+    public void dump(String prefix, PrintWriter writer) {
+        writer.print(prefix);
+        writer.println("ListMetrics " + BuildConfig.VERSION_NAME + " (" + BuildConfig.VERSION_CODE
+                + ", " + BuildConfig.BUILD_TYPE + ") on " + Build.MANUFACTURER + " "
+                + Build.MODEL + ", API " + Build.VERSION.SDK_INT);
+        writer.print(prefix);
+        writer.println("  frame interval: " + mFrameIntervalNanos / 1000 + " us");
+        for (String line : getSummary().split("\n")) {
+            writer.print(prefix);
+            writer.print("  ");
+            writer.println(line);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive long keys to primitive int values.
+ *
+ * Unlike {@link android.support.v4.util.LongSparseArray} lookups are O(1) and values are not
+ * boxed, so once the table has grown to its working size, none of the operations allocate.
+ * {@link Long#MIN_VALUE} is reserved to mark empty slots and cannot be used as a key.
+ *
+ * Iterate with {@link #nextSlot(int)}:
+ * <pre>
+ * for (int slot = map.nextSlot(0); slot != -1; slot = map.nextSlot(slot + 1)) {
+ *     long key = map.keyAtSlot(slot);
+ *     int value = map.valueAtSlot(slot);
+ * }
+ * </pre>
+ */
+public class LongIntMap {
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] mKeys;
+    private int[] mValues;
+    private int mSize;
+
+    public LongIntMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize number of entries the map should hold without growing
+     */
+    public LongIntMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    private static int capacityFor(int size) {
+        // Keep the load factor at or below 1/2 so probe sequences stay short.
+        int capacity = MIN_CAPACITY;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        mKeys = new long[capacity];
+        mValues = new int[capacity];
+        Arrays.fill(mKeys, EMPTY);
+    }
+
+    private static int hash(long key) {
+        // Mix the high bits in; ids and dates tend to differ mostly in their middle bits.
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int slotOf(long key) {
+        int mask = mKeys.length - 1;
+        int slot = hash(key) & mask;
+        while (mKeys[slot] != EMPTY) {
+            if (mKeys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return ~slot;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean containsKey(long key) {
+        return slotOf(key) >= 0;
+    }
+
+    /**
+     * @return the value mapped to key, or valueIfKeyNotFound if there is none
+     */
+    public int get(long key, int valueIfKeyNotFound) {
+        int slot = slotOf(key);
+        return slot >= 0 ? mValues[slot] : valueIfKeyNotFound;
+    }
+
+    public void put(long key, int value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Long.MIN_VALUE cannot be used as a key");
+        }
+        int slot = slotOf(key);
+        if (slot >= 0) {
+            mValues[slot] = value;
+            return;
+        }
+        if ((mSize + 1) * 2 > mKeys.length) {
+            grow();
+            slot = slotOf(key);
+        }
+        slot = ~slot;
+        mKeys[slot] = key;
+        mValues[slot] = value;
+        mSize++;
+    }
+
+    public void remove(long key) {
+        int slot = slotOf(key);
+        if (slot < 0) {
+            return;
+        }
+        // Backward-shift deletion: pull later entries of the probe sequence into the hole so
+        // that lookups never need tombstones.
+        int mask = mKeys.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (mKeys[next] != EMPTY) {
+            int home = hash(mKeys[next]) & mask;
+            // Move the entry if the hole lies cyclically between its home slot and its slot.
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                mKeys[hole] = mKeys[next];
+                mValues[hole] = mValues[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        mKeys[hole] = EMPTY;
+        mSize--;
+    }
+
+    public void clear() {
+        if (mSize > 0) {
+            Arrays.fill(mKeys, EMPTY);
+            mSize = 0;
+        }
+    }
+
+    /**
+     * @return the first occupied slot at or after from, or -1 if there are no more entries
+     */
+    public int nextSlot(int from) {
+        for (int slot = from; slot < mKeys.length; slot++) {
+            if (mKeys[slot] != EMPTY) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    public long keyAtSlot(int slot) {
+        return mKeys[slot];
+    }
+
+    public int valueAtSlot(int slot) {
+        return mValues[slot];
+    }
+
+    public void setValueAtSlot(int slot, int value) {
+        mValues[slot] = value;
+    }
+
+    private void grow() {
+        long[] oldKeys = mKeys;
+        int[] oldValues = mValues;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = ~slotOf(oldKeys[i]);
+                mKeys[slot] = oldKeys[i];
+                mValues[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.Resources;
+import android.preference.PreferenceManager;
+
+import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
+import com.example.android.sunshine.common.WeatherConditions;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * Immutable, process-wide copy of the user's settings.
+ *
+ * {@link Utility} reads preferences through {@link #get(Context)} instead of going to
+ * {@link SharedPreferences} and resources on every call.  The snapshot is rebuilt whenever a
+ * preference changes; code that reacts to preference changes and then reads settings through
+ * Utility should register with {@link #registerListener(Context,
+ * SharedPreferences.OnSharedPreferenceChangeListener)}, which only notifies once the snapshot
+ * is up to date.
+ */
+public class SettingsSnapshot {
+
+    private static final Object sLock = new Object();
+    private static volatile SettingsSnapshot sSnapshot;
+    // Bumped on every change, so a snapshot built from older values is never published.
+    private static int sGeneration;
+    private static Updater sUpdater;
+
+    public final String mLocation;
+    public final boolean mLocationLatLonAvailable;
+    public final float mLocationLatitude;
+    public final float mLocationLongitude;
+    public final boolean mMetric;
+    public final boolean mUsingLocalGraphics;
+    public final String mArtUrlFormat;
+    public final @SunshineSyncAdapter.LocationStatus int mLocationStatus;
+    public final String mTemperatureFormat;
+    // Art pack URL of each WeatherConditions kind, offset by one so that KIND_NONE maps to null.
+    private final String[] mArtUrls = new String[WeatherConditions.KIND_COUNT + 1];
+    // Resources are localized, so the snapshot is rebuilt when the default locale changes.
+    final Locale mLocale;
+
+    private SettingsSnapshot(Context context) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        Resources res = context.getResources();
+
+        mLocation = prefs.getString(res.getString(R.string.pref_location_key),
+                res.getString(R.string.pref_location_default));
+
+        String latitudeKey = res.getString(R.string.pref_location_latitude);
+        String longitudeKey = res.getString(R.string.pref_location_longitude);
+        mLocationLatLonAvailable = prefs.contains(latitudeKey) && prefs.contains(longitudeKey);
+        mLocationLatitude = prefs.getFloat(latitudeKey, Utility.DEFAULT_LATLONG);
+        mLocationLongitude = prefs.getFloat(longitudeKey, Utility.DEFAULT_LATLONG);
+
+        String metric = res.getString(R.string.pref_units_metric);
+        mMetric = prefs.getString(res.getString(R.string.pref_units_key), metric).equals(metric);
+
+        String sunshineArtPack = res.getString(R.string.pref_art_pack_sunshine);
+        mArtUrlFormat = prefs.getString(res.getString(R.string.pref_art_pack_key),
+                sunshineArtPack);
+        mUsingLocalGraphics = mArtUrlFormat.equals(sunshineArtPack);
+        for (int kind = 0; kind < WeatherConditions.KIND_COUNT; kind++) {
+            mArtUrls[kind + 1] = String.format(Locale.US, mArtUrlFormat,
+                    WeatherConditions.getKindName(kind));
+        }
+
+        @SunshineSyncAdapter.LocationStatus int locationStatus = prefs.getInt(
+                res.getString(R.string.pref_location_status_key),
+                SunshineSyncAdapter.LOCATION_STATUS_UNKNOWN);
+        mLocationStatus = locationStatus;
+
+        mTemperatureFormat = res.getString(R.string.format_temperature);
+        mLocale = Locale.getDefault();
+    }
+
+    /**
+     * @return the art pack URL for a WeatherConditions kind, or null for KIND_NONE
+     */
+    public String getArtUrl(int kind) {
+        return mArtUrls[kind + 1];
+    }
+
+    /**
+     * Returns the current settings.  Cheap enough to call per row; safe from any thread.
+     */
+    public static SettingsSnapshot get(Context context) {
+        SettingsSnapshot snapshot = sSnapshot;
+        if (snapshot != null && snapshot.mLocale == Locale.getDefault()) {
+            return snapshot;
+        }
+        Context appContext = context.getApplicationContext();
+        int generation;
+        synchronized (sLock) {
+            ensureUpdater(appContext);
+            generation = sGeneration;
+        }
+        snapshot = new SettingsSnapshot(appContext);
+        synchronized (sLock) {
+            if (generation == sGeneration) {
+                sSnapshot = snapshot;
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Drops the current snapshot.  Writers on a background thread should call this after
+     * committing, since the change listener only runs later on the main thread.
+     */
+    public static void invalidate() {
+        synchronized (sLock) {
+            sGeneration++;
+            sSnapshot = null;
+        }
+    }
+
+    /**
+     * Registers a listener that is called on the main thread after a preference has changed
+     * and the snapshot reflects the change.  Listeners are held strongly until unregistered.
+     */
+    public static void registerListener(Context context,
+            SharedPreferences.OnSharedPreferenceChangeListener listener) {
+        synchronized (sLock) {
+            ensureUpdater(context.getApplicationContext());
+            if (!sUpdater.mListeners.contains(listener)) {
+                sUpdater.mListeners.add(listener);
+            }
+        }
+    }
+
+    public static void unregisterListener(
+            SharedPreferences.OnSharedPreferenceChangeListener listener) {
+        synchronized (sLock) {
+            if (sUpdater != null) {
+                sUpdater.mListeners.remove(listener);
+            }
+        }
+    }
+
+    private static void ensureUpdater(Context appContext) {
+        if (sUpdater == null) {
+            sUpdater = new Updater(appContext);
+            // SharedPreferences only keeps weak references to its listeners, so sUpdater is
+            // what keeps this one alive.
+            PreferenceManager.getDefaultSharedPreferences(appContext)
+                    .registerOnSharedPreferenceChangeListener(sUpdater);
+        }
+    }
+
+    private static class Updater implements SharedPreferences.OnSharedPreferenceChangeListener {
+        private final Context mAppContext;
+        private final ArrayList<SharedPreferences.OnSharedPreferenceChangeListener> mListeners =
+                new ArrayList<SharedPreferences.OnSharedPreferenceChangeListener>();
+
+        Updater(Context appContext) {
+            mAppContext = appContext;
+        }
+
+        @Override
+        public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+            invalidate();
+            get(mAppContext);
+
+            SharedPreferences.OnSharedPreferenceChangeListener[] listeners;
+            synchronized (sLock) {
+                listeners = mListeners.toArray(
+                        new SharedPreferences.OnSharedPreferenceChangeListener[mListeners.size()]);
+            }
+            for (SharedPreferences.OnSharedPreferenceChangeListener listener : listeners) {
+                listener.onSharedPreferenceChanged(sharedPreferences, key);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.module.GlideModule;
+
+/**
+ * Sizes Glide's caches for what this app loads: only weather art, and only at the sizes in
+ * {@link WeatherArt}.  One full art set then fits in the memory cache, and the bitmap pool
+ * never needs to be larger than that either, since every decode reuses one of those sizes.
+ * Devices that Glide would give less memory keep Glide's own limits.
+ */
+public class SunshineGlideModule implements GlideModule {
+
+    @Override
+    public void applyOptions(Context context, GlideBuilder builder) {
+        MemorySizeCalculator calculator = new MemorySizeCalculator(context);
+        int artSetBytes = WeatherArt.getArtSetBytes(context);
+        builder.setMemoryCache(new LruResourceCache(
+                Math.min(calculator.getMemoryCacheSize(), artSetBytes)));
+        builder.setBitmapPool(new LruBitmapPool(
+                Math.min(calculator.getBitmapPoolSize(), artSetBytes)));
+    }
+
+    @Override
+    public void registerComponents(Context context, Glide glide) {
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.support.annotation.IntDef;
+import android.util.Log;
+
+import com.bumptech.glide.BitmapRequestBuilder;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.request.FutureTarget;
+import com.example.android.sunshine.common.WeatherConditions;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Loads weather art from a remote art pack, at one of the few sizes the app shows it at.
+ *
+ * Every surface goes through {@link #load}, so a given image is only ever decoded at these
+ * sizes and with the same transformation.  That makes the requests share Glide's memory and
+ * disk cache entries, which {@link #prefetch} fills after a sync so that scrolling, widgets and
+ * notifications never wait for the network or a full size decode.
+ */
+public class WeatherArt {
+    public static final String LOG_TAG = WeatherArt.class.getSimpleName();
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({SIZE_ICON, SIZE_ART, SIZE_NOTIFICATION})
+    public @interface Size {}
+
+    // Forecast list rows and detail widget rows.
+    public static final int SIZE_ICON = 0;
+    // The today row and the detail view.
+    public static final int SIZE_ART = 1;
+    // Large icon of the daily notification.
+    public static final int SIZE_NOTIFICATION = 2;
+    private static final int SIZE_COUNT = 3;
+
+    /**
+     * @return the width and height, in pixels, that art is decoded at for a size
+     */
+    @SuppressLint("InlinedApi")
+    public static int getPixelSize(Context context, @Size int size) {
+        Resources resources = context.getResources();
+        switch (size) {
+            case SIZE_ICON:
+                return resources.getDimensionPixelSize(R.dimen.list_icon);
+            case SIZE_ART:
+                return resources.getDimensionPixelSize(R.dimen.today_icon);
+            default:
+                // On Honeycomb and higher devices, we can retrieve the size of the large icon
+                // Prior to that, we use a fixed size
+                return Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
+                        ? resources.getDimensionPixelSize(
+                                android.R.dimen.notification_large_icon_width)
+                        : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
+        }
+    }
+
+    /**
+     * @return an upper bound of the memory taken by every art image at every size
+     */
+    public static int getArtSetBytes(Context context) {
+        int bytes = 0;
+        for (int size = 0; size < SIZE_COUNT; size++) {
+            int pixels = getPixelSize(context, size);
+            // ARGB_8888
+            bytes += pixels * pixels * 4;
+        }
+        // Art packs have one image per kind.
+        return bytes * WeatherConditions.KIND_COUNT;
+    }
+
+    /**
+     * Starts a request for art, fitted into a square of the given size.  Add the error
+     * drawable and target as usual.
+     */
+    public static BitmapRequestBuilder<String, Bitmap> load(Context context, String url,
+                                                            @Size int size) {
+        int pixels = getPixelSize(context, size);
+        return Glide.with(context)
+                .load(url)
+                .asBitmap()
+                // Keep the source too, so another size never has to go back to the network.
+                .diskCacheStrategy(DiskCacheStrategy.ALL)
+                .fitCenter()
+                .override(pixels, pixels);
+    }
+
+    /**
+     * Downloads and decodes the art for these conditions at every size, leaving the results in
+     * Glide's caches.  Blocks, so call it from a background thread such as the sync adapter's.
+     * Does nothing when the local graphics are in use.
+     */
+    public static void prefetch(Context context, int[] weatherIds) {
+        SettingsSnapshot settings = SettingsSnapshot.get(context);
+        if (settings.mUsingLocalGraphics) {
+            return;
+        }
+        boolean[] done = new boolean[WeatherConditions.KIND_COUNT];
+        for (int weatherId : weatherIds) {
+            int kind = WeatherConditions.getKind(weatherId);
+            if (kind == WeatherConditions.KIND_NONE || done[kind]) {
+                continue;
+            }
+            done[kind] = true;
+            String url = settings.getArtUrl(kind);
+            for (int size = 0; size < SIZE_COUNT; size++) {
+                int pixels = getPixelSize(context, size);
+                FutureTarget<Bitmap> target = load(context, url, size).into(pixels, pixels);
+                try {
+                    target.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    // The surfaces fall back to the local art; don't retry the other sizes.
+                    Log.w(LOG_TAG, "Unable to prefetch " + url, e);
+                    break;
+                } finally {
+                    // Releasing the bitmap moves it to the memory cache.
+                    target.clear();
+                }
+            }
+        }
+    }
+}
@@ -2,7 +2,6 @@ package com.example.android.sunshine.app.sync;
 
 import android.accounts.Account;
 import android.accounts.AccountManager;
-import android.annotation.SuppressLint;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.content.AbstractThreadedSyncAdapter;
@@ -22,29 +21,25 @@ import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Process;
 import android.preference.PreferenceManager;
 import android.support.annotation.IntDef;
 import android.support.v4.app.NotificationCompat;
 import android.support.v4.app.TaskStackBuilder;
-import android.text.format.Time;
 import android.util.Log;
 
-import com.bumptech.glide.Glide;
 import com.example.android.sunshine.app.BuildConfig;
 import com.example.android.sunshine.app.MainActivity;
 import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.SettingsSnapshot;
 import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.WeatherArt;
 import com.example.android.sunshine.app.data.WeatherContract;
 import com.example.android.sunshine.app.muzei.WeatherMuzeiSource;
-import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.common.api.ResultCallback;
-import com.google.android.gms.wearable.DataApi;
-import com.google.android.gms.wearable.PutDataMapRequest;
-import com.google.android.gms.wearable.Wearable;
+import com.example.android.sunshine.common.DayFormatter;
+import com.example.android.sunshine.common.OwmForecast;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -54,7 +49,7 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.util.UUID;
+import java.util.TimeZone;
 import java.util.Vector;
 import java.util.concurrent.ExecutionException;
 
@@ -70,12 +65,6 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
     public static final int SYNC_INTERVAL = 60 * 180;
     public static final int SYNC_FLEXTIME = SYNC_INTERVAL / 3;
 
-    private static final String WEAR_DATA_PATH = "/weather/weather-info";
-    private static final String KEY_WEATHER_ID = "weather-id";
-    private static final String KEY_MAX_TEMPERATURE = "high";
-    private static final String KEY_MIN_TEMPERATURE = "low";
-    private static final String KEY_UUID = "uuid";
-
     private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
     private static final int WEATHER_NOTIFICATION_ID = 3004;
 
@@ -95,8 +84,6 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
 
     private static final int INDEX_SHORT_DESC = 3;
 
-    private GoogleApiClient googleApiClient;
-
     @Retention(RetentionPolicy.SOURCE)
     @IntDef({LOCATION_STATUS_OK, LOCATION_STATUS_SERVER_DOWN, LOCATION_STATUS_SERVER_INVALID,
             LOCATION_STATUS_UNKNOWN, LOCATION_STATUS_INVALID})
@@ -116,11 +103,6 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
 
     public SunshineSyncAdapter(Context context, boolean autoInitialize) {
         super(context, autoInitialize);
-        if (googleApiClient == null) {
-            googleApiClient = new GoogleApiClient.Builder(context)
-                    .addApi(Wearable.API)
-                    .build();
-        }
     }
 
     @Override
@@ -220,79 +202,30 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
      * Take the String representing the complete forecast in JSON Format and
      * pull out the data we need to construct the Strings needed for the wireframes.
      *
-     * Fortunately parsing is easy:  constructor takes the JSON string and converts it
-     * into an Object hierarchy for us.
+     * The parsing itself is done by {@link OwmForecast}; this stores the result.
      */
     private void getWeatherDataFromJson(String forecastJsonStr,
             String locationSetting)
             throws JSONException {
-
-        // Now we have a String representing the complete forecast in JSON Format.
-        // Fortunately parsing is easy:  constructor takes the JSON string and converts it
-        // into an Object hierarchy for us.
-
-        // These are the names of the JSON objects that need to be extracted.
-
-        // Location information
-        final String OWM_CITY = "city";
-        final String OWM_CITY_NAME = "name";
-        final String OWM_COORD = "coord";
-
-        // Location coordinate
-        final String OWM_LATITUDE = "lat";
-        final String OWM_LONGITUDE = "lon";
-
-        // Weather information.  Each day's forecast info is an element of the "list" array.
-        final String OWM_LIST = "list";
-
-        final String OWM_PRESSURE = "pressure";
-        final String OWM_HUMIDITY = "humidity";
-        final String OWM_WINDSPEED = "speed";
-        final String OWM_WIND_DIRECTION = "deg";
-
-        // All temperatures are children of the "temp" object.
-        final String OWM_TEMPERATURE = "temp";
-        final String OWM_MAX = "max";
-        final String OWM_MIN = "min";
-
-        final String OWM_WEATHER = "weather";
-        final String OWM_DESCRIPTION = "main";
-        final String OWM_WEATHER_ID = "id";
-
-        final String OWM_MESSAGE_CODE = "cod";
-
         try {
-            JSONObject forecastJson = new JSONObject(forecastJsonStr);
-
-            // do we have an error?
-            if (forecastJson.has(OWM_MESSAGE_CODE)) {
-                int errorCode = forecastJson.getInt(OWM_MESSAGE_CODE);
-
-                switch (errorCode) {
-                    case HttpURLConnection.HTTP_OK:
-                        break;
-                    case HttpURLConnection.HTTP_NOT_FOUND:
-                        setLocationStatus(getContext(), LOCATION_STATUS_INVALID);
-                        return;
-                    default:
-                        setLocationStatus(getContext(), LOCATION_STATUS_SERVER_DOWN);
-                        return;
-                }
+            OwmForecast forecast = OwmForecast.parse(forecastJsonStr);
+
+            switch (forecast.mStatus) {
+                case OwmForecast.STATUS_OK:
+                    break;
+                case OwmForecast.STATUS_NOT_FOUND:
+                    setLocationStatus(getContext(), LOCATION_STATUS_INVALID);
+                    return;
+                default:
+                    setLocationStatus(getContext(), LOCATION_STATUS_SERVER_DOWN);
+                    return;
             }
 
-            JSONArray weatherArray = forecastJson.getJSONArray(OWM_LIST);
-
-            JSONObject cityJson = forecastJson.getJSONObject(OWM_CITY);
-            String cityName = cityJson.getString(OWM_CITY_NAME);
-
-            JSONObject cityCoord = cityJson.getJSONObject(OWM_COORD);
-            double cityLatitude = cityCoord.getDouble(OWM_LATITUDE);
-            double cityLongitude = cityCoord.getDouble(OWM_LONGITUDE);
-
-            long locationId = addLocation(locationSetting, cityName, cityLatitude, cityLongitude);
+            long locationId = addLocation(locationSetting, forecast.mCityName,
+                    forecast.mCityLatitude, forecast.mCityLongitude);
 
             // Insert the new weather information into the database
-            Vector<ContentValues> cVVector = new Vector<ContentValues>(weatherArray.length());
+            Vector<ContentValues> cVVector = new Vector<ContentValues>(forecast.mDays.length);
 
             // OWM returns daily forecasts based upon the local time of the city that is being
             // asked for, which means that we need to know the GMT offset to translate this data
@@ -302,68 +235,33 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
             // current day, we're going to take advantage of that to get a nice
             // normalized UTC date for all of our weather.
 
-            Time dayTime = new Time();
-            dayTime.setToNow();
+            TimeZone zone = DayFormatter.getDefaultZone();
 
             // we start at the day returned by local time. Otherwise this is a mess.
-            int julianStartDay = Time.getJulianDay(System.currentTimeMillis(), dayTime.gmtoff);
-
-            // now we work exclusively in UTC
-            dayTime = new Time();
+            int julianStartDay = DayFormatter.julianDay(System.currentTimeMillis(), zone);
 
-            for (int i = 0; i < weatherArray.length(); i++) {
-                // These are the values that will be collected.
-                long dateTime;
-                double pressure;
-                int humidity;
-                double windSpeed;
-                double windDirection;
-
-                double high;
-                double low;
-
-                String description;
-                int weatherId;
-
-                // Get the JSON object representing the day
-                JSONObject dayForecast = weatherArray.getJSONObject(i);
+            for (int i = 0; i < forecast.mDays.length; i++) {
+                OwmForecast.Day day = forecast.mDays[i];
 
                 // Cheating to convert this to UTC time, which is what we want anyhow
-                dateTime = dayTime.setJulianDay(julianStartDay + i);
-
-                pressure = dayForecast.getDouble(OWM_PRESSURE);
-                humidity = dayForecast.getInt(OWM_HUMIDITY);
-                windSpeed = dayForecast.getDouble(OWM_WINDSPEED);
-                windDirection = dayForecast.getDouble(OWM_WIND_DIRECTION);
-
-                // Description is in a child array called "weather", which is 1 element long.
-                // That element also contains a weather code.
-                JSONObject weatherObject =
-                        dayForecast.getJSONArray(OWM_WEATHER).getJSONObject(0);
-                description = weatherObject.getString(OWM_DESCRIPTION);
-                weatherId = weatherObject.getInt(OWM_WEATHER_ID);
-
-                // Temperatures are in a child object called "temp".  Try not to name variables
-                // "temp" when working with temperature.  It confuses everybody.
-                JSONObject temperatureObject = dayForecast.getJSONObject(OWM_TEMPERATURE);
-                high = temperatureObject.getDouble(OWM_MAX);
-                low = temperatureObject.getDouble(OWM_MIN);
+                long dateTime = DayFormatter.dayStart(julianStartDay + i, zone);
 
                 ContentValues weatherValues = new ContentValues();
 
                 weatherValues.put(WeatherContract.WeatherEntry.COLUMN_LOC_KEY, locationId);
                 weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DATE, dateTime);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, humidity);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, pressure);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, windSpeed);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DEGREES, windDirection);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, high);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, low);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, description);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, weatherId);
-                sendDataToWearable(high, low, weatherId);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, day.mHumidity);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, day.mPressure);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, day.mWindSpeed);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DEGREES, day.mWindDirection);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, day.mHigh);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, day.mLow);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, day.mDescription);
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, day.mWeatherId);
                 cVVector.add(weatherValues);
             }
+            // Every day, so the watch can move on to the next one without the phone.
+            WearForecastSender.send(getContext(), forecast, julianStartDay);
 
             int inserted = 0;
             // add to database
@@ -376,11 +274,15 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
                 // delete old data so we don't build up an endless history
                 getContext().getContentResolver().delete(WeatherContract.WeatherEntry.CONTENT_URI,
                         WeatherContract.WeatherEntry.COLUMN_DATE + " <= ?",
-                        new String[]{Long.toString(dayTime.setJulianDay(julianStartDay - 1))});
+                        new String[]{Long.toString(DayFormatter.dayStart(julianStartDay - 1, zone))});
 
                 updateWidgets();
                 updateMuzei();
                 notifyWeather();
+
+                // Only once the new weather is out, since the fetches block on the network.
+                // Art that is shown later, or when the list is next drawn, comes from the cache.
+                prefetchArt(forecast);
             }
             Log.d(TAG, "Sync Complete. " + cVVector.size() + " Inserted");
             setLocationStatus(getContext(), LOCATION_STATUS_OK);
@@ -392,6 +294,14 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
         }
     }
 
+    private void prefetchArt(OwmForecast forecast) {
+        int[] weatherIds = new int[forecast.mDays.length];
+        for (int i = 0; i < weatherIds.length; i++) {
+            weatherIds[i] = forecast.mDays[i].mWeatherId;
+        }
+        WeatherArt.prefetch(getContext(), weatherIds);
+    }
+
     private void updateWidgets() {
         Context context = getContext();
         // Setting the package ensures that only components in our app will receive the broadcast
@@ -446,30 +356,15 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
                     int artResourceId = Utility.getArtResourceForWeatherCondition(weatherId);
                     String artUrl = Utility.getArtUrlForWeatherCondition(context, weatherId);
 
-                    // On Honeycomb and higher devices, we can retrieve the size of the large icon
-                    // Prior to that, we use a fixed size
-                    @SuppressLint("InlinedApi")
-                    int largeIconWidth = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
-                            ? resources
-                            .getDimensionPixelSize(android.R.dimen.notification_large_icon_width)
-                            : resources
-                                    .getDimensionPixelSize(R.dimen.notification_large_icon_default);
-                    @SuppressLint("InlinedApi")
-                    int largeIconHeight = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
-                            ? resources
-                            .getDimensionPixelSize(android.R.dimen.notification_large_icon_height)
-                            : resources
-                                    .getDimensionPixelSize(R.dimen.notification_large_icon_default);
-
-                    // Retrieve the large icon
+                    // Retrieve the large icon, cached at this size by an earlier prefetchArt
+                    int largeIconSize = WeatherArt.getPixelSize(context,
+                            WeatherArt.SIZE_NOTIFICATION);
                     Bitmap largeIcon;
                     try {
-                        largeIcon = Glide.with(context)
-                                .load(artUrl)
-                                .asBitmap()
+                        largeIcon = WeatherArt.load(context, artUrl,
+                                WeatherArt.SIZE_NOTIFICATION)
                                 .error(artResourceId)
-                                .fitCenter()
-                                .into(largeIconWidth, largeIconHeight).get();
+                                .into(largeIconSize, largeIconSize).get();
                     } catch (InterruptedException | ExecutionException e) {
                         Log.e(TAG, "Error retrieving large icon from " + artUrl, e);
                         largeIcon = BitmapFactory.decodeResource(resources, artResourceId);
@@ -617,7 +512,7 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
      * @param context The context used to access the account service
      * @return a fake account.
      */
-    public static Account getSyncAccount(Context context) {
+    public static synchronized Account getSyncAccount(Context context) {
         // Get an instance of the Android account manager
         AccountManager accountManager =
                 (AccountManager) context.getSystemService(Context.ACCOUNT_SERVICE);
@@ -668,8 +563,37 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
         syncImmediately(context);
     }
 
+    /**
+     * Makes sure the sync account exists, creating it and scheduling syncs on first run.  The
+     * AccountManager calls block on binder and disk, so this happens on a background thread
+     * instead of delaying the caller's first frame.
+     */
     public static void initializeSyncAdapter(Context context) {
-        getSyncAccount(context);
+        final Context appContext = context.getApplicationContext();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                getSyncAccount(appContext);
+            }
+        }, "SyncAccountSetup").start();
+    }
+
+    /**
+     * Sends the stored forecast to the watch again, for settings that change how the watch
+     * shows it, such as units.  Doesn't download anything.
+     */
+    public static void updateWearable(Context context) {
+        final Context appContext = context.getApplicationContext();
+        // The change listener that refreshes the settings may not have run yet.
+        SettingsSnapshot.invalidate();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                WearForecastSender.sendStored(appContext);
+            }
+        }, "WearableUpdate").start();
     }
 
     /**
@@ -684,30 +608,6 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
         SharedPreferences.Editor spe = sp.edit();
         spe.putInt(c.getString(R.string.pref_location_status_key), locationStatus);
         spe.commit();
-    }
-
-    private void sendDataToWearable(double maxTemp, double minTemp, int weatherId) {
-        if (googleApiClient != null) {
-            googleApiClient.connect();
-
-            PutDataMapRequest request = PutDataMapRequest.create(WEAR_DATA_PATH);
-            request.getDataMap().putInt(KEY_WEATHER_ID, weatherId);
-            request.getDataMap().putString(KEY_UUID, UUID.randomUUID().toString());
-            request.getDataMap().putString(KEY_MAX_TEMPERATURE, Utility.formatTemperature(getContext(), maxTemp));
-            request.getDataMap().putString(KEY_MIN_TEMPERATURE, Utility.formatTemperature(getContext(), minTemp));
-
-            Wearable.DataApi
-                    .putDataItem(googleApiClient, request.asPutDataRequest())
-                    .setResultCallback(new ResultCallback<DataApi.DataItemResult>() {
-                        @Override
-                        public void onResult(DataApi.DataItemResult dataItemResult) {
-                            if (dataItemResult.getStatus().isSuccess()) {
-                                Log.d(TAG, "success");
-                            } else {
-                                Log.d(TAG, "fail");
-                            }
-                        }
-                    });
-        }
+        SettingsSnapshot.invalidate();
     }
 }
\ No newline at end of file
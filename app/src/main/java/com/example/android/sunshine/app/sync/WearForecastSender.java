@@ -0,0 +1,367 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.support.v4.util.AtomicFile;
+import android.util.Log;
+
+import com.example.android.sunshine.app.SettingsSnapshot;
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.common.DayFormatter;
+import com.example.android.sunshine.common.ForecastCodec;
+import com.example.android.sunshine.common.OwmForecast;
+import com.example.android.sunshine.common.WearContract;
+import com.example.android.sunshine.common.WearForecast;
+import com.example.android.sunshine.common.WearForecastDelta;
+import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.common.api.Status;
+import com.google.android.gms.wearable.PutDataMapRequest;
+import com.google.android.gms.wearable.PutDataRequest;
+import com.google.android.gms.wearable.Wearable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the watch's forecast up to date while sending as little as possible over Bluetooth.
+ *
+ * The phone remembers the latest forecast it put and the last one the watch acknowledged, and
+ * puts only the days that differ between the two (see {@link WearContract}).  A forecast that
+ * hasn't changed is never put again.  Temperatures go as Celsius along with the unit setting,
+ * and the watch formats them.  The bytes put are counted per day and logged when the
+ * day is over.
+ *
+ * All methods block, so call them off the main thread.
+ */
+class WearForecastSender {
+    private static final String LOG_TAG = WearForecastSender.class.getSimpleName();
+
+    private static final String FILE_NAME = "wear_forecast";
+
+    // Bump whenever the layout of the file changes.
+    private static final int VERSION = 2;
+
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private static final String[] FORECAST_COLUMNS = {
+            WeatherContract.WeatherEntry.COLUMN_DATE,
+            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP
+    };
+    // these indices must match the projection
+    private static final int INDEX_DATE = 0;
+    private static final int INDEX_WEATHER_ID = 1;
+    private static final int INDEX_MAX_TEMP = 2;
+    private static final int INDEX_MIN_TEMP = 3;
+
+    // Guards the file; the sync adapter and the listener service run on different threads.
+    private static final Object sLock = new Object();
+
+    /**
+     * What has been sent, as stored in the file.
+     */
+    private static class State {
+        // The latest forecast put, and the latest one the watch acknowledged; null if none
+        WearForecast mCurrent;
+        WearForecast mAcked;
+        // Whether the item holds every day of mCurrent, which any watch can apply
+        boolean mPutFull;
+        // Bytes put on mTrafficDay (julian)
+        int mTrafficDay;
+        long mTrafficBytes;
+    }
+
+    private WearForecastSender() {
+    }
+
+    /**
+     * Sends a freshly downloaded forecast, unless the watch already has the same one.
+     *
+     * @param julianStartDay the day of the forecast's first entry
+     */
+    static void send(Context context, OwmForecast forecast, int julianStartDay) {
+        int count = forecast.mDays.length;
+        int[] weatherIds = new int[count];
+        short[] highs = new short[count];
+        short[] lows = new short[count];
+        for (int i = 0; i < count; i++) {
+            OwmForecast.Day day = forecast.mDays[i];
+            weatherIds[i] = day.mWeatherId;
+            highs[i] = WearForecast.toTenths(day.mHigh);
+            lows[i] = WearForecast.toTenths(day.mLow);
+        }
+        sendDelta(context, new WearForecast(0, SettingsSnapshot.get(context).mMetric,
+                julianStartDay, weatherIds, highs, lows));
+    }
+
+    /**
+     * Sends what the provider holds, for when a setting the watch depends on changed.
+     */
+    static void sendStored(Context context) {
+        WearForecast stored = readProvider(context);
+        if (stored != null) {
+            sendDelta(context, stored);
+        }
+    }
+
+    private static void sendDelta(Context context, WearForecast forecast) {
+        synchronized (sLock) {
+            State state = read(context);
+            if (update(state, forecast) && put(context, state,
+                    WearForecastDelta.between(state.mAcked, state.mCurrent))) {
+                write(context, state);
+            }
+        }
+    }
+
+    /**
+     * Answers the watch asking for every day, using what the provider holds.
+     *
+     * @param watchVersion the version the watch holds
+     */
+    static void onRequest(Context context, int watchVersion) {
+        WearForecast stored = readProvider(context);
+        synchronized (sLock) {
+            State state = read(context);
+            boolean changed = stored != null && update(state, stored);
+            if (state.mCurrent == null
+                    || (!changed && (watchVersion == state.mCurrent.mVersion || state.mPutFull))) {
+                // Either there is nothing to send, or the watch has it or can read it already.
+                return;
+            }
+            if (put(context, state, WearForecastDelta.between(null, state.mCurrent))) {
+                write(context, state);
+            }
+        }
+    }
+
+    /**
+     * Records that the watch applied a forecast, so the next delta can start from it.
+     */
+    static void onAck(Context context, int version) {
+        synchronized (sLock) {
+            State state = read(context);
+            if (state.mCurrent == null || state.mCurrent.mVersion != version
+                    || state.mAcked == state.mCurrent) {
+                return;
+            }
+            state.mAcked = state.mCurrent;
+            write(context, state);
+        }
+    }
+
+    /**
+     * Makes {@code forecast} the current one with a new version, unless it is already current.
+     *
+     * @return whether it changed
+     */
+    private static boolean update(State state, WearForecast forecast) {
+        if (state.mCurrent != null && state.mCurrent.sameContent(forecast)) {
+            return false;
+        }
+        int version = state.mCurrent == null
+                ? WearForecast.FIRST_VERSION : state.mCurrent.mVersion + 1;
+        state.mCurrent = forecast.withVersion(version);
+        return true;
+    }
+
+    /**
+     * Puts a delta and records it in {@code state}.  The state isn't worth keeping if this
+     * fails, since the watch never saw its new version.
+     *
+     * @return whether the put succeeded
+     */
+    private static boolean put(Context context, State state, WearForecastDelta delta) {
+        PutDataRequest request = toPutDataRequest(delta);
+        int bytes = request.getData().length;
+
+        GoogleApiClient googleApiClient = new GoogleApiClient.Builder(context)
+                .addApi(Wearable.API)
+                .build();
+        ConnectionResult connectionResult =
+                googleApiClient.blockingConnect(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        if (!connectionResult.isSuccess()) {
+            Log.w(LOG_TAG, "Unable to connect: " + connectionResult.getErrorCode());
+            return false;
+        }
+        try {
+            Status status = Wearable.DataApi.putDataItem(googleApiClient, request)
+                    .await(TIMEOUT_SECONDS, TimeUnit.SECONDS).getStatus();
+            if (!status.isSuccess()) {
+                Log.w(LOG_TAG, "Unable to put the forecast: " + status.getStatusCode());
+                return false;
+            }
+        } finally {
+            googleApiClient.disconnect();
+        }
+
+        state.mPutFull = delta.isFull();
+        Log.d(LOG_TAG, "Put forecast " + delta.mVersion + " from " + delta.mBaseVersion + ": "
+                + delta.mOffsets.length + " of " + delta.mDayCount + " days, " + bytes + " bytes");
+        int today = DayFormatter.julianDay(System.currentTimeMillis(),
+                DayFormatter.getDefaultZone());
+        if (today != state.mTrafficDay) {
+            if (state.mTrafficBytes > 0) {
+                Log.i(LOG_TAG, "Sent " + state.mTrafficBytes + " bytes to the watch on day "
+                        + state.mTrafficDay);
+            }
+            state.mTrafficDay = today;
+            state.mTrafficBytes = 0;
+        }
+        state.mTrafficBytes += bytes;
+        return true;
+    }
+
+    private static PutDataRequest toPutDataRequest(WearForecastDelta delta) {
+        PutDataMapRequest request = PutDataMapRequest.create(WearContract.PATH_FORECAST);
+        request.getDataMap().putByteArray(WearContract.KEY_FORECAST, ForecastCodec.encode(delta));
+        return request.asPutDataRequest();
+    }
+
+    /**
+     * @return the stored forecast for the preferred location from today on, without a version,
+     * or null if nothing is stored for today
+     */
+    private static WearForecast readProvider(Context context) {
+        String location = Utility.getPreferredLocation(context);
+        Uri uri = WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(location,
+                System.currentTimeMillis());
+        Cursor data = context.getContentResolver().query(uri, FORECAST_COLUMNS, null, null,
+                WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+        if (data == null) {
+            return null;
+        }
+        try {
+            if (!data.moveToFirst()) {
+                return null;
+            }
+            TimeZone zone = DayFormatter.getDefaultZone();
+            int firstDay = DayFormatter.julianDay(data.getLong(INDEX_DATE), zone);
+            int count = data.getCount();
+            int[] weatherIds = new int[count];
+            short[] highs = new short[count];
+            short[] lows = new short[count];
+            int days = 0;
+            do {
+                // The watch indexes by day, so a gap ends the forecast.
+                if (DayFormatter.julianDay(data.getLong(INDEX_DATE), zone) != firstDay + days) {
+                    break;
+                }
+                weatherIds[days] = data.getInt(INDEX_WEATHER_ID);
+                highs[days] = WearForecast.toTenths(data.getDouble(INDEX_MAX_TEMP));
+                lows[days] = WearForecast.toTenths(data.getDouble(INDEX_MIN_TEMP));
+                days++;
+            } while (data.moveToNext());
+            if (days < count) {
+                int[] trimmedIds = new int[days];
+                short[] trimmedHighs = new short[days];
+                short[] trimmedLows = new short[days];
+                System.arraycopy(weatherIds, 0, trimmedIds, 0, days);
+                System.arraycopy(highs, 0, trimmedHighs, 0, days);
+                System.arraycopy(lows, 0, trimmedLows, 0, days);
+                weatherIds = trimmedIds;
+                highs = trimmedHighs;
+                lows = trimmedLows;
+            }
+            return new WearForecast(0, SettingsSnapshot.get(context).mMetric, firstDay,
+                    weatherIds, highs, lows);
+        } finally {
+            data.close();
+        }
+    }
+
+    private static AtomicFile getFile(Context context) {
+        return new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+    }
+
+    private static State read(Context context) {
+        State state = new State();
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(getFile(context).openRead()));
+            if (in.readInt() != VERSION) {
+                return state;
+            }
+            WearForecast current = in.readBoolean() ? WearForecast.readFrom(in) : null;
+            WearForecast acked = in.readBoolean() ? WearForecast.readFrom(in) : null;
+            state.mCurrent = current;
+            // Shared, so that onAck can tell it is already acknowledged.
+            state.mAcked = acked != null && current != null && acked.mVersion == current.mVersion
+                    ? current : acked;
+            state.mPutFull = in.readBoolean();
+            state.mTrafficDay = in.readInt();
+            state.mTrafficBytes = in.readLong();
+        } catch (FileNotFoundException e) {
+            // Nothing sent yet.
+        } catch (IOException e) {
+            // The watch asks for every day when a delta doesn't apply.
+            Log.w(LOG_TAG, "Ignoring unreadable wear forecast state", e);
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // Nothing was written.
+                }
+            }
+        }
+        return state;
+    }
+
+    private static void write(Context context, State state) {
+        AtomicFile file = getFile(context);
+        FileOutputStream stream = null;
+        try {
+            stream = file.startWrite();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(VERSION);
+            writeForecast(out, state.mCurrent);
+            writeForecast(out, state.mAcked);
+            out.writeBoolean(state.mPutFull);
+            out.writeInt(state.mTrafficDay);
+            out.writeLong(state.mTrafficBytes);
+            out.flush();
+            file.finishWrite(stream);
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Unable to write wear forecast state", e);
+            if (stream != null) {
+                file.failWrite(stream);
+            }
+        }
+    }
+
+    private static void writeForecast(DataOutputStream out, WearForecast forecast)
+            throws IOException {
+        out.writeBoolean(forecast != null);
+        if (forecast != null) {
+            forecast.writeTo(out);
+        }
+    }
+}
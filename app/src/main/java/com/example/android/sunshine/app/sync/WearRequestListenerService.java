@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import com.example.android.sunshine.common.WearContract;
+import com.google.android.gms.wearable.MessageEvent;
+import com.google.android.gms.wearable.WearableListenerService;
+
+/**
+ * Handles the watch face's messages: answers its request for every day with what the provider
+ * already holds, so a watch that lost its forecast gets one right away instead of at the next
+ * sync, and records its acknowledgements.  Never goes to the network.
+ */
+public class WearRequestListenerService extends WearableListenerService {
+
+    @Override
+    public void onMessageReceived(MessageEvent messageEvent) {
+        // Called on a background thread, so the provider and the Data Layer can block.
+        int version = WearContract.decodeVersion(messageEvent.getData());
+        String path = messageEvent.getPath();
+        if (WearContract.PATH_REQUEST_FORECAST.equals(path)) {
+            WearForecastSender.onRequest(this, version);
+        } else if (WearContract.PATH_ACK_FORECAST.equals(path)) {
+            WearForecastSender.onAck(this, version);
+        }
+    }
+}
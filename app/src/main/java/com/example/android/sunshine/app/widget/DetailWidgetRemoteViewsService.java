@@ -7,19 +7,14 @@ import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Binder;
 import android.os.Build;
-import android.util.Log;
 import android.widget.AdapterView;
 import android.widget.RemoteViews;
 import android.widget.RemoteViewsService;
 
-import com.bumptech.glide.Glide;
-import com.bumptech.glide.request.target.Target;
 import com.example.android.sunshine.app.R;
 import com.example.android.sunshine.app.Utility;
 import com.example.android.sunshine.app.data.WeatherContract;
 
-import java.util.concurrent.ExecutionException;
-
 /**
  * RemoteViewsService controlling the data being shown in the scrollable weather detail widget
  */
@@ -42,104 +37,130 @@ public class DetailWidgetRemoteViewsService extends RemoteViewsService {
     static final int INDEX_WEATHER_MAX_TEMP = 4;
     static final int INDEX_WEATHER_MIN_TEMP = 5;
 
+    /**
+     * One list item, formatted when the data set changes so that the launcher scrolling the
+     * list reads neither the database nor the preferences.
+     */
+    private static final class Row {
+        final long mId;
+        final int mWeatherId;
+        final int mIconResourceId;
+        final String mDate;
+        final String mDescription;
+        final String mHigh;
+        final String mLow;
+        final Uri mUri;
+
+        Row(long id, int weatherId, int iconResourceId, String date, String description,
+            String high, String low, Uri uri) {
+            mId = id;
+            mWeatherId = weatherId;
+            mIconResourceId = iconResourceId;
+            mDate = date;
+            mDescription = description;
+            mHigh = high;
+            mLow = low;
+            mUri = uri;
+        }
+    }
+
+    private Row[] readRows() {
+        String location = Utility.getPreferredLocation(this);
+        Uri weatherForLocationUri = WeatherContract.WeatherEntry
+                .buildWeatherLocationWithStartDate(location, System.currentTimeMillis());
+        Cursor data = getContentResolver().query(weatherForLocationUri,
+                FORECAST_COLUMNS,
+                null,
+                null,
+                WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+        if (data == null) {
+            return new Row[0];
+        }
+        try {
+            Row[] rows = new Row[data.getCount()];
+            for (int i = 0; i < rows.length && data.moveToPosition(i); i++) {
+                int weatherId = data.getInt(INDEX_WEATHER_CONDITION_ID);
+                long dateInMillis = data.getLong(INDEX_WEATHER_DATE);
+                rows[i] = new Row(data.getLong(INDEX_WEATHER_ID),
+                        weatherId,
+                        Utility.getIconResourceForWeatherCondition(weatherId),
+                        Utility.getFriendlyDayString(this, dateInMillis, false),
+                        data.getString(INDEX_WEATHER_DESC),
+                        Utility.formatTemperature(this, data.getDouble(INDEX_WEATHER_MAX_TEMP)),
+                        Utility.formatTemperature(this, data.getDouble(INDEX_WEATHER_MIN_TEMP)),
+                        WeatherContract.WeatherEntry.buildWeatherLocationWithDate(location,
+                                dateInMillis));
+            }
+            return rows;
+        } finally {
+            data.close();
+        }
+    }
+
     @Override
     public RemoteViewsFactory onGetViewFactory(Intent intent) {
         return new RemoteViewsFactory() {
-            private Cursor data = null;
+            // Replaced as a whole, never modified
+            private Row[] rows = new Row[0];
+            private WidgetArtCache artCache;
 
             @Override
             public void onCreate() {
-                // Nothing to do
+                artCache = new WidgetArtCache(DetailWidgetRemoteViewsService.this);
             }
 
             @Override
             public void onDataSetChanged() {
-                if (data != null) {
-                    data.close();
-                }
                 // This method is called by the app hosting the widget (e.g., the launcher)
                 // However, our ContentProvider is not exported so it doesn't have access to the
                 // data. Therefore we need to clear (and finally restore) the calling identity so
                 // that calls use our process and permission
                 final long identityToken = Binder.clearCallingIdentity();
-                String location = Utility.getPreferredLocation(DetailWidgetRemoteViewsService.this);
-                Uri weatherForLocationUri = WeatherContract.WeatherEntry
-                        .buildWeatherLocationWithStartDate(location, System.currentTimeMillis());
-                data = getContentResolver().query(weatherForLocationUri,
-                        FORECAST_COLUMNS,
-                        null,
-                        null,
-                        WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
-                Binder.restoreCallingIdentity(identityToken);
+                try {
+                    rows = readRows();
+                } finally {
+                    Binder.restoreCallingIdentity(identityToken);
+                }
+                artCache.reset();
             }
 
             @Override
             public void onDestroy() {
-                if (data != null) {
-                    data.close();
-                    data = null;
-                }
+                rows = new Row[0];
+                artCache.clear();
             }
 
             @Override
             public int getCount() {
-                return data == null ? 0 : data.getCount();
+                return rows.length;
             }
 
             @Override
             public RemoteViews getViewAt(int position) {
-                if (position == AdapterView.INVALID_POSITION ||
-                        data == null || !data.moveToPosition(position)) {
+                if (position == AdapterView.INVALID_POSITION
+                        || position < 0 || position >= rows.length) {
                     return null;
                 }
+                Row row = rows[position];
                 RemoteViews views = new RemoteViews(getPackageName(),
                         R.layout.widget_detail_list_item);
-                int weatherId = data.getInt(INDEX_WEATHER_CONDITION_ID);
-                int weatherArtResourceId = Utility.getIconResourceForWeatherCondition(weatherId);
-                Bitmap weatherArtImage = null;
-                if ( !Utility.usingLocalGraphics(DetailWidgetRemoteViewsService.this) ) {
-                    String weatherArtResourceUrl = Utility.getArtUrlForWeatherCondition(
-                            DetailWidgetRemoteViewsService.this, weatherId);
-                    try {
-                        weatherArtImage = Glide.with(DetailWidgetRemoteViewsService.this)
-                                .load(weatherArtResourceUrl)
-                                .asBitmap()
-                                .error(weatherArtResourceId)
-                                .into(Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL).get();
-                    } catch (InterruptedException | ExecutionException e) {
-                        Log.e(LOG_TAG, "Error retrieving large icon from " + weatherArtResourceUrl, e);
-                    }
-                }
-                String description = data.getString(INDEX_WEATHER_DESC);
-                long dateInMillis = data.getLong(INDEX_WEATHER_DATE);
-                String formattedDate = Utility.getFriendlyDayString(
-                        DetailWidgetRemoteViewsService.this, dateInMillis, false);
-                double maxTemp = data.getDouble(INDEX_WEATHER_MAX_TEMP);
-                double minTemp = data.getDouble(INDEX_WEATHER_MIN_TEMP);
-                String formattedMaxTemperature =
-                        Utility.formatTemperature(DetailWidgetRemoteViewsService.this, maxTemp);
-                String formattedMinTemperature =
-                        Utility.formatTemperature(DetailWidgetRemoteViewsService.this, minTemp);
+                // Decoded once per condition at the row's icon size, rather than per row.
+                Bitmap weatherArtImage = artCache.get(position, row.mWeatherId);
                 if (weatherArtImage != null) {
                     views.setImageViewBitmap(R.id.widget_icon, weatherArtImage);
                 } else {
-                    views.setImageViewResource(R.id.widget_icon, weatherArtResourceId);
+                    views.setImageViewResource(R.id.widget_icon, row.mIconResourceId);
                 }
                 if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1) {
-                    setRemoteContentDescription(views, description);
+                    setRemoteContentDescription(views, row.mDescription);
                 }
-                views.setTextViewText(R.id.widget_date, formattedDate);
-                views.setTextViewText(R.id.widget_description, description);
-                views.setTextViewText(R.id.widget_high_temperature, formattedMaxTemperature);
-                views.setTextViewText(R.id.widget_low_temperature, formattedMinTemperature);
+                views.setTextViewText(R.id.widget_date, row.mDate);
+                views.setTextViewText(R.id.widget_description, row.mDescription);
+                views.setTextViewText(R.id.widget_high_temperature, row.mHigh);
+                views.setTextViewText(R.id.widget_low_temperature, row.mLow);
 
                 final Intent fillInIntent = new Intent();
-                String locationSetting =
-                        Utility.getPreferredLocation(DetailWidgetRemoteViewsService.this);
-                Uri weatherUri = WeatherContract.WeatherEntry.buildWeatherLocationWithDate(
-                        locationSetting,
-                        dateInMillis);
-                fillInIntent.setData(weatherUri);
+                fillInIntent.setData(row.mUri);
                 views.setOnClickFillInIntent(R.id.widget_list_item, fillInIntent);
                 return views;
             }
@@ -161,8 +182,9 @@ public class DetailWidgetRemoteViewsService extends RemoteViewsService {
 
             @Override
             public long getItemId(int position) {
-                if (data.moveToPosition(position))
-                    return data.getLong(INDEX_WEATHER_ID);
+                Row[] current = rows;
+                if (position >= 0 && position < current.length)
+                    return current[position].mId;
                 return position;
             }
 
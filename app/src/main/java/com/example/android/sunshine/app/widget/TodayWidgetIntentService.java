@@ -25,7 +25,9 @@ import android.database.Cursor;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.util.Log;
 import android.util.DisplayMetrics;
+import android.util.SparseArray;
 import android.util.TypedValue;
 import android.widget.RemoteViews;
 
@@ -34,10 +36,28 @@ import com.example.android.sunshine.app.R;
 import com.example.android.sunshine.app.Utility;
 import com.example.android.sunshine.app.data.WeatherContract;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
- * IntentService which handles updating all Today widgets with the latest data
+ * IntentService which handles updating all Today widgets with the latest data.
+ *
+ * Requests that queue up while an update runs are coalesced into the latest one.  The state
+ * last pushed to each widget is remembered, so an update only sends what changed: nothing if
+ * the widget already shows today's weather, just the text if the layout and art are the same,
+ * and the whole RemoteViews otherwise.
  */
 public class TodayWidgetIntentService extends IntentService {
+    private static final String LOG_TAG = TodayWidgetIntentService.class.getSimpleName();
+
+    /**
+     * Boolean extra: push every widget in full, as the host may not have any views for them,
+     * such as after APPWIDGET_UPDATE.
+     */
+    public static final String EXTRA_FORCE = "force";
+
+    private static final String EXTRA_SEQUENCE = "sequence";
+
     private static final String[] FORECAST_COLUMNS = {
             WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
             WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
@@ -50,16 +70,83 @@ public class TodayWidgetIntentService extends IntentService {
     private static final int INDEX_MAX_TEMP = 2;
     private static final int INDEX_MIN_TEMP = 3;
 
+    static final int UPDATE_NONE = 0;
+    static final int UPDATE_TEXT = 1;
+    static final int UPDATE_FULL = 2;
+
+    // Requests are numbered as they are queued; only the latest one needs to run.
+    private static final AtomicInteger sLastSequence = new AtomicInteger();
+    private static final AtomicBoolean sForcePending = new AtomicBoolean();
+
+    // Only touched from the worker thread; the volatile reference hands it between the
+    // threads of successive service instances.  Lost with the process, which just means the
+    // next update is a full one.
+    private static volatile SparseArray<PushedState> sPushedStates = new SparseArray<PushedState>();
+
+    private static final AtomicInteger sCoalescedCount = new AtomicInteger();
+    private static final AtomicInteger sSkippedCount = new AtomicInteger();
+    private static final AtomicInteger sPartialCount = new AtomicInteger();
+    private static final AtomicInteger sFullCount = new AtomicInteger();
+
+    /**
+     * What was last pushed to one widget.
+     */
+    static class PushedState {
+        // The layout stands for the widget's size bucket.
+        final int mLayoutId;
+        final int mArtHash;
+        final int mTextHash;
+
+        PushedState(int layoutId, int artHash, int textHash) {
+            mLayoutId = layoutId;
+            mArtHash = artHash;
+            mTextHash = textHash;
+        }
+    }
+
     public TodayWidgetIntentService() {
         super("TodayWidgetIntentService");
     }
 
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if (intent != null) {
+            if (intent.getBooleanExtra(EXTRA_FORCE, false)) {
+                sForcePending.set(true);
+            }
+            intent.putExtra(EXTRA_SEQUENCE, sLastSequence.incrementAndGet());
+        }
+        return super.onStartCommand(intent, flags, startId);
+    }
+
+    /**
+     * @return how a widget showing {@code pushed} has to be updated to show the new state
+     */
+    static int getUpdateKind(PushedState pushed, int layoutId, int artHash, int textHash) {
+        if (pushed == null || pushed.mLayoutId != layoutId || pushed.mArtHash != artHash) {
+            return UPDATE_FULL;
+        }
+        return pushed.mTextHash != textHash ? UPDATE_TEXT : UPDATE_NONE;
+    }
+
     @Override
     protected void onHandleIntent(Intent intent) {
+        if (intent != null
+                && intent.getIntExtra(EXTRA_SEQUENCE, 0) != sLastSequence.get()) {
+            // A later request is queued behind this one and will see the same or newer data.
+            sCoalescedCount.incrementAndGet();
+            return;
+        }
+        boolean force = sForcePending.getAndSet(false);
+
         // Retrieve all of the Today widget ids: these are the widgets we need to update
         AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(this);
         int[] appWidgetIds = appWidgetManager.getAppWidgetIds(new ComponentName(this,
                 TodayWidgetProvider.class));
+        if (appWidgetIds.length == 0) {
+            sPushedStates = new SparseArray<PushedState>();
+            return;
+        }
 
         // Get today's data from the ContentProvider
         String location = Utility.getPreferredLocation(this);
@@ -85,12 +172,25 @@ public class TodayWidgetIntentService extends IntentService {
         String formattedMinTemperature = Utility.formatTemperature(this, minTemp);
         data.close();
 
+        int artHash = weatherArtResourceId;
+        int textHash = (description + '\n' + formattedMaxTemperature + '\n'
+                + formattedMinTemperature).hashCode();
+
+        // The same for every widget
+        int defaultWidth = getResources().getDimensionPixelSize(R.dimen.widget_today_default_width);
+        int largeWidth = getResources().getDimensionPixelSize(R.dimen.widget_today_large_width);
+        DisplayMetrics displayMetrics = getResources().getDisplayMetrics();
+        PendingIntent pendingIntent = null;
+
+        SparseArray<PushedState> oldStates = sPushedStates;
+        // Only the current widgets are carried over, which drops deleted ones.
+        SparseArray<PushedState> newStates = new SparseArray<PushedState>(appWidgetIds.length);
+
         // Perform this loop procedure for each Today widget
         for (int appWidgetId : appWidgetIds) {
             // Find the correct layout based on the widget's width
-            int widgetWidth = getWidgetWidth(appWidgetManager, appWidgetId);
-            int defaultWidth = getResources().getDimensionPixelSize(R.dimen.widget_today_default_width);
-            int largeWidth = getResources().getDimensionPixelSize(R.dimen.widget_today_large_width);
+            int widgetWidth = getWidgetWidth(appWidgetManager, appWidgetId, defaultWidth,
+                    displayMetrics);
             int layoutId;
             if (widgetWidth >= largeWidth) {
                 layoutId = R.layout.widget_today_large;
@@ -99,10 +199,26 @@ public class TodayWidgetIntentService extends IntentService {
             } else {
                 layoutId = R.layout.widget_today_small;
             }
+            PushedState pushed = oldStates.get(appWidgetId);
+            int updateKind = force ? UPDATE_FULL
+                    : getUpdateKind(pushed, layoutId, artHash, textHash);
+            // Partial updates need Honeycomb; before that, send everything.
+            if (updateKind == UPDATE_TEXT
+                    && Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+                updateKind = UPDATE_FULL;
+            }
+            if (updateKind == UPDATE_NONE) {
+                sSkippedCount.incrementAndGet();
+                newStates.put(appWidgetId, pushed);
+                continue;
+            }
+
             RemoteViews views = new RemoteViews(getPackageName(), layoutId);
 
             // Add the data to the RemoteViews
-            views.setImageViewResource(R.id.widget_icon, weatherArtResourceId);
+            if (updateKind == UPDATE_FULL) {
+                views.setImageViewResource(R.id.widget_icon, weatherArtResourceId);
+            }
             // Content Descriptions for RemoteViews were only added in ICS MR1
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1) {
                 setRemoteContentDescription(views, description);
@@ -111,37 +227,70 @@ public class TodayWidgetIntentService extends IntentService {
             views.setTextViewText(R.id.widget_high_temperature, formattedMaxTemperature);
             views.setTextViewText(R.id.widget_low_temperature, formattedMinTemperature);
 
-            // Create an Intent to launch MainActivity
-            Intent launchIntent = new Intent(this, MainActivity.class);
-            PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, launchIntent, 0);
-            views.setOnClickPendingIntent(R.id.widget, pendingIntent);
+            if (updateKind == UPDATE_TEXT) {
+                // Merged into the views the host already has
+                partiallyUpdateAppWidget(appWidgetManager, appWidgetId, views);
+                sPartialCount.incrementAndGet();
+            } else {
+                if (pendingIntent == null) {
+                    // Create an Intent to launch MainActivity
+                    Intent launchIntent = new Intent(this, MainActivity.class);
+                    pendingIntent = PendingIntent.getActivity(this, 0, launchIntent, 0);
+                }
+                views.setOnClickPendingIntent(R.id.widget, pendingIntent);
+
+                // Tell the AppWidgetManager to perform an update on the current app widget
+                appWidgetManager.updateAppWidget(appWidgetId, views);
+                sFullCount.incrementAndGet();
+            }
+            newStates.put(appWidgetId, new PushedState(layoutId, artHash, textHash));
+        }
+        sPushedStates = newStates;
 
-            // Tell the AppWidgetManager to perform an update on the current app widget
-            appWidgetManager.updateAppWidget(appWidgetId, views);
+        if (Log.isLoggable(LOG_TAG, Log.DEBUG)) {
+            Log.d(LOG_TAG, "Widget updates: " + sFullCount.get() + " full, "
+                    + sPartialCount.get() + " partial, " + sSkippedCount.get()
+                    + " skipped as unchanged, " + sCoalescedCount.get() + " coalesced");
         }
     }
 
-    private int getWidgetWidth(AppWidgetManager appWidgetManager, int appWidgetId) {
+    /**
+     * @return the number of widget updates that were not pushed, either because the widget
+     *         already showed the data or because a later request replaced them
+     */
+    public static int getSkippedUpdateCount() {
+        return sSkippedCount.get() + sCoalescedCount.get();
+    }
+
+    private int getWidgetWidth(AppWidgetManager appWidgetManager, int appWidgetId,
+                               int defaultWidth, DisplayMetrics displayMetrics) {
         // Prior to Jelly Bean, widgets were always their default size
         if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
-            return getResources().getDimensionPixelSize(R.dimen.widget_today_default_width);
+            return defaultWidth;
         }
         // For Jelly Bean and higher devices, widgets can be resized - the current size can be
         // retrieved from the newly added App Widget Options
-        return getWidgetWidthFromOptions(appWidgetManager, appWidgetId);
+        return getWidgetWidthFromOptions(appWidgetManager, appWidgetId, defaultWidth,
+                displayMetrics);
     }
 
     @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
-    private int getWidgetWidthFromOptions(AppWidgetManager appWidgetManager, int appWidgetId) {
+    private int getWidgetWidthFromOptions(AppWidgetManager appWidgetManager, int appWidgetId,
+                                          int defaultWidth, DisplayMetrics displayMetrics) {
         Bundle options = appWidgetManager.getAppWidgetOptions(appWidgetId);
         if (options.containsKey(AppWidgetManager.OPTION_APPWIDGET_MIN_WIDTH)) {
             int minWidthDp = options.getInt(AppWidgetManager.OPTION_APPWIDGET_MIN_WIDTH);
             // The width returned is in dp, but we'll convert it to pixels to match the other widths
-            DisplayMetrics displayMetrics = getResources().getDisplayMetrics();
             return (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, minWidthDp,
                     displayMetrics);
         }
-        return  getResources().getDimensionPixelSize(R.dimen.widget_today_default_width);
+        return defaultWidth;
+    }
+
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private void partiallyUpdateAppWidget(AppWidgetManager appWidgetManager, int appWidgetId,
+                                          RemoteViews views) {
+        appWidgetManager.partiallyUpdateAppWidget(appWidgetId, views);
     }
 
     @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1)
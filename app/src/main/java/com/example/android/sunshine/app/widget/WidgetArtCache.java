@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.widget;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import com.bumptech.glide.request.FutureTarget;
+import com.example.android.sunshine.app.SettingsSnapshot;
+import com.example.android.sunshine.app.WeatherArt;
+import com.example.android.sunshine.common.WeatherConditions;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Weather art for the rows of the detail widget, for one update of its data.
+ *
+ * Each condition is decoded once, at the widget's icon size, and the bitmap is shared by every
+ * row showing that condition.  Every row's RemoteViews carries its own copy of the bitmap
+ * through the launcher's binder, so only the first rows that fit in {@link #MAX_UPDATE_BYTES}
+ * get art and the rest use the local icon.  That depends on the position alone, so a row the
+ * host asks for again looks the same.  Not thread safe; RemoteViewsFactory calls are
+ * serialized.
+ */
+class WidgetArtCache {
+    private static final String LOG_TAG = WidgetArtCache.class.getSimpleName();
+
+    // Well below the 1MB binder buffer the host process shares between all its transactions.
+    static final int MAX_UPDATE_BYTES = 512 * 1024;
+
+    private final Context mContext;
+    private final int mIconSize;
+    private final int mMaxArtRows;
+
+    @SuppressWarnings("unchecked")
+    private final FutureTarget<Bitmap>[] mTargets = new FutureTarget[WeatherConditions.KIND_COUNT];
+    private final Bitmap[] mBitmaps = new Bitmap[WeatherConditions.KIND_COUNT];
+    private final boolean[] mFailed = new boolean[WeatherConditions.KIND_COUNT];
+    private SettingsSnapshot mSettings;
+
+    WidgetArtCache(Context context) {
+        mContext = context;
+        mIconSize = WeatherArt.getPixelSize(context, WeatherArt.SIZE_ICON);
+        // ARGB_8888; fitCenter only ever makes the bitmap smaller.
+        mMaxArtRows = MAX_UPDATE_BYTES / Math.max(1, mIconSize * mIconSize * 4);
+    }
+
+    /**
+     * Starts a new update: forgets the decoded art, since the settings or the art pack may have
+     * changed.
+     */
+    void reset() {
+        clear();
+        mSettings = SettingsSnapshot.get(mContext);
+    }
+
+    /**
+     * Releases the decoded art.
+     */
+    void clear() {
+        for (int kind = 0; kind < mTargets.length; kind++) {
+            if (mTargets[kind] != null) {
+                mTargets[kind].clear();
+                mTargets[kind] = null;
+            }
+            mBitmaps[kind] = null;
+            mFailed[kind] = false;
+        }
+    }
+
+    /**
+     * Returns the art for a row.  Blocks the first time each condition is asked for.
+     *
+     * @return the bitmap, or null to show the local icon instead
+     */
+    Bitmap get(int position, int weatherId) {
+        int kind = WeatherConditions.getKind(weatherId);
+        if (mSettings == null || mSettings.mUsingLocalGraphics || position >= mMaxArtRows
+                || kind == WeatherConditions.KIND_NONE || mFailed[kind]) {
+            return null;
+        }
+        Bitmap bitmap = mBitmaps[kind];
+        if (bitmap == null) {
+            bitmap = decode(kind);
+            if (bitmap == null) {
+                mFailed[kind] = true;
+                return null;
+            }
+            mBitmaps[kind] = bitmap;
+        }
+        return bitmap;
+    }
+
+    private Bitmap decode(int kind) {
+        String url = mSettings.getArtUrl(kind);
+        FutureTarget<Bitmap> target = WeatherArt.load(mContext, url, WeatherArt.SIZE_ICON)
+                .into(mIconSize, mIconSize);
+        // Kept until clear(), so Glide doesn't recycle the bitmap while rows still use it.
+        mTargets[kind] = target;
+        try {
+            return target.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.e(LOG_TAG, "Error retrieving widget art from " + url, e);
+        }
+        return null;
+    }
+}
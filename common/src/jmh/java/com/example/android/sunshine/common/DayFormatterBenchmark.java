@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Date normalization and the forecast list's date labels.  The legacy* benchmarks do what
+ * Utility did before DayFormatter: a new SimpleDateFormat per label.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DayFormatterBenchmark {
+
+    private static final long NOW = 1466971200000L;
+
+    private TimeZone mZone;
+    private DayFormatter mFormatter;
+    private long[] mDates;
+    private int mNext;
+
+    @Setup
+    public void setUp() {
+        mZone = TimeZone.getTimeZone("America/Los_Angeles");
+        mFormatter = new DayFormatter(Locale.US, mZone, NOW, "Today", "Tomorrow", "%1$s, %2$s");
+        mDates = new long[DayFormatter.PRECOMPUTED_DAYS];
+        for (int i = 0; i < mDates.length; i++) {
+            mDates[i] = DayFormatter.dayStart(mFormatter.getTodayJulianDay() + i, mZone);
+        }
+    }
+
+    private long nextDate() {
+        mNext = (mNext + 1) % mDates.length;
+        return mDates[mNext];
+    }
+
+    @Benchmark
+    public long normalizeDate() {
+        return DayFormatter.normalizeDate(nextDate() + 12345678L, mZone);
+    }
+
+    @Benchmark
+    public String friendlyDayString() {
+        return mFormatter.getFriendlyDayString(nextDate(), false);
+    }
+
+    @Benchmark
+    public String friendlyDayStringOutsideWindow() {
+        // Past the precomputed days: "Mon Jun 08" is built on every call.
+        return mFormatter.getFriendlyDayString(nextDate() + 20 * DayFormatter.DAY_IN_MILLIS,
+                false);
+    }
+
+    @Benchmark
+    public DayFormatter rebuildForNewDay() {
+        return new DayFormatter(Locale.US, mZone, NOW, "Today", "Tomorrow", "%1$s, %2$s");
+    }
+
+    @Benchmark
+    public String legacyDayName() {
+        SimpleDateFormat dayFormat = new SimpleDateFormat("EEEE", Locale.US);
+        dayFormat.setTimeZone(mZone);
+        return dayFormat.format(nextDate());
+    }
+
+    @Benchmark
+    public String legacyMonthDay() {
+        SimpleDateFormat monthDayFormat = new SimpleDateFormat("MMMM dd", Locale.US);
+        monthDayFormat.setTimeZone(mZone);
+        return monthDayFormat.format(nextDate());
+    }
+}
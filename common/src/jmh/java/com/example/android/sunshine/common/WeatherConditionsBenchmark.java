@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Condition code lookups, spread over every code the server can send.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WeatherConditionsBenchmark {
+
+    private static final int[] IDS = {
+            200, 211, 232, 300, 321, 500, 502, 511, 520, 531, 600, 622, 701, 741, 761, 781,
+            800, 801, 802, 804, 900, 962, 1000
+    };
+
+    private int mNext;
+
+    private int nextId() {
+        mNext = (mNext + 1) % IDS.length;
+        return IDS[mNext];
+    }
+
+    @Benchmark
+    public int kind() {
+        return WeatherConditions.getKind(nextId());
+    }
+
+    @Benchmark
+    public int label() {
+        return WeatherConditions.getLabel(nextId());
+    }
+
+    @Benchmark
+    public String imageUrl() {
+        return WeatherConditions.getImageUrl(nextId());
+    }
+}
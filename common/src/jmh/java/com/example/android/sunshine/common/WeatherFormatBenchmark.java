@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Temperature and wind formatting, which runs for every value shown in the list, the detail
+ * view, widgets and notifications.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WeatherFormatBenchmark {
+
+    private double mTemperature = -20;
+    private float mDegrees;
+
+    @Benchmark
+    public String formatTemperature() {
+        mTemperature = mTemperature > 40 ? -20 : mTemperature + 0.7;
+        return WeatherFormat.formatTemperature("%1.0f\u00B0", mTemperature, false);
+    }
+
+    @Benchmark
+    public String windDirection() {
+        mDegrees = mDegrees >= 360 ? 0 : mDegrees + 7.5f;
+        return WeatherFormat.getWindDirection(mDegrees);
+    }
+
+    @Benchmark
+    public String formatWind() {
+        mDegrees = mDegrees >= 360 ? 0 : mDegrees + 7.5f;
+        return WeatherFormat.formatWind("%1$1.0f km/h %2$s", 12.5f, mDegrees, true);
+    }
+}
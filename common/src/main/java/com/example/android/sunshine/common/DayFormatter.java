@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.common;
+
+import java.text.DateFormatSymbols;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Date arithmetic and the user-facing date labels of the forecast, without
+ * {@code android.text.format.Time} or {@link java.text.SimpleDateFormat}.
+ *
+ * Days are handled as Julian day numbers computed on primitives.  An instance is bound to one
+ * locale, time zone and "today": it caches the locale's day and month names and precomputes
+ * every label for the {@link #PRECOMPUTED_DAYS} days starting today, so formatting a forecast
+ * row is an array lookup.  Instances are immutable; build a new one once {@link #isValid}
+ * returns false.
+ */
+public class DayFormatter {
+
+    // Julian day number of 1970-01-01, as used by android.text.format.Time.
+    public static final int EPOCH_JULIAN_DAY = 2440588;
+    public static final long DAY_IN_MILLIS = 24L * 60 * 60 * 1000;
+
+    // The sync adapter stores 14 days of forecast.
+    public static final int PRECOMPUTED_DAYS = 14;
+
+    private static volatile TimeZone sDefaultZone;
+
+    private final Locale mLocale;
+    private final TimeZone mZone;
+    private final int mTodayJulianDay;
+    private final long mTodayStart;
+    private final long mTomorrowStart;
+
+    private final String mToday;
+    private final String mTomorrow;
+    private final String mFullFriendlyFormat;
+
+    // Indexed by Calendar.SUNDAY..SATURDAY and Calendar.JANUARY..DECEMBER.
+    private final String[] mWeekdays;
+    private final String[] mShortWeekdays;
+    private final String[] mMonths;
+    private final String[] mShortMonths;
+    // Two digit, localized day of the month, indexed 1..31.
+    private final String[] mDaysOfMonth;
+
+    // Labels for mTodayJulianDay + i.
+    private final String[] mDayNames = new String[PRECOMPUTED_DAYS];
+    private final String[] mFriendly = new String[PRECOMPUTED_DAYS];
+    private final String[] mLongFriendly = new String[PRECOMPUTED_DAYS];
+    private final String[] mFullFriendly = new String[PRECOMPUTED_DAYS];
+    private final String[] mMonthDays = new String[PRECOMPUTED_DAYS];
+
+    /**
+     * @param locale             locale of the day and month names
+     * @param zone               time zone that defines where days start
+     * @param now                current time, which defines "today"
+     * @param today              localized "Today"
+     * @param tomorrow           localized "Tomorrow"
+     * @param fullFriendlyFormat format with the day name and month-day as its two arguments
+     */
+    public DayFormatter(Locale locale, TimeZone zone, long now, String today, String tomorrow,
+                        String fullFriendlyFormat) {
+        mLocale = locale;
+        mZone = zone;
+        mTodayJulianDay = julianDay(now, zone);
+        mTodayStart = dayStart(mTodayJulianDay, zone);
+        mTomorrowStart = dayStart(mTodayJulianDay + 1, zone);
+        mToday = today;
+        mTomorrow = tomorrow;
+        mFullFriendlyFormat = fullFriendlyFormat;
+
+        DateFormatSymbols symbols = DateFormatSymbols.getInstance(locale);
+        mWeekdays = symbols.getWeekdays();
+        mShortWeekdays = symbols.getShortWeekdays();
+        mMonths = symbols.getMonths();
+        mShortMonths = symbols.getShortMonths();
+        mDaysOfMonth = new String[32];
+        for (int day = 1; day <= 31; day++) {
+            mDaysOfMonth[day] = String.format(locale, "%02d", day);
+        }
+
+        for (int i = 0; i < PRECOMPUTED_DAYS; i++) {
+            int julianDay = mTodayJulianDay + i;
+            mDayNames[i] = buildDayName(julianDay);
+            mMonthDays[i] = buildFormattedMonthDay(julianDay);
+            mFriendly[i] = buildFriendlyDayString(julianDay, false);
+            mLongFriendly[i] = buildFriendlyDayString(julianDay, true);
+            mFullFriendly[i] = String.format(mLocale, mFullFriendlyFormat, mDayNames[i],
+                    mMonthDays[i]);
+        }
+    }
+
+    /**
+     * @return false once the labels are out of date: the day has changed, or the locale or
+     *         time zone differ from the ones this instance was built for.
+     */
+    public boolean isValid(long now, Locale locale, TimeZone zone) {
+        return now >= mTodayStart && now < mTomorrowStart && locale == mLocale && zone == mZone;
+    }
+
+    public int getTodayJulianDay() {
+        return mTodayJulianDay;
+    }
+
+    /**
+     * Returns the default time zone, cached because {@link TimeZone#getDefault()} allocates a
+     * copy on every call.  Call {@link #onDefaultsChanged()} when the zone changes.
+     */
+    public static TimeZone getDefaultZone() {
+        TimeZone zone = sDefaultZone;
+        if (zone == null) {
+            zone = TimeZone.getDefault();
+            sDefaultZone = zone;
+        }
+        return zone;
+    }
+
+    /**
+     * Forgets the cached default time zone.
+     */
+    public static void onDefaultsChanged() {
+        sDefaultZone = null;
+    }
+
+    /**
+     * @return the Julian day that the instant falls on in the given zone.
+     */
+    public static int julianDay(long millis, TimeZone zone) {
+        long local = millis + zone.getOffset(millis);
+        long days = local / DAY_IN_MILLIS;
+        if (local < 0 && days * DAY_IN_MILLIS != local) {
+            days--;
+        }
+        return (int) days + EPOCH_JULIAN_DAY;
+    }
+
+    /**
+     * @return the instant at which the Julian day starts in the given zone.
+     */
+    public static long dayStart(int julianDay, TimeZone zone) {
+        long midnightUtc = (julianDay - EPOCH_JULIAN_DAY) * DAY_IN_MILLIS;
+        // The offset at local midnight is usually the offset at UTC midnight; correct it once
+        // for days on which a transition happens between the two.
+        long start = midnightUtc - zone.getOffset(midnightUtc);
+        start = midnightUtc - zone.getOffset(start);
+        if (julianDay(start, zone) != julianDay) {
+            // Midnight was skipped by a daylight saving transition, so start is still in the
+            // previous day and carries its offset: the day starts at the transition.
+            start = midnightUtc - zone.getOffset(start);
+        }
+        return start;
+    }
+
+    /**
+     * @return the start of the local day containing the instant.
+     */
+    public static long normalizeDate(long millis, TimeZone zone) {
+        return dayStart(julianDay(millis, zone), zone);
+    }
+
+    private int precomputedIndex(int julianDay) {
+        int index = julianDay - mTodayJulianDay;
+        return index >= 0 && index < PRECOMPUTED_DAYS ? index : -1;
+    }
+
+    /**
+     * The day string for the forecast list:
+     * For today: "Today, June 8" if displayLongToday, otherwise "Today"
+     * For tomorrow:  "Tomorrow"
+     * For the next 5 days: "Wednesday" (just the day name)
+     * For all days after that: "Mon Jun 08"
+     */
+    public String getFriendlyDayString(long dateInMillis, boolean displayLongToday) {
+        int julianDay = julianDay(dateInMillis, mZone);
+        int index = precomputedIndex(julianDay);
+        if (index != -1) {
+            return displayLongToday ? mLongFriendly[index] : mFriendly[index];
+        }
+        return buildFriendlyDayString(julianDay, displayLongToday);
+    }
+
+    /**
+     * @return the day name and month-day, e.g. "Wednesday, June 24"
+     */
+    public String getFullFriendlyDayString(long dateInMillis) {
+        int julianDay = julianDay(dateInMillis, mZone);
+        int index = precomputedIndex(julianDay);
+        if (index != -1) {
+            return mFullFriendly[index];
+        }
+        return String.format(mLocale, mFullFriendlyFormat, buildDayName(julianDay),
+                buildFormattedMonthDay(julianDay));
+    }
+
+    /**
+     * @return "Today", "Tomorrow" or the day of the week, e.g. "Wednesday"
+     */
+    public String getDayName(long dateInMillis) {
+        int julianDay = julianDay(dateInMillis, mZone);
+        int index = precomputedIndex(julianDay);
+        return index != -1 ? mDayNames[index] : buildDayName(julianDay);
+    }
+
+    /**
+     * @return the month and day, e.g. "June 24"
+     */
+    public String getFormattedMonthDay(long dateInMillis) {
+        int julianDay = julianDay(dateInMillis, mZone);
+        int index = precomputedIndex(julianDay);
+        return index != -1 ? mMonthDays[index] : buildFormattedMonthDay(julianDay);
+    }
+
+    private String buildFriendlyDayString(int julianDay, boolean displayLongToday) {
+        if (displayLongToday && julianDay == mTodayJulianDay) {
+            return String.format(mLocale, mFullFriendlyFormat, mToday,
+                    buildFormattedMonthDay(julianDay));
+        } else if (julianDay < mTodayJulianDay + 7) {
+            return buildDayName(julianDay);
+        } else {
+            int date = civilDate(julianDay);
+            return mShortWeekdays[dayOfWeek(julianDay)] + ' '
+                    + mShortMonths[(date >> 5) & 0xF] + ' ' + mDaysOfMonth[date & 0x1F];
+        }
+    }
+
+    private String buildDayName(int julianDay) {
+        if (julianDay == mTodayJulianDay) {
+            return mToday;
+        } else if (julianDay == mTodayJulianDay + 1) {
+            return mTomorrow;
+        }
+        return mWeekdays[dayOfWeek(julianDay)];
+    }
+
+    private String buildFormattedMonthDay(int julianDay) {
+        int date = civilDate(julianDay);
+        return mMonths[(date >> 5) & 0xF] + ' ' + mDaysOfMonth[date & 0x1F];
+    }
+
+    /**
+     * @return Calendar.SUNDAY..Calendar.SATURDAY
+     */
+    static int dayOfWeek(int julianDay) {
+        // Julian day 0 was a Monday.
+        int mondayBased = (julianDay % 7 + 7) % 7;
+        return (mondayBased + 1) % 7 + Calendar.SUNDAY;
+    }
+
+    /**
+     * Converts a Julian day to the proleptic Gregorian calendar.
+     *
+     * @return (year << 9) | (month << 5) | dayOfMonth, with month 0-based as in
+     *         {@link Calendar#JANUARY}
+     */
+    static int civilDate(int julianDay) {
+        // Richards' algorithm for converting Julian day numbers to Gregorian dates.
+        int f = julianDay + 1401 + (((4 * julianDay + 274277) / 146097) * 3) / 4 - 38;
+        int e = 4 * f + 3;
+        int g = (e % 1461) / 4;
+        int h = 5 * g + 2;
+        int day = (h % 153) / 5 + 1;
+        int month = ((h / 153 + 2) % 12) + 1;
+        int year = e / 1461 - 4716 + (12 + 2 - month) / 12;
+        return (year << 9) | ((month - 1) << 5) | day;
+    }
+}
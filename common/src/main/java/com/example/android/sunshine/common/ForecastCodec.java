@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.common;
+
+/**
+ * Packs a {@link WearForecastDelta} into the bytes of the forecast data item.
+ *
+ * Big-endian, with a fixed 16 byte header and 7 bytes per day carried:
+ * <pre>
+ *   byte  format (FORMAT)
+ *   byte  flags (FLAG_METRIC)
+ *   int   base version
+ *   int   version
+ *   int   first julian day
+ *   byte  days in the forecast
+ *   byte  days carried, then for each of them:
+ *     byte  offset from the first day
+ *     short condition id
+ *     short high, tenths of a degree Celsius
+ *     short low, tenths of a degree Celsius
+ * </pre>
+ */
+public class ForecastCodec {
+
+    // Bump whenever the layout changes; older readers then ask for the forecast again.
+    static final int FORMAT = 1;
+
+    private static final int FLAG_METRIC = 1;
+
+    static final int HEADER_SIZE = 16;
+    static final int DAY_SIZE = 7;
+
+    private ForecastCodec() {
+    }
+
+    public static byte[] encode(WearForecastDelta delta) {
+        int carried = delta.mOffsets.length;
+        if (delta.mDayCount > WearForecast.MAX_DAYS) {
+            throw new IllegalArgumentException("Too many days: " + delta.mDayCount);
+        }
+        byte[] bytes = new byte[HEADER_SIZE + carried * DAY_SIZE];
+        int position = 0;
+        bytes[position++] = FORMAT;
+        bytes[position++] = (byte) (delta.mMetric ? FLAG_METRIC : 0);
+        position = putInt(bytes, position, delta.mBaseVersion);
+        position = putInt(bytes, position, delta.mVersion);
+        position = putInt(bytes, position, delta.mFirstDay);
+        bytes[position++] = (byte) delta.mDayCount;
+        bytes[position++] = (byte) carried;
+        for (int i = 0; i < carried; i++) {
+            if (delta.mWeatherIds[i] < 0 || delta.mWeatherIds[i] > 0xffff) {
+                throw new IllegalArgumentException("Bad condition id " + delta.mWeatherIds[i]);
+            }
+            bytes[position++] = (byte) delta.mOffsets[i];
+            position = putShort(bytes, position, delta.mWeatherIds[i]);
+            position = putShort(bytes, position, delta.mHighs[i]);
+            position = putShort(bytes, position, delta.mLows[i]);
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the delta, or null if the bytes don't hold one in this format
+     */
+    public static WearForecastDelta decode(byte[] bytes) {
+        if (bytes == null || bytes.length < HEADER_SIZE || bytes[0] != FORMAT) {
+            return null;
+        }
+        int position = 1;
+        boolean metric = (bytes[position++] & FLAG_METRIC) != 0;
+        int baseVersion = getInt(bytes, position);
+        position += 4;
+        int version = getInt(bytes, position);
+        position += 4;
+        int firstDay = getInt(bytes, position);
+        position += 4;
+        int dayCount = bytes[position++] & 0xff;
+        int carried = bytes[position++] & 0xff;
+        if (dayCount > WearForecast.MAX_DAYS || carried > dayCount
+                || bytes.length != HEADER_SIZE + carried * DAY_SIZE) {
+            return null;
+        }
+
+        int[] offsets = new int[carried];
+        int[] weatherIds = new int[carried];
+        short[] highs = new short[carried];
+        short[] lows = new short[carried];
+        for (int i = 0; i < carried; i++) {
+            offsets[i] = bytes[position++] & 0xff;
+            // Offsets must ascend within the forecast for applyTo to find them.
+            if (offsets[i] >= dayCount || (i > 0 && offsets[i] <= offsets[i - 1])) {
+                return null;
+            }
+            weatherIds[i] = getShort(bytes, position) & 0xffff;
+            highs[i] = getShort(bytes, position + 2);
+            lows[i] = getShort(bytes, position + 4);
+            position += 6;
+        }
+        return new WearForecastDelta(baseVersion, version, metric, firstDay, dayCount, offsets,
+                weatherIds, highs, lows);
+    }
+
+    private static int putInt(byte[] bytes, int position, int value) {
+        bytes[position] = (byte) (value >>> 24);
+        bytes[position + 1] = (byte) (value >>> 16);
+        bytes[position + 2] = (byte) (value >>> 8);
+        bytes[position + 3] = (byte) value;
+        return position + 4;
+    }
+
+    private static int putShort(byte[] bytes, int position, int value) {
+        bytes[position] = (byte) (value >>> 8);
+        bytes[position + 1] = (byte) value;
+        return position + 2;
+    }
+
+    private static int getInt(byte[] bytes, int position) {
+        return (bytes[position] & 0xff) << 24 | (bytes[position + 1] & 0xff) << 16
+                | (bytes[position + 2] & 0xff) << 8 | (bytes[position + 3] & 0xff);
+    }
+
+    private static short getShort(byte[] bytes, int position) {
+        return (short) ((bytes[position] & 0xff) << 8 | (bytes[position + 1] & 0xff));
+    }
+}
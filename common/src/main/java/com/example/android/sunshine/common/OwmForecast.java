@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.common;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.net.HttpURLConnection;
+
+/**
+ * A daily forecast response from OpenWeatherMap, parsed.
+ *
+ * Days are in the order the server sent them, which starts with the current day in the
+ * location's time zone.  Temperatures are in Celsius and wind speeds in km/h, as requested by
+ * the sync adapter.
+ */
+public class OwmForecast {
+
+    public static final int STATUS_OK = 0;
+    public static final int STATUS_NOT_FOUND = 1;
+    public static final int STATUS_SERVER_ERROR = 2;
+
+    // These are the names of the JSON objects that need to be extracted.
+
+    // Location information
+    private static final String OWM_CITY = "city";
+    private static final String OWM_CITY_NAME = "name";
+    private static final String OWM_COORD = "coord";
+
+    // Location coordinate
+    private static final String OWM_LATITUDE = "lat";
+    private static final String OWM_LONGITUDE = "lon";
+
+    // Weather information.  Each day's forecast info is an element of the "list" array.
+    private static final String OWM_LIST = "list";
+
+    private static final String OWM_PRESSURE = "pressure";
+    private static final String OWM_HUMIDITY = "humidity";
+    private static final String OWM_WINDSPEED = "speed";
+    private static final String OWM_WIND_DIRECTION = "deg";
+
+    // All temperatures are children of the "temp" object.
+    private static final String OWM_TEMPERATURE = "temp";
+    private static final String OWM_MAX = "max";
+    private static final String OWM_MIN = "min";
+
+    private static final String OWM_WEATHER = "weather";
+    private static final String OWM_DESCRIPTION = "main";
+    private static final String OWM_WEATHER_ID = "id";
+
+    private static final String OWM_MESSAGE_CODE = "cod";
+
+    private static final Day[] NO_DAYS = new Day[0];
+
+    public final int mStatus;
+    public final String mCityName;
+    public final double mCityLatitude;
+    public final double mCityLongitude;
+    public final Day[] mDays;
+
+    private OwmForecast(int status, String cityName, double cityLatitude, double cityLongitude,
+                        Day[] days) {
+        mStatus = status;
+        mCityName = cityName;
+        mCityLatitude = cityLatitude;
+        mCityLongitude = cityLongitude;
+        mDays = days;
+    }
+
+    /**
+     * One day of the forecast.
+     */
+    public static class Day {
+        public final double mPressure;
+        public final int mHumidity;
+        public final double mWindSpeed;
+        public final double mWindDirection;
+        public final double mHigh;
+        public final double mLow;
+        public final String mDescription;
+        public final int mWeatherId;
+
+        public Day(double pressure, int humidity, double windSpeed, double windDirection,
+                   double high, double low, String description, int weatherId) {
+            mPressure = pressure;
+            mHumidity = humidity;
+            mWindSpeed = windSpeed;
+            mWindDirection = windDirection;
+            mHigh = high;
+            mLow = low;
+            mDescription = description;
+            mWeatherId = weatherId;
+        }
+    }
+
+    /**
+     * Parses the response body of a daily forecast request.
+     *
+     * @return the forecast; if the server reported an error, only {@link #mStatus} is set
+     * @throws JSONException if the response is not a forecast
+     */
+    public static OwmForecast parse(String forecastJsonStr) throws JSONException {
+        JSONObject forecastJson = new JSONObject(forecastJsonStr);
+
+        // do we have an error?
+        if (forecastJson.has(OWM_MESSAGE_CODE)) {
+            int errorCode = forecastJson.getInt(OWM_MESSAGE_CODE);
+
+            switch (errorCode) {
+                case HttpURLConnection.HTTP_OK:
+                    break;
+                case HttpURLConnection.HTTP_NOT_FOUND:
+                    return new OwmForecast(STATUS_NOT_FOUND, null, 0, 0, NO_DAYS);
+                default:
+                    return new OwmForecast(STATUS_SERVER_ERROR, null, 0, 0, NO_DAYS);
+            }
+        }
+
+        JSONArray weatherArray = forecastJson.getJSONArray(OWM_LIST);
+
+        JSONObject cityJson = forecastJson.getJSONObject(OWM_CITY);
+        String cityName = cityJson.getString(OWM_CITY_NAME);
+
+        JSONObject cityCoord = cityJson.getJSONObject(OWM_COORD);
+        double cityLatitude = cityCoord.getDouble(OWM_LATITUDE);
+        double cityLongitude = cityCoord.getDouble(OWM_LONGITUDE);
+
+        Day[] days = new Day[weatherArray.length()];
+        for (int i = 0; i < days.length; i++) {
+            // Get the JSON object representing the day
+            JSONObject dayForecast = weatherArray.getJSONObject(i);
+
+            // Description is in a child array called "weather", which is 1 element long.
+            // That element also contains a weather code.
+            JSONObject weatherObject =
+                    dayForecast.getJSONArray(OWM_WEATHER).getJSONObject(0);
+
+            // Temperatures are in a child object called "temp".  Try not to name variables
+            // "temp" when working with temperature.  It confuses everybody.
+            JSONObject temperatureObject = dayForecast.getJSONObject(OWM_TEMPERATURE);
+
+            days[i] = new Day(
+                    dayForecast.getDouble(OWM_PRESSURE),
+                    dayForecast.getInt(OWM_HUMIDITY),
+                    dayForecast.getDouble(OWM_WINDSPEED),
+                    dayForecast.getDouble(OWM_WIND_DIRECTION),
+                    temperatureObject.getDouble(OWM_MAX),
+                    temperatureObject.getDouble(OWM_MIN),
+                    weatherObject.getString(OWM_DESCRIPTION),
+                    weatherObject.getInt(OWM_WEATHER_ID));
+        }
+        return new OwmForecast(STATUS_OK, cityName, cityLatitude, cityLongitude, days);
+    }
+}
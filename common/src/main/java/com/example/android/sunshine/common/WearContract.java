@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.common;
+
+/**
+ * Paths and keys of the Data Layer items and messages the phone and the watch exchange.
+ *
+ * The phone puts a {@link WearForecastDelta} from the last forecast the watch acknowledged to
+ * the forecast item.  Nothing in it is random, so putting an unchanged forecast is free.  The
+ * watch applies the delta if it holds the base version and acknowledges the new version, or
+ * asks for every day if it doesn't.
+ */
+public class WearContract {
+
+    // The forecast delta, written only by the phone
+    public static final String PATH_FORECAST = "/weather/weather-info";
+
+    // Messages from the watch; the payload is the version the watch holds (see encodeVersion).
+    // Asks the phone to put every day of its latest forecast.
+    public static final String PATH_REQUEST_FORECAST = "/weather/request-forecast";
+    // Tells the phone the watch applied a forecast, so later deltas can start from it.
+    public static final String PATH_ACK_FORECAST = "/weather/ack-forecast";
+
+    // byte[]: the delta, packed by ForecastCodec
+    public static final String KEY_FORECAST = "forecast";
+
+    public static byte[] encodeVersion(int version) {
+        return new byte[]{
+                (byte) (version >>> 24), (byte) (version >>> 16),
+                (byte) (version >>> 8), (byte) version};
+    }
+
+    /**
+     * @return the version in a message payload, or 0 if there is none
+     */
+    public static int decodeVersion(byte[] payload) {
+        if (payload == null || payload.length != 4) {
+            return 0;
+        }
+        return (payload[0] & 0xff) << 24 | (payload[1] & 0xff) << 16
+                | (payload[2] & 0xff) << 8 | (payload[3] & 0xff);
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.common;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The forecast the watch shows: one condition and a high and low for each of a run of days.
+ *
+ * Temperatures are Celsius in tenths of a degree, and the watch formats them in the unit
+ * the phone's settings ask for, so nothing locale or unit dependent crosses the link.  Every
+ * change the phone makes gets a new version, so both sides can tell which forecast the other
+ * one holds and send only the days that differ (see {@link WearForecastDelta}).
+ */
+public class WearForecast {
+
+    // Versions count up from here; 0 stands for "no forecast".
+    public static final int FIRST_VERSION = 1;
+
+    // More than the phone ever sends; anything larger is corrupt.
+    public static final int MAX_DAYS = 64;
+
+    public final int mVersion;
+    // Whether to show Celsius rather than Fahrenheit
+    public final boolean mMetric;
+    // Julian day (see DayFormatter.julianDay) of the first entry
+    public final int mFirstDay;
+    public final int[] mWeatherIds;
+    // Tenths of a degree Celsius
+    public final short[] mHighs;
+    public final short[] mLows;
+
+    public WearForecast(int version, boolean metric, int firstDay, int[] weatherIds,
+                        short[] highs, short[] lows) {
+        if (highs.length != weatherIds.length || lows.length != weatherIds.length) {
+            throw new IllegalArgumentException("Days don't line up");
+        }
+        mVersion = version;
+        mMetric = metric;
+        mFirstDay = firstDay;
+        mWeatherIds = weatherIds;
+        mHighs = highs;
+        mLows = lows;
+    }
+
+    /**
+     * @return {@code celsius} in tenths of a degree, clamped to what a short holds
+     */
+    public static short toTenths(double celsius) {
+        long tenths = Math.round(celsius * 10);
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, tenths));
+    }
+
+    public static double fromTenths(int tenths) {
+        return tenths / 10.0;
+    }
+
+    public int getDayCount() {
+        return mWeatherIds.length;
+    }
+
+    /**
+     * @return the index of a day's entry, or -1 if the forecast doesn't cover it
+     */
+    public int getDayIndex(int julianDay) {
+        int index = julianDay - mFirstDay;
+        return index >= 0 && index < mWeatherIds.length ? index : -1;
+    }
+
+    public WearForecast withVersion(int version) {
+        return new WearForecast(version, mMetric, mFirstDay, mWeatherIds, mHighs, mLows);
+    }
+
+    /**
+     * @return whether the entry at {@code index} equals the one at {@code otherIndex} of
+     * {@code other}
+     */
+    boolean sameDay(int index, WearForecast other, int otherIndex) {
+        return mWeatherIds[index] == other.mWeatherIds[otherIndex]
+                && mHighs[index] == other.mHighs[otherIndex]
+                && mLows[index] == other.mLows[otherIndex];
+    }
+
+    /**
+     * @return whether both cover the same days with the same weather and units, whatever their
+     * versions
+     */
+    public boolean sameContent(WearForecast other) {
+        if (mMetric != other.mMetric || mFirstDay != other.mFirstDay
+                || getDayCount() != other.getDayCount()) {
+            return false;
+        }
+        for (int i = 0; i < getDayCount(); i++) {
+            if (!sameDay(i, other, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        int count = Math.min(getDayCount(), MAX_DAYS);
+        out.writeInt(mVersion);
+        out.writeBoolean(mMetric);
+        out.writeInt(mFirstDay);
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeInt(mWeatherIds[i]);
+            out.writeShort(mHighs[i]);
+            out.writeShort(mLows[i]);
+        }
+    }
+
+    /**
+     * Reads a forecast written by {@link #writeTo}.
+     *
+     * @throws IOException if the stream ends early or doesn't hold a forecast
+     */
+    public static WearForecast readFrom(DataInputStream in) throws IOException {
+        int version = in.readInt();
+        boolean metric = in.readBoolean();
+        int firstDay = in.readInt();
+        int count = in.readInt();
+        if (count < 0 || count > MAX_DAYS) {
+            throw new IOException("Bad day count " + count);
+        }
+        int[] weatherIds = new int[count];
+        short[] highs = new short[count];
+        short[] lows = new short[count];
+        for (int i = 0; i < count; i++) {
+            weatherIds[i] = in.readInt();
+            highs[i] = in.readShort();
+            lows[i] = in.readShort();
+        }
+        return new WearForecast(version, metric, firstDay, weatherIds, highs, lows);
+    }
+}
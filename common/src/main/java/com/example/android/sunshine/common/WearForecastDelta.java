@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.common;
+
+/**
+ * What the watch needs to turn the forecast it has into the phone's latest one: the days that
+ * are new or changed since a base version.  A delta without a base carries every day.
+ *
+ * A delta only applies to its exact base version.  Days it leaves out are the same in the base
+ * and the target, but may differ in a forecast in between.
+ */
+public class WearForecastDelta {
+
+    public static final int NO_BASE = 0;
+
+    public final int mBaseVersion;
+    public final int mVersion;
+    // Units apply to the whole forecast, so they are always carried.
+    public final boolean mMetric;
+    public final int mFirstDay;
+    public final int mDayCount;
+    // Offsets from mFirstDay of the days carried, in ascending order
+    public final int[] mOffsets;
+    public final int[] mWeatherIds;
+    public final short[] mHighs;
+    public final short[] mLows;
+
+    public WearForecastDelta(int baseVersion, int version, boolean metric, int firstDay,
+                             int dayCount, int[] offsets, int[] weatherIds, short[] highs,
+                             short[] lows) {
+        if (weatherIds.length != offsets.length || highs.length != offsets.length
+                || lows.length != offsets.length) {
+            throw new IllegalArgumentException("Days don't line up");
+        }
+        mBaseVersion = baseVersion;
+        mVersion = version;
+        mMetric = metric;
+        mFirstDay = firstDay;
+        mDayCount = dayCount;
+        mOffsets = offsets;
+        mWeatherIds = weatherIds;
+        mHighs = highs;
+        mLows = lows;
+    }
+
+    public boolean isFull() {
+        return mBaseVersion == NO_BASE;
+    }
+
+    /**
+     * @param base the forecast the receiver holds, or null to carry every day
+     */
+    public static WearForecastDelta between(WearForecast base, WearForecast target) {
+        int count = target.getDayCount();
+        int[] offsets = new int[count];
+        int changed = 0;
+        for (int i = 0; i < count; i++) {
+            int baseIndex = base == null ? -1 : base.getDayIndex(target.mFirstDay + i);
+            if (baseIndex < 0 || !target.sameDay(i, base, baseIndex)) {
+                offsets[changed++] = i;
+            }
+        }
+
+        int[] weatherIds = new int[changed];
+        short[] highs = new short[changed];
+        short[] lows = new short[changed];
+        for (int i = 0; i < changed; i++) {
+            int index = offsets[i];
+            weatherIds[i] = target.mWeatherIds[index];
+            highs[i] = target.mHighs[index];
+            lows[i] = target.mLows[index];
+        }
+        int[] carried = new int[changed];
+        System.arraycopy(offsets, 0, carried, 0, changed);
+        return new WearForecastDelta(base == null ? NO_BASE : base.mVersion, target.mVersion,
+                target.mMetric, target.mFirstDay, count, carried, weatherIds, highs, lows);
+    }
+
+    /**
+     * @param base the forecast the receiver holds, or null if it has none
+     * @return the target forecast, or null if this delta doesn't apply to {@code base}
+     */
+    public WearForecast applyTo(WearForecast base) {
+        if (!isFull() && (base == null || base.mVersion != mBaseVersion)) {
+            return null;
+        }
+        int[] weatherIds = new int[mDayCount];
+        short[] highs = new short[mDayCount];
+        short[] lows = new short[mDayCount];
+        int carried = 0;
+        for (int i = 0; i < mDayCount; i++) {
+            if (carried < mOffsets.length && mOffsets[carried] == i) {
+                weatherIds[i] = mWeatherIds[carried];
+                highs[i] = mHighs[carried];
+                lows[i] = mLows[carried];
+                carried++;
+                continue;
+            }
+            int baseIndex = base == null ? -1 : base.getDayIndex(mFirstDay + i);
+            if (baseIndex < 0) {
+                // Malformed: the day is in neither.
+                return null;
+            }
+            weatherIds[i] = base.mWeatherIds[baseIndex];
+            highs[i] = base.mHighs[baseIndex];
+            lows[i] = base.mLows[baseIndex];
+        }
+        return new WearForecast(mVersion, mMetric, mFirstDay, weatherIds, highs, lows);
+    }
+}
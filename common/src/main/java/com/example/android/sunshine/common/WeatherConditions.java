@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.common;
+
+/**
+ * Table-driven mapping of OpenWeatherMap condition codes, shared by the phone and wear apps.
+ *
+ * Every code in [{@link #FIRST_CONDITION_ID}, {@link #LAST_CONDITION_ID}] has one packed entry
+ * in a dense array, so a lookup is a bounds check and an array read.  Codes map to:
+ * <ul>
+ * <li>a kind ({@code KIND_*}), which selects the icon, the art and the art pack file name.
+ *     Each app keeps its own resource array indexed by kind.</li>
+ * <li>a label, an index into {@link #getLabelName(int)}, which the phone uses to pick the
+ *     condition_* string.</li>
+ * <li>a stock photo URL.</li>
+ * </ul>
+ *
+ * Based on weather code data found at:
+ * http://bugs.openweathermap.org/projects/api/wiki/Weather_Condition_Codes
+ */
+public class WeatherConditions {
+
+    public static final int KIND_NONE = -1;
+    public static final int KIND_STORM = 0;
+    public static final int KIND_LIGHT_RAIN = 1;
+    public static final int KIND_RAIN = 2;
+    public static final int KIND_SNOW = 3;
+    public static final int KIND_FOG = 4;
+    public static final int KIND_CLEAR = 5;
+    public static final int KIND_LIGHT_CLOUDS = 6;
+    public static final int KIND_CLOUDS = 7;
+    public static final int KIND_COUNT = 8;
+
+    public static final int LABEL_NONE = -1;
+
+    public static final int FIRST_CONDITION_ID = 200;
+    public static final int LAST_CONDITION_ID = 962;
+
+    // Names used by the art packs, e.g. art_light_rain.png.
+    private static final String[] KIND_NAMES = {
+            "storm", "light_rain", "rain", "snow", "fog", "clear", "light_clouds", "clouds"
+    };
+
+    // Condition labels: the 2xx and 3xx groups share one label each, every other code that has
+    // a description has its own.
+    private static final String[] LABEL_NAMES = {
+            "2xx", "3xx",
+            "500", "501", "502", "503", "504", "511", "520", "531",
+            "600", "601", "602", "611", "612", "615", "616", "620", "621", "622",
+            "701", "711", "721", "731", "741", "751", "761", "762", "771", "781",
+            "800", "801", "802", "803", "804",
+            "900", "901", "902", "903", "904", "905", "906",
+            "951", "952", "953", "954", "955", "956", "957", "958", "959", "960", "961", "962"
+    };
+
+    private static final int IMAGE_DUST = KIND_COUNT;
+    private static final String[] IMAGE_URLS = {
+            "http://upload.wikimedia.org/wikipedia/commons/2/28/Thunderstorm_in_Annemasse,_France.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/a/a0/Rain_on_leaf_504605006.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/6/6c/Rain-on-Thassos.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/b/b8/Fresh_snow.JPG",
+            "http://upload.wikimedia.org/wikipedia/commons/e/e6/Westminster_fog_-_London_-_UK.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/7/7e/A_few_trees_and_the_sun_(6009964513).jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/e/e7/Cloudy_Blue_Sky_(5031259890).jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/5/54/Cloudy_hills_in_Elis,_Greece_2.jpg",
+            // IMAGE_DUST
+            "http://upload.wikimedia.org/wikipedia/commons/d/dc/Raised_dust_ahead_of_a_severe_thunderstorm_1.jpg"
+    };
+
+    // Entry layout, each field stored plus one so that 0 means "none":
+    // bits 0-3 kind, bits 4-7 image, bits 8-15 label.
+    private static final short[] TABLE = new short[LAST_CONDITION_ID - FIRST_CONDITION_ID + 1];
+
+    static {
+        setKind(200, 232, KIND_STORM);
+        setKind(300, 321, KIND_LIGHT_RAIN);
+        setKind(500, 504, KIND_RAIN);
+        setKind(511, 511, KIND_SNOW);
+        setKind(520, 531, KIND_RAIN);
+        setKind(600, 622, KIND_SNOW);
+        setKind(701, 761, KIND_FOG);
+        setKind(781, 781, KIND_STORM);
+        setKind(800, 800, KIND_CLEAR);
+        setKind(801, 801, KIND_LIGHT_CLOUDS);
+        setKind(802, 804, KIND_CLOUDS);
+        // Tornadoes share the storm icon but have a photo of their own.
+        setImage(781, IMAGE_DUST);
+
+        setLabel(200, 232, 0);
+        setLabel(300, 321, 1);
+        for (int label = 2; label < LABEL_NAMES.length; label++) {
+            int weatherId = Integer.parseInt(LABEL_NAMES[label]);
+            setLabel(weatherId, weatherId, label);
+        }
+    }
+
+    private static void setKind(int firstId, int lastId, int kind) {
+        for (int id = firstId; id <= lastId; id++) {
+            int i = id - FIRST_CONDITION_ID;
+            TABLE[i] = (short) ((TABLE[i] & ~0xFF) | ((kind + 1) << 4) | (kind + 1));
+        }
+    }
+
+    private static void setImage(int weatherId, int image) {
+        int i = weatherId - FIRST_CONDITION_ID;
+        TABLE[i] = (short) ((TABLE[i] & ~0xF0) | ((image + 1) << 4));
+    }
+
+    private static void setLabel(int firstId, int lastId, int label) {
+        for (int id = firstId; id <= lastId; id++) {
+            int i = id - FIRST_CONDITION_ID;
+            TABLE[i] = (short) ((TABLE[i] & 0xFF) | ((label + 1) << 8));
+        }
+    }
+
+    private static int entry(int weatherId) {
+        int i = weatherId - FIRST_CONDITION_ID;
+        return i >= 0 && i < TABLE.length ? TABLE[i] : 0;
+    }
+
+    /**
+     * @return the KIND_* constant for the condition, or {@link #KIND_NONE}
+     */
+    public static int getKind(int weatherId) {
+        return (entry(weatherId) & 0xF) - 1;
+    }
+
+    /**
+     * @return the art pack name of a kind, e.g. "light_rain"
+     */
+    public static String getKindName(int kind) {
+        return KIND_NAMES[kind];
+    }
+
+    /**
+     * @return the label index for the condition, or {@link #LABEL_NONE}
+     */
+    public static int getLabel(int weatherId) {
+        return ((entry(weatherId) >> 8) & 0xFF) - 1;
+    }
+
+    public static int getLabelCount() {
+        return LABEL_NAMES.length;
+    }
+
+    /**
+     * @return the suffix of the condition_* string of a label, e.g. "2xx" or "500"
+     */
+    public static String getLabelName(int label) {
+        return LABEL_NAMES[label];
+    }
+
+    /**
+     * @return a URL of a photo for the condition, or null if there is none
+     */
+    public static String getImageUrl(int weatherId) {
+        int image = ((entry(weatherId) >> 4) & 0xF) - 1;
+        return image == -1 ? null : IMAGE_URLS[image];
+    }
+}
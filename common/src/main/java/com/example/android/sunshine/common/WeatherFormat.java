@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.common;
+
+/**
+ * Unit conversion and formatting of forecast values.  Data is stored in Celsius and km/h; the
+ * format strings come from the apps' resources.
+ */
+public class WeatherFormat {
+
+    private static final String[] DIRECTIONS = {"N", "NE", "E", "SE", "S", "SW", "W", "NW"};
+
+    public static double toDisplayTemperature(double celsius, boolean metric) {
+        return metric ? celsius : (celsius * 1.8) + 32;
+    }
+
+    public static float toDisplayWindSpeed(float kmh, boolean metric) {
+        return metric ? kmh : .621371192237334f * kmh;
+    }
+
+    /**
+     * @param format format with the temperature as its only argument, e.g. "%1.0f°"
+     */
+    public static String formatTemperature(String format, double celsius, boolean metric) {
+        // For presentation, assume the user doesn't care about tenths of a degree.
+        return String.format(format, toDisplayTemperature(celsius, metric));
+    }
+
+    /**
+     * @return the compass direction of the wind, e.g. "NW", or "Unknown" for NaN
+     */
+    public static String getWindDirection(float degrees) {
+        if (degrees >= 337.5 || degrees < 22.5) {
+            return "N";
+        } else if (degrees >= 22.5 && degrees < 337.5) {
+            return DIRECTIONS[(int) ((degrees + 22.5) / 45)];
+        }
+        return "Unknown";
+    }
+
+    /**
+     * @param format format with the speed and the direction as its arguments
+     */
+    public static String formatWind(String format, float kmh, float degrees, boolean metric) {
+        return String.format(format, toDisplayWindSpeed(kmh, metric), getWindDirection(degrees));
+    }
+}
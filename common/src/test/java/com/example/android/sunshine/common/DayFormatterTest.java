@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.common;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DayFormatterTest {
+
+    private static final String[] ZONES = {
+            "UTC", "America/Los_Angeles", "Europe/Berlin", "Asia/Kolkata", "America/Sao_Paulo",
+            "Australia/Lord_Howe", "Pacific/Apia"
+    };
+
+    private static final int SAMPLES_PER_ZONE = 20000;
+
+    private static DayFormatter newFormatter(Locale locale, TimeZone zone, long now) {
+        return new DayFormatter(locale, zone, now, "Today", "Tomorrow", "%1$s, %2$s");
+    }
+
+    @Test
+    public void normalizeDateMatchesCalendar() {
+        Random random = new Random(1);
+        for (String id : ZONES) {
+            TimeZone zone = TimeZone.getTimeZone(id);
+            Calendar calendar = Calendar.getInstance(zone);
+            for (int i = 0; i < SAMPLES_PER_ZONE; i++) {
+                // Anywhere between 2000 and 2030.
+                long millis = 946684800000L + (long) (random.nextDouble() * 30 * 365 * 86400000L);
+                calendar.setTimeInMillis(millis);
+                calendar.set(Calendar.HOUR_OF_DAY, 0);
+                calendar.set(Calendar.MINUTE, 0);
+                calendar.set(Calendar.SECOND, 0);
+                calendar.set(Calendar.MILLISECOND, 0);
+                assertEquals(id + " at " + millis, calendar.getTimeInMillis(),
+                        DayFormatter.normalizeDate(millis, zone));
+            }
+        }
+    }
+
+    @Test
+    public void labelsMatchSimpleDateFormat() {
+        Random random = new Random(2);
+        for (String id : ZONES) {
+            TimeZone zone = TimeZone.getTimeZone(id);
+            SimpleDateFormat dayName = new SimpleDateFormat("EEEE", Locale.US);
+            SimpleDateFormat monthDay = new SimpleDateFormat("MMMM dd", Locale.US);
+            SimpleDateFormat shortened = new SimpleDateFormat("EEE MMM dd", Locale.US);
+            dayName.setTimeZone(zone);
+            monthDay.setTimeZone(zone);
+            shortened.setTimeZone(zone);
+            for (int i = 0; i < 200; i++) {
+                long now = 946684800000L + (long) (random.nextDouble() * 30 * 365 * 86400000L);
+                DayFormatter formatter = newFormatter(Locale.US, zone, now);
+                int today = formatter.getTodayJulianDay();
+                for (int offset = -3; offset < 30; offset++) {
+                    long date = DayFormatter.dayStart(today + offset, zone);
+                    assertEquals(monthDay.format(date), formatter.getFormattedMonthDay(date));
+
+                    String expected;
+                    if (offset == 0) {
+                        expected = "Today";
+                    } else if (offset == 1) {
+                        expected = "Tomorrow";
+                    } else if (offset < 7) {
+                        expected = dayName.format(date);
+                    } else {
+                        expected = shortened.format(date);
+                    }
+                    assertEquals(expected, formatter.getFriendlyDayString(date, false));
+                }
+                assertEquals("Today, " + monthDay.format(now),
+                        formatter.getFriendlyDayString(now, true));
+                long inAWeek = DayFormatter.dayStart(today + 5, zone);
+                assertEquals(dayName.format(inAWeek) + ", " + monthDay.format(inAWeek),
+                        formatter.getFullFriendlyDayString(inAWeek));
+            }
+        }
+    }
+
+    @Test
+    public void isValidUntilTheDayChanges() {
+        TimeZone zone = TimeZone.getTimeZone("Europe/Berlin");
+        long now = 1466971200000L;
+        DayFormatter formatter = newFormatter(Locale.US, zone, now);
+        long tomorrow = DayFormatter.dayStart(formatter.getTodayJulianDay() + 1, zone);
+
+        assertTrue(formatter.isValid(now, Locale.US, zone));
+        assertTrue(formatter.isValid(tomorrow - 1, Locale.US, zone));
+        assertFalse(formatter.isValid(tomorrow, Locale.US, zone));
+        assertFalse(formatter.isValid(now, Locale.GERMANY, zone));
+        assertFalse(formatter.isValid(now, Locale.US, TimeZone.getTimeZone("Europe/Berlin")));
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.common;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ForecastCodecTest {
+
+    private static final int DAY = 2457600;
+    private static final int DAYS = 14;
+
+    private static WearForecast forecast(int version) {
+        int[] weatherIds = new int[DAYS];
+        short[] highs = new short[DAYS];
+        short[] lows = new short[DAYS];
+        for (int i = 0; i < DAYS; i++) {
+            weatherIds[i] = i % 2 == 0 ? 800 : 502;
+            highs[i] = WearForecast.toTenths(21.37 + i);
+            lows[i] = WearForecast.toTenths(-12.5 - i);
+        }
+        return new WearForecast(version, true, DAY, weatherIds, highs, lows);
+    }
+
+    private static void assertSameDelta(WearForecastDelta expected, WearForecastDelta actual) {
+        assertNotNull(actual);
+        assertEquals(expected.mBaseVersion, actual.mBaseVersion);
+        assertEquals(expected.mVersion, actual.mVersion);
+        assertEquals(expected.mMetric, actual.mMetric);
+        assertEquals(expected.mFirstDay, actual.mFirstDay);
+        assertEquals(expected.mDayCount, actual.mDayCount);
+        assertArrayEquals(expected.mOffsets, actual.mOffsets);
+        assertArrayEquals(expected.mWeatherIds, actual.mWeatherIds);
+        assertArrayEquals(expected.mHighs, actual.mHighs);
+        assertArrayEquals(expected.mLows, actual.mLows);
+    }
+
+    @Test
+    public void fullForecastRoundTrips() {
+        WearForecastDelta delta = WearForecastDelta.between(null, forecast(7));
+        assertSameDelta(delta, ForecastCodec.decode(ForecastCodec.encode(delta)));
+    }
+
+    @Test
+    public void deltaRoundTrips() {
+        WearForecast base = forecast(7);
+        WearForecast target = new WearForecast(8, false, DAY + 1, new int[]{502, 200},
+                new short[]{base.mHighs[1], -400}, new short[]{base.mLows[1], 123});
+        WearForecastDelta delta = WearForecastDelta.between(base, target);
+        assertSameDelta(delta, ForecastCodec.decode(ForecastCodec.encode(delta)));
+    }
+
+    @Test
+    public void temperaturesKeepTenths() {
+        assertEquals(214, WearForecast.toTenths(21.37));
+        assertEquals(-125, WearForecast.toTenths(-12.5));
+        assertEquals(21.4, WearForecast.fromTenths(214), 1e-9);
+        assertEquals(Short.MAX_VALUE, WearForecast.toTenths(1e9));
+    }
+
+    @Test
+    public void rejectsMalformedBytes() {
+        byte[] bytes = ForecastCodec.encode(WearForecastDelta.between(null, forecast(1)));
+        assertNull(ForecastCodec.decode(null));
+        assertNull(ForecastCodec.decode(new byte[3]));
+
+        byte[] truncated = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        assertNull(ForecastCodec.decode(truncated));
+
+        byte[] otherFormat = bytes.clone();
+        otherFormat[0] = ForecastCodec.FORMAT + 1;
+        assertNull(ForecastCodec.decode(otherFormat));
+
+        byte[] badOffset = bytes.clone();
+        badOffset[ForecastCodec.HEADER_SIZE] = DAYS;
+        assertNull(ForecastCodec.decode(badOffset));
+    }
+
+    /**
+     * The keys and formatted strings a forecast used to be sent as, before the DataMap's own
+     * type tags and lengths, which only add to it.
+     */
+    private static int stringPayloadSize(WearForecast forecast) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF("version");
+        out.writeInt(forecast.mVersion);
+        out.writeUTF("first-day");
+        out.writeInt(forecast.mFirstDay);
+        out.writeUTF("weather-ids");
+        out.writeUTF("highs");
+        out.writeUTF("lows");
+        for (int i = 0; i < forecast.getDayCount(); i++) {
+            out.writeInt(forecast.mWeatherIds[i]);
+            out.writeUTF(WeatherFormat.formatTemperature("%1.0f°",
+                    WearForecast.fromTenths(forecast.mHighs[i]), true));
+            out.writeUTF(WeatherFormat.formatTemperature("%1.0f°",
+                    WearForecast.fromTenths(forecast.mLows[i]), true));
+        }
+        out.flush();
+        return bytes.size();
+    }
+
+    @Test
+    public void binaryIsSmallerThanStrings() throws IOException {
+        WearForecast forecast = forecast(1);
+        int binary = ForecastCodec.encode(WearForecastDelta.between(null, forecast)).length;
+        int strings = stringPayloadSize(forecast);
+        assertEquals(ForecastCodec.HEADER_SIZE + DAYS * ForecastCodec.DAY_SIZE, binary);
+        assertTrue(binary + " bytes packed should be under half of " + strings
+                + " bytes as strings", binary * 2 < strings);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.common;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class OwmForecastTest {
+
+    static String readResource(String name) {
+        InputStream in = OwmForecastTest.class.getClassLoader().getResourceAsStream(name);
+        Scanner scanner = new Scanner(in, "UTF-8").useDelimiter("\\A");
+        try {
+            return scanner.next();
+        } finally {
+            scanner.close();
+        }
+    }
+
+    @Test
+    public void parsesDailyForecast() throws JSONException {
+        OwmForecast forecast = OwmForecast.parse(readResource("forecast_14_days.json"));
+
+        assertEquals(OwmForecast.STATUS_OK, forecast.mStatus);
+        assertEquals("Mountain View", forecast.mCityName);
+        assertEquals(37.386051, forecast.mCityLatitude, 1e-9);
+        assertEquals(-122.083847, forecast.mCityLongitude, 1e-9);
+        assertEquals(14, forecast.mDays.length);
+
+        OwmForecast.Day first = forecast.mDays[0];
+        assertEquals(800, first.mWeatherId);
+        assertEquals("Clear", first.mDescription);
+        assertEquals(15.48, first.mHigh, 1e-9);
+        assertEquals(10.27, first.mLow, 1e-9);
+
+        OwmForecast.Day storm = forecast.mDays[6];
+        assertEquals(211, storm.mWeatherId);
+        assertEquals("Thunderstorm", storm.mDescription);
+    }
+
+    @Test
+    public void reportsServerErrors() throws JSONException {
+        OwmForecast notFound = OwmForecast.parse(
+                "{\"cod\":\"404\",\"message\":\"Error: Not found city\"}");
+        assertEquals(OwmForecast.STATUS_NOT_FOUND, notFound.mStatus);
+        assertNull(notFound.mCityName);
+        assertEquals(0, notFound.mDays.length);
+
+        OwmForecast serverError = OwmForecast.parse("{\"cod\":500}");
+        assertEquals(OwmForecast.STATUS_SERVER_ERROR, serverError.mStatus);
+    }
+
+    @Test(expected = JSONException.class)
+    public void rejectsMalformedResponses() throws JSONException {
+        OwmForecast.parse("{\"cod\":\"200\",\"list\":[]}");
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.common;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class WearForecastDeltaTest {
+
+    private static final int DAY = 2457600;
+
+    private static WearForecast forecast(int version, int firstDay, int... weatherIds) {
+        short[] highs = new short[weatherIds.length];
+        short[] lows = new short[weatherIds.length];
+        for (int i = 0; i < weatherIds.length; i++) {
+            highs[i] = (short) ((firstDay + i) % 30 * 10 + 5);
+            lows[i] = (short) -((firstDay + i) % 10 * 10);
+        }
+        return new WearForecast(version, true, firstDay, weatherIds, highs, lows);
+    }
+
+    private static void assertSameForecast(WearForecast expected, WearForecast actual) {
+        assertEquals(expected.mVersion, actual.mVersion);
+        assertTrue(expected.sameContent(actual));
+    }
+
+    @Test
+    public void fullDeltaCarriesEveryDay() {
+        WearForecast target = forecast(1, DAY, 800, 500, 211);
+        WearForecastDelta delta = WearForecastDelta.between(null, target);
+        assertTrue(delta.isFull());
+        assertArrayEquals(new int[]{0, 1, 2}, delta.mOffsets);
+        assertSameForecast(target, delta.applyTo(null));
+        assertSameForecast(target, delta.applyTo(forecast(7, DAY - 3, 600)));
+    }
+
+    @Test
+    public void deltaCarriesOnlyChangedDays() {
+        WearForecast base = forecast(1, DAY, 800, 500, 211);
+        WearForecast target = forecast(2, DAY, 800, 501, 211);
+        WearForecastDelta delta = WearForecastDelta.between(base, target);
+        assertFalse(delta.isFull());
+        assertArrayEquals(new int[]{1}, delta.mOffsets);
+        assertSameForecast(target, delta.applyTo(base));
+    }
+
+    @Test
+    public void unchangedForecastCarriesNoDays() {
+        WearForecast base = forecast(1, DAY, 800, 500, 211);
+        WearForecastDelta delta = WearForecastDelta.between(base, base.withVersion(2));
+        assertEquals(0, delta.mOffsets.length);
+        assertSameForecast(base.withVersion(2), delta.applyTo(base));
+    }
+
+    @Test
+    public void nextDayReusesOverlap() {
+        WearForecast base = forecast(3, DAY, 800, 500, 211);
+        WearForecast target = forecast(4, DAY + 1, 500, 211, 602);
+        WearForecastDelta delta = WearForecastDelta.between(base, target);
+        // Only the day that is new to the watch crosses.
+        assertArrayEquals(new int[]{2}, delta.mOffsets);
+        assertSameForecast(target, delta.applyTo(base));
+    }
+
+    @Test
+    public void unitsAloneAreAChange() {
+        WearForecast base = forecast(1, DAY, 800, 500, 211);
+        WearForecast fahrenheit = new WearForecast(2, false, DAY, base.mWeatherIds, base.mHighs,
+                base.mLows);
+        assertFalse(base.sameContent(fahrenheit));
+        WearForecastDelta delta = WearForecastDelta.between(base, fahrenheit);
+        assertEquals(0, delta.mOffsets.length);
+        assertFalse(delta.applyTo(base).mMetric);
+    }
+
+    @Test
+    public void deltaNeedsItsBase() {
+        WearForecast base = forecast(1, DAY, 800, 500, 211);
+        WearForecastDelta delta = WearForecastDelta.between(base, forecast(2, DAY, 800, 501, 211));
+        assertNull(delta.applyTo(null));
+        assertNull(delta.applyTo(base.withVersion(5)));
+    }
+
+    @Test
+    public void forecastSurvivesStream() throws IOException {
+        WearForecast forecast = forecast(9, DAY, 800, 500, 211);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        forecast.writeTo(new DataOutputStream(bytes));
+        WearForecast read = WearForecast.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertSameForecast(forecast, read);
+    }
+
+    @Test
+    public void versionSurvivesPayload() {
+        for (int version : new int[]{1, 255, 256, 0x7fffffff}) {
+            assertEquals(version, WearContract.decodeVersion(WearContract.encodeVersion(version)));
+        }
+        assertEquals(0, WearContract.decodeVersion(null));
+    }
+}
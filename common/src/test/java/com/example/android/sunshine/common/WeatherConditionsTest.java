@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.common;
+
+import org.junit.Test;
+
+import static com.example.android.sunshine.common.WeatherConditions.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/*
+    The if-chains below are the phone's mappings from before the table existed, and the phone's
+    behaviour is the one both apps now share.  The wear app's old copy differed for 761 (storm
+    instead of fog); it now follows the phone.
+ */
+public class WeatherConditionsTest {
+
+    private static final int MIN_TESTED_ID = -1;
+    private static final int MAX_TESTED_ID = 1100;
+
+    private static int referenceKind(int weatherId) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return KIND_STORM;
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return KIND_LIGHT_RAIN;
+        } else if (weatherId >= 500 && weatherId <= 504) {
+            return KIND_RAIN;
+        } else if (weatherId == 511) {
+            return KIND_SNOW;
+        } else if (weatherId >= 520 && weatherId <= 531) {
+            return KIND_RAIN;
+        } else if (weatherId >= 600 && weatherId <= 622) {
+            return KIND_SNOW;
+        } else if (weatherId >= 701 && weatherId <= 761) {
+            return KIND_FOG;
+        } else if (weatherId == 761 || weatherId == 781) {
+            return KIND_STORM;
+        } else if (weatherId == 800) {
+            return KIND_CLEAR;
+        } else if (weatherId == 801) {
+            return KIND_LIGHT_CLOUDS;
+        } else if (weatherId >= 802 && weatherId <= 804) {
+            return KIND_CLOUDS;
+        }
+        return KIND_NONE;
+    }
+
+    private static String referenceLabelName(int weatherId) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return "2xx";
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return "3xx";
+        }
+        switch (weatherId) {
+            case 500: case 501: case 502: case 503: case 504: case 511: case 520: case 531:
+            case 600: case 601: case 602: case 611: case 612: case 615: case 616: case 620:
+            case 621: case 622:
+            case 701: case 711: case 721: case 731: case 741: case 751: case 761: case 762:
+            case 771: case 781:
+            case 800: case 801: case 802: case 803: case 804:
+            case 900: case 901: case 902: case 903: case 904: case 905: case 906:
+            case 951: case 952: case 953: case 954: case 955: case 956: case 957: case 958:
+            case 959: case 960: case 961: case 962:
+                return Integer.toString(weatherId);
+            default:
+                return null;
+        }
+    }
+
+    @Test
+    public void kindMatchesPhoneMapping() {
+        for (int id = MIN_TESTED_ID; id <= MAX_TESTED_ID; id++) {
+            assertEquals("kind of " + id, referenceKind(id), getKind(id));
+        }
+    }
+
+    @Test
+    public void fogIsCanonicalFor761() {
+        assertEquals(KIND_FOG, getKind(761));
+        assertEquals(KIND_STORM, getKind(781));
+    }
+
+    @Test
+    public void labelMatchesPhoneMapping() {
+        for (int id = MIN_TESTED_ID; id <= MAX_TESTED_ID; id++) {
+            String expected = referenceLabelName(id);
+            int label = getLabel(id);
+            if (expected == null) {
+                assertEquals("label of " + id, LABEL_NONE, label);
+            } else {
+                assertEquals("label of " + id, expected, getLabelName(label));
+            }
+        }
+    }
+
+    @Test
+    public void imageUrlFollowsKind() {
+        for (int id = MIN_TESTED_ID; id <= MAX_TESTED_ID; id++) {
+            int kind = getKind(id);
+            if (kind == KIND_NONE) {
+                assertNull("image of " + id, getImageUrl(id));
+            } else if (id != 781) {
+                assertEquals("image of " + id, getImageUrl(FIRST_CONDITION_ID + kindSample(kind)),
+                        getImageUrl(id));
+            }
+        }
+        assertEquals("http://upload.wikimedia.org/wikipedia/commons/d/dc/"
+                + "Raised_dust_ahead_of_a_severe_thunderstorm_1.jpg", getImageUrl(781));
+        assertEquals("http://upload.wikimedia.org/wikipedia/commons/b/b8/Fresh_snow.JPG",
+                getImageUrl(511));
+    }
+
+    // Offset from FIRST_CONDITION_ID of a representative code of each kind.
+    private static int kindSample(int kind) {
+        int[] samples = {200, 300, 500, 600, 701, 800, 801, 802};
+        return samples[kind] - FIRST_CONDITION_ID;
+    }
+
+    @Test
+    public void kindNamesMatchArtPackFiles() {
+        String[] expected = {
+                "storm", "light_rain", "rain", "snow", "fog", "clear", "light_clouds", "clouds"
+        };
+        assertEquals(KIND_COUNT, expected.length);
+        for (int kind = 0; kind < KIND_COUNT; kind++) {
+            assertEquals(expected[kind], getKindName(kind));
+        }
+    }
+}
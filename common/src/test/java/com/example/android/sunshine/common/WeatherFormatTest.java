@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.common;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+public class WeatherFormatTest {
+
+    // The if-chain WeatherFormat.getWindDirection replaced.
+    private static String referenceWindDirection(float degrees) {
+        String direction = "Unknown";
+        if (degrees >= 337.5 || degrees < 22.5) {
+            direction = "N";
+        } else if (degrees >= 22.5 && degrees < 67.5) {
+            direction = "NE";
+        } else if (degrees >= 67.5 && degrees < 112.5) {
+            direction = "E";
+        } else if (degrees >= 112.5 && degrees < 157.5) {
+            direction = "SE";
+        } else if (degrees >= 157.5 && degrees < 202.5) {
+            direction = "S";
+        } else if (degrees >= 202.5 && degrees < 247.5) {
+            direction = "SW";
+        } else if (degrees >= 247.5 && degrees < 292.5) {
+            direction = "W";
+        } else if (degrees >= 292.5 && degrees < 337.5) {
+            direction = "NW";
+        }
+        return direction;
+    }
+
+    @Test
+    public void windDirectionMatchesCompassSectors() {
+        for (float degrees = -45f; degrees <= 400f; degrees += 0.125f) {
+            assertEquals("direction of " + degrees, referenceWindDirection(degrees),
+                    WeatherFormat.getWindDirection(degrees));
+        }
+        // Sector boundaries and the floats right below them.
+        for (int i = 0; i < 8; i++) {
+            float boundary = 22.5f + 45 * i;
+            float below = Math.nextAfter(boundary, Double.NEGATIVE_INFINITY);
+            assertEquals(referenceWindDirection(boundary), WeatherFormat.getWindDirection(boundary));
+            assertEquals(referenceWindDirection(below), WeatherFormat.getWindDirection(below));
+        }
+        assertEquals("Unknown", WeatherFormat.getWindDirection(Float.NaN));
+    }
+
+    @Test
+    public void convertsUnits() {
+        assertEquals(21.5, WeatherFormat.toDisplayTemperature(21.5, true), 0);
+        assertEquals(70.7, WeatherFormat.toDisplayTemperature(21.5, false), 1e-9);
+        assertEquals(10f, WeatherFormat.toDisplayWindSpeed(10f, true), 0);
+        assertEquals(6.2137f, WeatherFormat.toDisplayWindSpeed(10f, false), 1e-4);
+    }
+
+    @Test
+    public void formatsTemperatureAndWind() {
+        Locale original = Locale.getDefault();
+        Locale.setDefault(Locale.US);
+        try {
+            assertEquals("22\u00B0", WeatherFormat.formatTemperature("%1.0f\u00B0", 21.5, true));
+            assertEquals("71\u00B0", WeatherFormat.formatTemperature("%1.0f\u00B0", 21.5, false));
+            assertEquals("6 mph SW", WeatherFormat.formatWind("%1$1.0f mph %2$s", 10f, 225f,
+                    false));
+        } finally {
+            Locale.setDefault(original);
+        }
+    }
+}
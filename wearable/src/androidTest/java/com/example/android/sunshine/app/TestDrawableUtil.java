@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.res.Resources;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.common.WeatherConditions;
+
+/*
+    The watch icons must be in WeatherConditions kind order, like the phone's icon and art
+    tables (see TestWeatherConditions in the phone app), so both show the same kind for every
+    condition.
+ */
+public class TestDrawableUtil extends AndroidTestCase {
+
+    static final String[] ICON_NAMES = {
+            "storm", "light_rain", "heavy_rain", "snow", "fog", "clear", "light_clouds", "cloudy"
+    };
+
+    public void testIconsFollowKinds() {
+        Resources res = mContext.getResources();
+        assertEquals(WeatherConditions.KIND_COUNT + 1, DrawableUtil.WEATHER_ICONS.length);
+        assertEquals(-1, DrawableUtil.WEATHER_ICONS[0]);
+        for (int kind = 0; kind < WeatherConditions.KIND_COUNT; kind++) {
+            assertEquals(ICON_NAMES[kind],
+                    res.getResourceEntryName(DrawableUtil.WEATHER_ICONS[kind + 1]));
+        }
+    }
+
+    public void testFogMatchesPhone() {
+        // The watch used to show a storm for 761 (dust) while the phone showed fog.
+        assertEquals(R.drawable.fog, DrawableUtil.getWeatherIcon(761));
+        assertEquals(R.drawable.storm, DrawableUtil.getWeatherIcon(781));
+        assertEquals(-1, DrawableUtil.getWeatherIcon(0));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.common.ForecastCodec;
+import com.example.android.sunshine.common.WearContract;
+import com.example.android.sunshine.common.WearForecast;
+import com.example.android.sunshine.common.WearForecastDelta;
+import com.google.android.gms.wearable.DataMap;
+
+import java.io.File;
+
+public class TestForecastStore extends AndroidTestCase {
+    private static final int FIRST_DAY = 2457600;
+    private static final int DAYS = 14;
+
+    private File mFile;
+    private File mBackup;
+    // Where AtomicFile keeps the previous version while it writes.
+    private File mWriteBackup;
+    private File mWriteBackupBackup;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        // Keep the watch's stored forecast out of the way.
+        mFile = new File(mContext.getFilesDir(), ForecastStore.FILE_NAME);
+        mBackup = new File(mContext.getFilesDir(), ForecastStore.FILE_NAME + ".test");
+        mWriteBackup = new File(mFile.getPath() + ".bak");
+        mWriteBackupBackup = new File(mBackup.getPath() + ".bak");
+        mFile.renameTo(mBackup);
+        mWriteBackup.renameTo(mWriteBackupBackup);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mFile.delete();
+        mWriteBackup.delete();
+        mBackup.renameTo(mFile);
+        mWriteBackupBackup.renameTo(mWriteBackup);
+        super.tearDown();
+    }
+
+    private static WearForecast createForecast(int version) {
+        int[] weatherIds = new int[DAYS];
+        short[] highs = new short[DAYS];
+        short[] lows = new short[DAYS];
+        for (int i = 0; i < DAYS; i++) {
+            weatherIds[i] = i % 3 == 0 ? 800 : 500 + i;
+            highs[i] = (short) (210 + i * 3);
+            lows[i] = (short) (-15 - i * 7);
+        }
+        return new WearForecast(version, true, FIRST_DAY, weatherIds, highs, lows);
+    }
+
+    private static DataMap toDataMap(WearForecastDelta delta) {
+        DataMap dataMap = new DataMap();
+        dataMap.putByteArray(WearContract.KEY_FORECAST, ForecastCodec.encode(delta));
+        return dataMap;
+    }
+
+    public void testOldItemIsNotADelta() {
+        DataMap item = new DataMap();
+        item.putString("uuid", "request");
+        assertNull(ForecastStore.fromDataMap(item));
+    }
+
+    public void testDeltaFromItem() {
+        WearForecast base = createForecast(3);
+        short[] highs = base.mHighs.clone();
+        highs[2] = 150;
+        WearForecast target = new WearForecast(4, true, FIRST_DAY, base.mWeatherIds, highs,
+                base.mLows);
+
+        WearForecastDelta delta = ForecastStore.fromDataMap(
+                toDataMap(WearForecastDelta.between(base, target)));
+        assertNotNull(delta);
+        assertEquals(3, delta.mBaseVersion);
+        assertEquals(4, delta.mVersion);
+        assertEquals(1, delta.mOffsets.length);
+
+        WearForecast applied = delta.applyTo(base);
+        assertNotNull(applied);
+        assertTrue(target.sameContent(applied));
+    }
+
+    public void testSurvivesRestart() {
+        WearForecast forecast = createForecast(4);
+        ForecastStore.write(mContext, forecast);
+
+        WearForecast read = ForecastStore.read(mContext);
+        assertNotNull("The forecast wasn't stored", read);
+        assertEquals(4, read.mVersion);
+        assertTrue(forecast.sameContent(read));
+    }
+}
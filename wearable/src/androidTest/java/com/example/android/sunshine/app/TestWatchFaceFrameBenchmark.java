@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+/*
+    Benchmark of one watch face frame, drawing the time from the glyph atlas and, for
+    comparison, as text.  Each frame is a different minute, so the time is laid out again every
+    time, which is the worst case the engine sees.  Results are written to logcat under the
+    TestWatchFaceFrameBenchmark tag.
+ */
+@LargeTest
+public class TestWatchFaceFrameBenchmark extends AndroidTestCase {
+
+    public static final String LOG_TAG = TestWatchFaceFrameBenchmark.class.getSimpleName();
+
+    static final int WARMUP_FRAMES = 500;
+    static final int FRAMES = 5000;
+    static final int SIZE = 320;
+
+    private WatchFaceRenderer mRenderer;
+    private Canvas mCanvas;
+    private Rect mBounds;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mRenderer = new WatchFaceRenderer(mContext.getResources());
+        mRenderer.setRound(true);
+        mRenderer.setWeather("25°", "16°");
+        mRenderer.setWeatherIcon(Bitmap.createBitmap(30, 30, Bitmap.Config.ARGB_8888));
+        mCanvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+        mBounds = new Rect(0, 0, SIZE, SIZE);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mRenderer.release();
+        super.tearDown();
+    }
+
+    private long timeFrames(boolean ambient) {
+        mRenderer.setAmbient(ambient);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            mRenderer.draw(mCanvas, mBounds, now + i * 60000L);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) {
+            mRenderer.draw(mCanvas, mBounds, now + i * 60000L);
+        }
+        return (System.nanoTime() - start) / FRAMES;
+    }
+
+    public void testFrameCost() {
+        mRenderer.setGlyphAtlasEnabled(true);
+        long atlasInteractive = timeFrames(false);
+        long atlasAmbient = timeFrames(true);
+
+        mRenderer.setGlyphAtlasEnabled(false);
+        long textInteractive = timeFrames(false);
+        long textAmbient = timeFrames(true);
+
+        Log.i(LOG_TAG, "frame (glyph atlas): " + atlasInteractive + " ns interactive, "
+                + atlasAmbient + " ns ambient");
+        Log.i(LOG_TAG, "frame (drawText): " + textInteractive + " ns interactive, "
+                + textAmbient + " ns ambient");
+
+        assertTrue(atlasInteractive > 0 && textInteractive > 0);
+    }
+}
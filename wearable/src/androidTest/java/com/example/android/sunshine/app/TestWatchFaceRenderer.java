@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Debug;
+import android.test.AndroidTestCase;
+
+import java.util.Calendar;
+
+public class TestWatchFaceRenderer extends AndroidTestCase {
+
+    private static final int SIZE = 320;
+
+    @SuppressWarnings("deprecation")
+    public void testDrawDoesNotAllocate() {
+        WatchFaceRenderer renderer = new WatchFaceRenderer(mContext.getResources());
+        renderer.setRound(true);
+        renderer.setLowBitAmbient(true);
+        renderer.setWeather("25°", "16°");
+        renderer.setWeatherIcon(Bitmap.createBitmap(30, 30, Bitmap.Config.ARGB_8888));
+        Canvas canvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+        Rect bounds = new Rect(0, 0, SIZE, SIZE);
+
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(Calendar.HOUR_OF_DAY, 10);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        long hourStart = calendar.getTimeInMillis();
+
+        // The first frame of the hour reads the calendar and formats the date, and the first
+        // frame in each mode creates its layer.
+        renderer.draw(canvas, bounds, hourStart);
+        renderer.setAmbient(true);
+        renderer.draw(canvas, bounds, hourStart);
+
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        try {
+            // A second at a time for the rest of the hour, switching modes and clock styles
+            // like the engine does.
+            for (int second = 1; second < 60 * 60; second++) {
+                renderer.setAmbient(second % 60 < 10);
+                renderer.setIs24Hour(second % 600 < 300);
+                renderer.draw(canvas, bounds, hourStart + second * 1000L);
+            }
+        } finally {
+            Debug.stopAllocCounting();
+        }
+        assertEquals("Objects allocated while drawing", 0, Debug.getThreadAllocCount());
+    }
+
+    public void testLayersFollowTheData() {
+        WatchFaceRenderer renderer = new WatchFaceRenderer(mContext.getResources());
+        renderer.setRound(false);
+        Bitmap frame = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(frame);
+        Rect bounds = new Rect(0, 0, SIZE, SIZE);
+        long now = System.currentTimeMillis();
+
+        renderer.setBackgroundColor(0xFF0000FF);
+        renderer.draw(canvas, bounds, now);
+        assertEquals(0xFF0000FF, frame.getPixel(0, 0));
+
+        // A tap changes the color; the cached layer must not hide that.
+        renderer.setBackgroundColor(0xFFFF0000);
+        renderer.draw(canvas, bounds, now);
+        assertEquals(0xFFFF0000, frame.getPixel(0, 0));
+
+        renderer.setAmbient(true);
+        renderer.draw(canvas, bounds, now);
+        assertEquals(0xFF000000, frame.getPixel(0, 0));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Debug;
+import android.test.AndroidTestCase;
+
+import java.util.concurrent.TimeUnit;
+
+public class TestWatchFaceStats extends AndroidTestCase {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long START = 1000000000000L;
+
+    public void testBuckets() {
+        assertEquals(0, WatchFaceStats.getBucket(0));
+        assertEquals(0, WatchFaceStats.getBucket(MS / 4 - 1));
+        assertEquals(1, WatchFaceStats.getBucket(MS / 4));
+        assertEquals(3, WatchFaceStats.getBucket(MS + MS / 2));
+        assertEquals(WatchFaceStats.BUCKET_COUNT - 1, WatchFaceStats.getBucket(16 * MS));
+        assertEquals(WatchFaceStats.BUCKET_COUNT - 1, WatchFaceStats.getBucket(1000 * MS));
+    }
+
+    public void testDrawsAreKeptPerMode() {
+        WatchFaceStats stats = new WatchFaceStats();
+        stats.recordDraw(WatchFaceStats.MODE_INTERACTIVE, 3 * MS, START);
+        stats.recordDraw(WatchFaceStats.MODE_INTERACTIVE, 3 * MS, START + 1000);
+        stats.recordDraw(WatchFaceStats.MODE_AMBIENT, 100, START + 2000);
+        assertEquals(2, stats.getDrawCount(WatchFaceStats.MODE_INTERACTIVE));
+        assertEquals(2, stats.getBucketCount(WatchFaceStats.MODE_INTERACTIVE, 4));
+        assertEquals(1, stats.getDrawCount(WatchFaceStats.MODE_AMBIENT));
+        assertEquals(1, stats.getBucketCount(WatchFaceStats.MODE_AMBIENT, 0));
+    }
+
+    public void testFramesPerMinute() {
+        WatchFaceStats stats = new WatchFaceStats();
+        // One frame a second for two minutes
+        for (int second = 0; second < 120; second++) {
+            stats.recordDraw(WatchFaceStats.MODE_INTERACTIVE, MS, START + second * 1000L);
+        }
+        assertEquals(60, stats.getFramesPerMinute());
+
+        // Then nothing for a few minutes
+        stats.recordDraw(WatchFaceStats.MODE_AMBIENT, MS, START + 600 * 1000L);
+        assertEquals(0, stats.getFramesPerMinute());
+    }
+
+    @SuppressWarnings("deprecation")
+    public void testRecordingAndOverlayDoNotAllocate() {
+        WatchFaceStats stats = new WatchFaceStats();
+        Rect bounds = new Rect(0, 0, 320, 320);
+        Bitmap bitmap = Bitmap.createBitmap(bounds.width(), bounds.height(),
+                Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        // Grows the text buffer to its working size.
+        stats.drawOverlay(canvas, bounds);
+
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        try {
+            for (int i = 0; i < 100; i++) {
+                stats.recordDraw(i % 2, i * MS / 10, START + i * 1000L);
+                stats.recordTimerWakeup();
+                stats.recordDataEvent(114);
+                stats.recordIconDecode(2 * MS);
+                stats.drawOverlay(canvas, bounds);
+            }
+        } finally {
+            Debug.stopAllocCounting();
+        }
+        assertEquals("Objects allocated while recording", 0, Debug.getThreadAllocCount());
+        bitmap.recycle();
+    }
+}
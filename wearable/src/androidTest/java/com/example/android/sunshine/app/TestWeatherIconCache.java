@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.test.AndroidTestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TestWeatherIconCache extends AndroidTestCase {
+
+    private HandlerThread mResultThread;
+    private WeatherIconCache mCache;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mResultThread = new HandlerThread("TestResults");
+        mResultThread.start();
+        mCache = new WeatherIconCache(mContext.getResources(),
+                new Handler(mResultThread.getLooper()), new WatchFaceStats());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mCache.quit();
+        mResultThread.quit();
+        super.tearDown();
+    }
+
+    private static class Result implements WeatherIconCache.Callback {
+        final CountDownLatch mDone = new CountDownLatch(1);
+        Bitmap mIcon;
+
+        @Override
+        public void onIconReady(Bitmap icon) {
+            mIcon = icon;
+            mDone.countDown();
+        }
+
+        Bitmap await() throws InterruptedException {
+            assertTrue("No icon delivered", mDone.await(5, TimeUnit.SECONDS));
+            return mIcon;
+        }
+    }
+
+    public void testScalesToHeightAndReuses() throws InterruptedException {
+        Result first = new Result();
+        mCache.request(802, 40, first);
+        Bitmap icon = first.await();
+        assertNotNull(icon);
+        assertEquals(40, icon.getHeight());
+
+        // 804 is the same kind of weather as 802.
+        Result second = new Result();
+        mCache.request(804, 40, second);
+        assertSame(icon, second.await());
+    }
+
+    public void testUnknownConditionHasNoIcon() throws InterruptedException {
+        // Used to crash: there is no drawable for an unknown condition.
+        Result result = new Result();
+        mCache.request(0, 40, result);
+        assertNull(result.await());
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import com.example.android.sunshine.common.ForecastCodec;
+import com.example.android.sunshine.common.WearContract;
+import com.example.android.sunshine.common.WearForecast;
+import com.example.android.sunshine.common.WearForecastDelta;
+import com.google.android.gms.wearable.DataMap;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * The forecast last received from the phone, kept in a small file so the face has weather as
+ * soon as it starts and can move on to the next day by itself.
+ */
+class ForecastStore {
+    private static final String LOG_TAG = ForecastStore.class.getSimpleName();
+
+    static final String FILE_NAME = "forecast";
+    // Bump whenever the layout of the file changes.
+    private static final int VERSION = 3;
+
+    private ForecastStore() {
+    }
+
+    /**
+     * @return the delta in the phone's forecast item, or null if it doesn't hold one
+     */
+    static WearForecastDelta fromDataMap(DataMap dataMap) {
+        return ForecastCodec.decode(dataMap.getByteArray(WearContract.KEY_FORECAST));
+    }
+
+    private static AtomicFile getFile(Context context) {
+        return new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+    }
+
+    /**
+     * @return the stored forecast, or null if there is none or it can't be read
+     */
+    static WearForecast read(Context context) {
+        AtomicFile file = getFile(context);
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(file.openRead());
+            if (in.readInt() != VERSION) {
+                return null;
+            }
+            return WearForecast.readFrom(in);
+        } catch (IOException e) {
+            // Missing on first run; otherwise the phone sends every day again.
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // Nothing was written.
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the stored forecast.  Writes a file, so call it off the UI thread.
+     */
+    static void write(Context context, WearForecast forecast) {
+        AtomicFile file = getFile(context);
+        FileOutputStream stream = null;
+        try {
+            stream = file.startWrite();
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(VERSION);
+            forecast.writeTo(out);
+            out.flush();
+            file.finishWrite(stream);
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Unable to store the forecast", e);
+            if (stream != null) {
+                file.failWrite(stream);
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * A few short strings rasterized once into a bitmap, so that drawing them is a blit instead of
+ * text layout.  Each glyph keeps the advance its paint measured, and glyphs drawn one after
+ * the other are placed by those advances, which matches drawing the whole string for fonts
+ * with fixed-width digits and no kerning between them.
+ */
+class GlyphAtlas {
+    // Room for glyphs that reach past their advance, such as a slanted 7.
+    private static final int PADDING = 2;
+
+    private final Bitmap mBitmap;
+    private final float[] mAdvances;
+    private final Rect[] mSources;
+    // Distance from the baseline to the top of each cell; negative.
+    private final int[] mTops;
+    private final Rect mDestination = new Rect();
+
+    /**
+     * @param glyphs the strings to rasterize, looked up later by index
+     * @param paints the paint to draw each of them with
+     */
+    GlyphAtlas(String[] glyphs, Paint[] paints) {
+        int count = glyphs.length;
+        mAdvances = new float[count];
+        mSources = new Rect[count];
+        mTops = new int[count];
+
+        int width = 0;
+        int height = 0;
+        Paint.FontMetricsInt metrics = new Paint.FontMetricsInt();
+        for (int i = 0; i < count; i++) {
+            Paint paint = paints[i];
+            paint.getFontMetricsInt(metrics);
+            mAdvances[i] = paint.measureText(glyphs[i]);
+            int cellWidth = (int) Math.ceil(mAdvances[i]) + 2 * PADDING;
+            int cellHeight = metrics.bottom - metrics.top;
+            mSources[i] = new Rect(width, 0, width + cellWidth, cellHeight);
+            mTops[i] = metrics.top;
+            width += cellWidth;
+            height = Math.max(height, cellHeight);
+        }
+
+        mBitmap = Bitmap.createBitmap(Math.max(1, width), Math.max(1, height),
+                Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(mBitmap);
+        for (int i = 0; i < count; i++) {
+            canvas.drawText(glyphs[i], mSources[i].left + PADDING, -mTops[i], paints[i]);
+        }
+    }
+
+    float getAdvance(int glyph) {
+        return mAdvances[glyph];
+    }
+
+    /**
+     * Draws a glyph with its origin at {@code x} on the {@code baseline}.
+     *
+     * @return the x to draw the next glyph at
+     */
+    float draw(Canvas canvas, int glyph, float x, float baseline) {
+        Rect source = mSources[glyph];
+        // Whole pixels, so the blit is never filtered.
+        int left = Math.round(x) - PADDING;
+        int top = Math.round(baseline) + mTops[glyph];
+        mDestination.set(left, top, left + source.width(), top + source.height());
+        canvas.drawBitmap(mBitmap, source, mDestination, null);
+        return x + mAdvances[glyph];
+    }
+
+    void recycle() {
+        mBitmap.recycle();
+    }
+}
@@ -0,0 +1,512 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Draws the watch face.
+ *
+ * {@link #draw} runs every second while interactive, so it doesn't allocate: the time is
+ * written into a char buffer and measured only when the minute changes, the date is formatted
+ * only when the day changes and the weather text is measured when it arrives.  The calendar is
+ * only consulted once an hour, as the minute within the hour follows from the time alone.
+ * Everything else is drawn into a cached layer, and the time's glyphs come from a
+ * {@link GlyphAtlas}, so a frame is a few bitmap blits.
+ * Call everything on the engine's thread.
+ */
+class WatchFaceRenderer {
+
+    private static final Typeface BOLD_TYPEFACE =
+            Typeface.create(Typeface.SANS_SERIF, Typeface.BOLD);
+
+    private static final Typeface NORMAL_TYPEFACE =
+            Typeface.create(Typeface.SANS_SERIF, Typeface.NORMAL);
+
+    private static final long MINUTE_MILLIS = 60 * 1000;
+    private static final long HOUR_MILLIS = 60 * MINUTE_MILLIS;
+
+    private static final String AM = "am";
+    private static final String PM = "pm";
+
+    private final Resources mResources;
+
+    private final Paint mBackgroundPaint;
+    private final Paint mTextPaint;
+    private final Paint mTimePaint;
+    private final Paint mMaxTempPaint;
+    private final Paint mMinTempPaint;
+    private final Paint mMinTempAmbientPaint;
+    private final Paint mDateAmbientPaint;
+    private final Paint mDatePaint;
+
+    private float mTimeYOffset;
+    private float mDateYOffset;
+    private float mDividerYOffset;
+    private float mWeatherYOffset;
+
+    private boolean mAmbient;
+    /**
+     * Whether the display supports fewer bits for each color in ambient mode. When true, we
+     * disable anti-aliasing in ambient mode.
+     */
+    private boolean mLowBitAmbient;
+    private boolean mIs24Hour;
+
+    private final Calendar mCalendar = Calendar.getInstance();
+    private SimpleDateFormat mDayOfWeekFormat;
+    private SimpleDateFormat mDateFormat;
+
+    // Start of the hour the calendar fields below are for; the minute follows from it.
+    private long mHourStartMillis = Long.MIN_VALUE;
+    private int mHour;
+    private int mAmPm;
+    private int mDayKey = -1;
+
+    // "H:MM" or "HH:MM"
+    private final char[] mTimeChars = new char[5];
+    private int mTimeLength;
+    // Minute of the day and clock style the buffer holds, or -1
+    private int mTimeKey = -1;
+    private float mTimeWidth;
+    private float mAmWidth;
+    private float mPmWidth;
+
+    // Digits, colon, am and pm, pre-rasterized when the text sizes are known: one atlas with
+    // anti-aliasing and one without for low-bit ambient.
+    private static final int GLYPH_COLON = 10;
+    private static final int GLYPH_AM = 11;
+    private static final int GLYPH_PM = 12;
+    private GlyphAtlas mSmoothAtlas;
+    private GlyphAtlas mLowBitAtlas;
+    private boolean mGlyphAtlasEnabled = true;
+
+    private String mDateText;
+    private float mDateWidth;
+
+    // Offscreen copies of everything but the time, one per mode, so switching between them
+    // is free.  Low-bit ambient only affects the ambient one.
+    private static final int LAYER_INTERACTIVE = 0;
+    private static final int LAYER_AMBIENT = 1;
+    private final Bitmap[] mLayers = new Bitmap[2];
+    private final Canvas[] mLayerCanvases = new Canvas[2];
+    private final boolean[] mLayerValid = new boolean[2];
+
+    private Bitmap mWeatherIcon;
+    private String mWeatherHigh;
+    private String mWeatherLow;
+    private float mHighWidth;
+    private float mLowAmbientWidth;
+
+    WatchFaceRenderer(Resources resources) {
+        mResources = resources;
+        mTimeYOffset = resources.getDimension(R.dimen.time_y);
+
+        mBackgroundPaint = new Paint();
+        mBackgroundPaint.setColor(resources.getColor(R.color.primary));
+        mTextPaint = createText(NORMAL_TYPEFACE, resources.getColor(R.color.text_color_white));
+        mTimePaint = createText(NORMAL_TYPEFACE, resources.getColor(R.color.text_color_white));
+        mDatePaint = createText(NORMAL_TYPEFACE, resources.getColor(R.color.text_color_grey));
+        mDateAmbientPaint = createText(NORMAL_TYPEFACE,
+                resources.getColor(R.color.text_color_white));
+        mMaxTempPaint = createText(BOLD_TYPEFACE, resources.getColor(R.color.text_color_white));
+        mMinTempPaint = createText(NORMAL_TYPEFACE, resources.getColor(R.color.text_color_grey));
+        mMinTempAmbientPaint = createText(NORMAL_TYPEFACE,
+                resources.getColor(R.color.text_color_white));
+
+        onTimeZoneChanged();
+    }
+
+    private static Paint createText(Typeface typeface, int textColor) {
+        Paint paint = new Paint();
+        paint.setColor(textColor);
+        paint.setTypeface(typeface);
+        paint.setAntiAlias(true);
+        return paint;
+    }
+
+    /**
+     * Picks the offsets and text sizes for round or square screens.
+     */
+    void setRound(boolean isRound) {
+        mDateYOffset = mResources.getDimension(isRound
+                ? R.dimen.date_y_round : R.dimen.date_y);
+        mDividerYOffset = mResources.getDimension(isRound
+                ? R.dimen.divider_y_round : R.dimen.divider_y);
+        mWeatherYOffset = mResources.getDimension(isRound
+                ? R.dimen.weather_y_round : R.dimen.weather_y);
+
+        float timeTextSize = mResources.getDimension(isRound
+                ? R.dimen.time_text_size_round : R.dimen.time_text_size);
+        float dateTextSize = mResources.getDimension(isRound
+                ? R.dimen.date_text_size_round : R.dimen.date_text_size);
+        float tempTextSize = mResources.getDimension(isRound
+                ? R.dimen.text_size_round : R.dimen.text_size);
+
+        mTextPaint.setTextSize(timeTextSize);
+        mTimePaint.setTextSize((float) (tempTextSize * 0.80));
+        mDatePaint.setTextSize(dateTextSize);
+        mDateAmbientPaint.setTextSize(dateTextSize);
+        mMaxTempPaint.setTextSize(tempTextSize);
+        mMinTempAmbientPaint.setTextSize(tempTextSize);
+        mMinTempPaint.setTextSize(tempTextSize);
+
+        // Every cached width and layer is stale.
+        mTimeKey = -1;
+        invalidateLayers();
+        mAmWidth = mTimePaint.measureText(AM);
+        mPmWidth = mTimePaint.measureText(PM);
+        buildGlyphAtlases();
+        if (mDateText != null) {
+            mDateWidth = mDatePaint.measureText(mDateText);
+        }
+        measureWeather();
+    }
+
+    private void buildGlyphAtlases() {
+        releaseGlyphAtlases();
+        mSmoothAtlas = createGlyphAtlas(true);
+        mLowBitAtlas = createGlyphAtlas(false);
+    }
+
+    private GlyphAtlas createGlyphAtlas(boolean antiAlias) {
+        Paint digitPaint = new Paint(mTextPaint);
+        digitPaint.setAntiAlias(antiAlias);
+        Paint amPmPaint = new Paint(mTimePaint);
+        amPmPaint.setAntiAlias(antiAlias);
+        return new GlyphAtlas(
+                new String[] {
+                        "0", "1", "2", "3", "4", "5", "6", "7", "8", "9", ":", AM, PM },
+                new Paint[] {
+                        digitPaint, digitPaint, digitPaint, digitPaint, digitPaint,
+                        digitPaint, digitPaint, digitPaint, digitPaint, digitPaint,
+                        digitPaint, amPmPaint, amPmPaint });
+    }
+
+    private void releaseGlyphAtlases() {
+        if (mSmoothAtlas != null) {
+            mSmoothAtlas.recycle();
+            mSmoothAtlas = null;
+        }
+        if (mLowBitAtlas != null) {
+            mLowBitAtlas.recycle();
+            mLowBitAtlas = null;
+        }
+    }
+
+    /**
+     * @return the atlas matching the current paints, or null to lay the time out as text
+     */
+    private GlyphAtlas getGlyphAtlas() {
+        if (!mGlyphAtlasEnabled) {
+            return null;
+        }
+        return mAmbient && mLowBitAmbient ? mLowBitAtlas : mSmoothAtlas;
+    }
+
+    /**
+     * Draws the time as text instead of from the glyph atlas; for comparing the two.
+     */
+    void setGlyphAtlasEnabled(boolean enabled) {
+        mGlyphAtlasEnabled = enabled;
+        mTimeKey = -1;
+    }
+
+    private static int getGlyph(char c) {
+        return c == ':' ? GLYPH_COLON : c - '0';
+    }
+
+    void setLowBitAmbient(boolean lowBitAmbient) {
+        if (mLowBitAmbient != lowBitAmbient) {
+            mLowBitAmbient = lowBitAmbient;
+            mLayerValid[LAYER_AMBIENT] = false;
+        }
+    }
+
+    /**
+     * @return true if that changed what is drawn
+     */
+    boolean setAmbient(boolean ambient) {
+        if (mAmbient == ambient) {
+            return false;
+        }
+        mAmbient = ambient;
+        // The layer for the new mode is cached already, unless something changed meanwhile.
+        if (mLowBitAmbient) {
+            mTextPaint.setAntiAlias(!ambient);
+            mDatePaint.setAntiAlias(!ambient);
+            mDateAmbientPaint.setAntiAlias(!ambient);
+            mMaxTempPaint.setAntiAlias(!ambient);
+            mMinTempAmbientPaint.setAntiAlias(!ambient);
+            mMinTempPaint.setAntiAlias(!ambient);
+        }
+        return true;
+    }
+
+    void setBackgroundColor(int color) {
+        mBackgroundPaint.setColor(color);
+        mLayerValid[LAYER_INTERACTIVE] = false;
+    }
+
+    /**
+     * Sets the clock style.  Looking it up is a settings query, so the engine caches it and
+     * only refreshes it when the time settings change.
+     */
+    void setIs24Hour(boolean is24Hour) {
+        if (mIs24Hour != is24Hour) {
+            mIs24Hour = is24Hour;
+            mTimeKey = -1;
+        }
+    }
+
+    /**
+     * Forgets everything derived from the time zone and locale.
+     */
+    void onTimeZoneChanged() {
+        mCalendar.setTimeZone(TimeZone.getDefault());
+        mDayOfWeekFormat = new SimpleDateFormat("E", Locale.getDefault());
+        mDayOfWeekFormat.setCalendar(mCalendar);
+        mDateFormat = new SimpleDateFormat("MMM dd yyyy", Locale.getDefault());
+        mDateFormat.setCalendar(mCalendar);
+        mHourStartMillis = Long.MIN_VALUE;
+        mDayKey = -1;
+        mTimeKey = -1;
+    }
+
+    /**
+     * @return the size the weather icon should be scaled to
+     */
+    float getWeatherTextSize() {
+        return mMaxTempPaint.getTextSize();
+    }
+
+    void setWeather(String high, String low) {
+        mWeatherHigh = high;
+        mWeatherLow = low;
+        measureWeather();
+        invalidateLayers();
+    }
+
+    void setWeatherIcon(Bitmap icon) {
+        if (icon == mWeatherIcon) {
+            return;
+        }
+        mWeatherIcon = icon;
+        invalidateLayers();
+    }
+
+    private void measureWeather() {
+        mHighWidth = mWeatherHigh == null ? 0 : mMaxTempPaint.measureText(mWeatherHigh);
+        mLowAmbientWidth = mWeatherLow == null ? 0 : mMinTempAmbientPaint.measureText(mWeatherLow);
+    }
+
+    private void updateTime(long now) {
+        int minute;
+        // Long.MIN_VALUE means "unknown"; subtracting it would overflow.
+        if (mHourStartMillis != Long.MIN_VALUE && now >= mHourStartMillis
+                && now < mHourStartMillis + HOUR_MILLIS) {
+            minute = (int) ((now - mHourStartMillis) / MINUTE_MILLIS);
+        } else {
+            // Zone offsets only change on the hour, so this is the only place that needs them.
+            mCalendar.setTimeInMillis(now);
+            mHour = mCalendar.get(Calendar.HOUR_OF_DAY);
+            mAmPm = mCalendar.get(Calendar.AM_PM);
+            minute = mCalendar.get(Calendar.MINUTE);
+            mHourStartMillis = now - minute * MINUTE_MILLIS
+                    - mCalendar.get(Calendar.SECOND) * 1000L
+                    - mCalendar.get(Calendar.MILLISECOND);
+            int dayKey = mCalendar.get(Calendar.YEAR) * 400 + mCalendar.get(Calendar.DAY_OF_YEAR);
+            if (dayKey != mDayKey) {
+                mDayKey = dayKey;
+                mDateText = mDayOfWeekFormat.format(mCalendar.getTime()) + ", "
+                        + mDateFormat.format(mCalendar.getTime());
+                mDateWidth = mDatePaint.measureText(mDateText);
+                invalidateLayers();
+            }
+        }
+
+        int timeKey = (mHour * 60 + minute) * 2 + (mIs24Hour ? 1 : 0);
+        if (timeKey == mTimeKey) {
+            return;
+        }
+        mTimeKey = timeKey;
+        int i = 0;
+        int hour = mHour;
+        if (!mIs24Hour) {
+            hour = hour % 12;
+            if (hour == 0) {
+                hour = 12;
+            }
+        }
+        if (mIs24Hour || hour >= 10) {
+            mTimeChars[i++] = (char) ('0' + hour / 10);
+        }
+        mTimeChars[i++] = (char) ('0' + hour % 10);
+        mTimeChars[i++] = ':';
+        mTimeChars[i++] = (char) ('0' + minute / 10);
+        mTimeChars[i++] = (char) ('0' + minute % 10);
+        mTimeLength = i;
+        // Both atlases have the same advances.
+        GlyphAtlas atlas = getGlyphAtlas();
+        if (atlas != null) {
+            mTimeWidth = 0;
+            for (i = 0; i < mTimeLength; i++) {
+                mTimeWidth += atlas.getAdvance(getGlyph(mTimeChars[i]));
+            }
+        } else {
+            mTimeWidth = mTextPaint.measureText(mTimeChars, 0, mTimeLength);
+        }
+    }
+
+    /**
+     * @return the cached static layer for the current mode, drawn again if it is stale
+     */
+    private Bitmap getStaticLayer(Rect bounds) {
+        int layer = mAmbient ? LAYER_AMBIENT : LAYER_INTERACTIVE;
+        Bitmap bitmap = mLayers[layer];
+        if (bitmap == null || bitmap.getWidth() != bounds.width()
+                || bitmap.getHeight() != bounds.height()) {
+            if (bitmap != null) {
+                bitmap.recycle();
+            }
+            bitmap = Bitmap.createBitmap(bounds.width(), bounds.height(),
+                    Bitmap.Config.ARGB_8888);
+            mLayers[layer] = bitmap;
+            mLayerCanvases[layer] = new Canvas(bitmap);
+            mLayerValid[layer] = false;
+        }
+        if (!mLayerValid[layer]) {
+            drawStatic(mLayerCanvases[layer], bounds);
+            mLayerValid[layer] = true;
+        }
+        return bitmap;
+    }
+
+    private void invalidateLayers() {
+        mLayerValid[LAYER_INTERACTIVE] = false;
+        mLayerValid[LAYER_AMBIENT] = false;
+    }
+
+    /**
+     * Frees the cached layers and glyphs.  The layers are drawn again on the next frame; the
+     * glyphs come back with the next {@link #setRound}.
+     */
+    void release() {
+        releaseGlyphAtlases();
+        mTimeKey = -1;
+        releaseLayers();
+    }
+
+    private void releaseLayers() {
+        for (int layer = 0; layer < mLayers.length; layer++) {
+            if (mLayers[layer] != null) {
+                mLayers[layer].recycle();
+                mLayers[layer] = null;
+                mLayerCanvases[layer] = null;
+            }
+        }
+    }
+
+    void draw(Canvas canvas, Rect bounds, long now) {
+        // Before the layers, as a new day changes the date in them.
+        updateTime(now);
+
+        // Everything but the time
+        canvas.drawBitmap(getStaticLayer(bounds), 0, 0, null);
+
+        // Draw H:MM, with am/pm after it in ambient mode
+        float xOffsetTime = mTimeWidth / 2;
+        boolean showAmPm = mAmbient && !mIs24Hour;
+        if (showAmPm) {
+            xOffsetTime = xOffsetTime + (mAmPm == Calendar.AM ? mAmWidth : mPmWidth) / 2;
+        }
+        float xOffsetTimeFromCenter = bounds.centerX() - xOffsetTime;
+        GlyphAtlas atlas = getGlyphAtlas();
+        if (atlas != null) {
+            float x = xOffsetTimeFromCenter;
+            for (int i = 0; i < mTimeLength; i++) {
+                x = atlas.draw(canvas, getGlyph(mTimeChars[i]), x, mTimeYOffset);
+            }
+            if (showAmPm) {
+                atlas.draw(canvas, mAmPm == Calendar.AM ? GLYPH_AM : GLYPH_PM,
+                        xOffsetTimeFromCenter + mTimeWidth + 5, mTimeYOffset);
+            }
+        } else {
+            canvas.drawText(mTimeChars, 0, mTimeLength, xOffsetTimeFromCenter, mTimeYOffset,
+                    mTextPaint);
+            if (showAmPm) {
+                canvas.drawText(mAmPm == Calendar.AM ? AM : PM,
+                        xOffsetTimeFromCenter + mTimeWidth + 5, mTimeYOffset, mTimePaint);
+            }
+        }
+    }
+
+    /**
+     * Draws what only changes with the data, mode, background color or screen shape: the
+     * background, the date and the weather.
+     */
+    private void drawStatic(Canvas canvas, Rect bounds) {
+        // Draw the background.
+        if (mAmbient) {
+            canvas.drawColor(Color.BLACK);
+        } else {
+            canvas.drawRect(0, 0, bounds.width(), bounds.height(), mBackgroundPaint);
+        }
+
+        // Decide which paint to use for the next bits dependent on ambient mode.
+        Paint datePaint = mAmbient ? mDateAmbientPaint : mDatePaint;
+
+        // Draw the date
+        canvas.drawText(mDateText, bounds.centerX() - mDateWidth / 2, mDateYOffset, datePaint);
+
+        // Draw high and low temp if we have it
+        if (mWeatherHigh != null && mWeatherLow != null) {
+            // Draw a line to separate date and time from weather elements
+            canvas.drawLine(bounds.centerX() - 15, mDividerYOffset, bounds.centerX() + 15,
+                    mDividerYOffset, datePaint);
+
+            if (mAmbient) {
+                float xOffset = bounds.centerX() - ((mHighWidth + mLowAmbientWidth + 20) / 2);
+                canvas.drawText(mWeatherHigh, xOffset, mWeatherYOffset, mMaxTempPaint);
+                canvas.drawText(mWeatherLow, xOffset + mHighWidth + 20, mWeatherYOffset,
+                        mMinTempAmbientPaint);
+            } else {
+                float xOffset = bounds.centerX() - (mHighWidth / 2);
+                canvas.drawText(mWeatherHigh, xOffset, mWeatherYOffset, mMaxTempPaint);
+                canvas.drawText(mWeatherLow, bounds.centerX() + (mHighWidth / 2) + 20,
+                        mWeatherYOffset, mMinTempPaint);
+                // Conditions without an icon, or one still being decoded, show just the text.
+                if (mWeatherIcon != null) {
+                    float iconXOffset = bounds.centerX() - ((mHighWidth / 2) + mWeatherIcon
+                            .getWidth() + 30);
+                    canvas.drawBitmap(mWeatherIcon, iconXOffset,
+                            mWeatherYOffset - mWeatherIcon.getHeight(), null);
+                }
+            }
+        }
+    }
+}
@@ -23,12 +23,8 @@ import android.content.IntentFilter;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint;
 import android.graphics.Rect;
-import android.graphics.Typeface;
-import android.graphics.drawable.BitmapDrawable;
-import android.graphics.drawable.Drawable;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
@@ -39,6 +35,11 @@ import android.util.Log;
 import android.view.SurfaceHolder;
 import android.view.WindowInsets;
 
+import com.example.android.sunshine.common.DayFormatter;
+import com.example.android.sunshine.common.WearContract;
+import com.example.android.sunshine.common.WearForecast;
+import com.example.android.sunshine.common.WearForecastDelta;
+import com.example.android.sunshine.common.WeatherFormat;
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.api.GoogleApiClient;
 import com.google.android.gms.common.api.ResultCallback;
@@ -46,19 +47,17 @@ import com.google.android.gms.wearable.DataApi;
 import com.google.android.gms.wearable.DataEvent;
 import com.google.android.gms.wearable.DataEventBuffer;
 import com.google.android.gms.wearable.DataItem;
+import com.google.android.gms.wearable.DataItemBuffer;
 import com.google.android.gms.wearable.DataMap;
 import com.google.android.gms.wearable.DataMapItem;
-import com.google.android.gms.wearable.PutDataMapRequest;
-import com.google.android.gms.wearable.PutDataRequest;
+import com.google.android.gms.wearable.Node;
+import com.google.android.gms.wearable.NodeApi;
 import com.google.android.gms.wearable.Wearable;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.lang.ref.WeakReference;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.Locale;
 import java.util.TimeZone;
-import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -69,13 +68,6 @@ public class WatchFaceService extends CanvasWatchFaceService {
 
     private static String TAG = WatchFaceService.class.getSimpleName();
 
-    private static final Typeface BOLD_TYPEFACE =
-            Typeface.create(Typeface.SANS_SERIF, Typeface.BOLD);
-
-
-    private static final Typeface NORMAL_TYPEFACE =
-            Typeface.create(Typeface.SANS_SERIF, Typeface.NORMAL);
-
     /**
      * Update rate in milliseconds for interactive mode. We update once a second since seconds are
      * displayed in interactive mode.
@@ -87,11 +79,36 @@ public class WatchFaceService extends CanvasWatchFaceService {
      */
     private static final int MSG_UPDATE_TIME = 0;
 
+    /**
+     * Handler message id for retrying the Google API connection after it failed.
+     */
+    private static final int MSG_RECONNECT = 1;
+
+    // Retries after a failed connection wait this long, doubling up to the maximum.
+    private static final long RECONNECT_MIN_DELAY_MS = TimeUnit.SECONDS.toMillis(5);
+    private static final long RECONNECT_MAX_DELAY_MS = TimeUnit.MINUTES.toMillis(30);
+
+    // The stats of the engine created last, for dumpsys
+    private WatchFaceStats mActiveStats;
+
     @Override
     public Engine onCreateEngine() {
         return new Engine();
     }
 
+    /**
+     * Prints the face's stats; run {@code adb shell dumpsys activity service
+     * com.example.android.sunshine.app/.WatchFaceService}.
+     */
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(fd, writer, args);
+        WatchFaceStats stats = mActiveStats;
+        if (stats != null) {
+            stats.dump(writer);
+        }
+    }
+
     private static class EngineHandler extends Handler {
 
         private final WeakReference<WatchFaceService.Engine> mWeakReference;
@@ -108,6 +125,9 @@ public class WatchFaceService extends CanvasWatchFaceService {
                     case MSG_UPDATE_TIME:
                         engine.handleUpdateTimeMessage();
                         break;
+                    case MSG_RECONNECT:
+                        engine.connect();
+                        break;
                 }
             }
         }
@@ -116,63 +136,55 @@ public class WatchFaceService extends CanvasWatchFaceService {
     private class Engine extends CanvasWatchFaceService.Engine implements DataApi.DataListener,
             GoogleApiClient.ConnectionCallbacks, GoogleApiClient.OnConnectionFailedListener {
 
-        private static final String DATA_PATH = "/weather/weather-info";
-        private static final String KEY_WEATHER_ID = "weather-id";
-        private static final String KEY_MAX_TEMPERATURE = "high";
-        private static final String KEY_MIN_TEMPERATURE = "low";
-        private static final String KEY_UUID = "uuid";
-
         final Handler mUpdateTimeHandler = new EngineHandler(this);
 
-        boolean mRegisteredTimeZoneReceiver = false;
+        boolean mRegisteredTimeReceiver = false;
 
-        private Paint backgroundPaint;
-        private Paint textPaint;
-        private Paint timePaint;
-        private Paint maxTempPaint;
-        private Paint minTempPaint;
-        private Paint minTempAmbientPaint;
-        private Paint dateAmbientPaint;
-        private Paint datePaint;
+        private WatchFaceRenderer mRenderer;
 
-        private Bitmap mWeatherIcon;
-        private String mWeatherHigh;
-        private String mWeatherLow;
-        private boolean mAmbient;
-        private Calendar mCalendar;
+        private WeatherIconCache mIconCache;
 
-        final BroadcastReceiver mTimeZoneReceiver = new BroadcastReceiver() {
+        private final WatchFaceStats mStats = new WatchFaceStats();
+        // Debug builds only: whether the stats are drawn over the face
+        private boolean mShowStats;
+
+        private final WeatherIconCache.Callback mIconCallback = new WeatherIconCache.Callback() {
             @Override
-            public void onReceive(Context context, Intent intent) {
-                mCalendar.setTimeZone(TimeZone.getDefault());
-                long now = System.currentTimeMillis();
-                mCalendar.setTimeInMillis(now);
+            public void onIconReady(Bitmap icon) {
+                mRenderer.setWeatherIcon(icon);
+                invalidate();
             }
         };
 
-        private int mTapCount;
-
-        float mTimeYOffset;
+        private boolean mHasWeatherId;
+        private int mWeatherId;
 
-        float mDateYOffset;
+        private WearForecast mForecast;
+        private String mTemperatureFormat;
+        // The day the weather on the face is for; outside of it, pick the day again.
+        private long mDayStartMillis;
+        private long mDayEndMillis;
 
-        float mDividerYOffset;
-
-        float mWeatherYOffset;
-
-        private Date mDate;
-
-        private SimpleDateFormat mDayOfWeekFormat;
+        final BroadcastReceiver mTimeReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                if (Intent.ACTION_TIME_CHANGED.equals(intent.getAction())) {
+                    // Also sent when the user switches between 12 and 24 hour time
+                    mRenderer.setIs24Hour(DateFormat.is24HourFormat(WatchFaceService.this));
+                }
+                mRenderer.onTimeZoneChanged();
+                DayFormatter.onDefaultsChanged();
+                mDayEndMillis = Long.MIN_VALUE;
+                invalidate();
+            }
+        };
 
-        private SimpleDateFormat mDateFormat;
+        private int mTapCount;
 
+        // Connected for as long as the face is in use, not just while it is visible, so that
+        // raising the wrist never waits for a connection and the forecast stays current.
         private GoogleApiClient mGoogleApiClient;
-
-        /**
-         * Whether the display supports fewer bits for each color in ambient mode. When true, we
-         * disable anti-aliasing in ambient mode.
-         */
-        private boolean mLowBitAmbient;
+        private int mFailedConnections;
 
         @Override
         public void onCreate(SurfaceHolder holder) {
@@ -184,85 +196,59 @@ public class WatchFaceService extends CanvasWatchFaceService {
                     .setShowSystemUiTime(false)
                     .setAcceptsTapEvents(true)
                     .build());
-            Resources resources = WatchFaceService.this.getResources();
-            mTimeYOffset = resources.getDimension(R.dimen.time_y);
-
-            initPaints();
-
-            mCalendar = Calendar.getInstance();
-            mDate = new Date();
-            initDateFormats();
+            mRenderer = new WatchFaceRenderer(WatchFaceService.this.getResources());
+            mRenderer.setIs24Hour(DateFormat.is24HourFormat(WatchFaceService.this));
+            mIconCache = new WeatherIconCache(WatchFaceService.this.getResources(),
+                    mUpdateTimeHandler, mStats);
+            mActiveStats = mStats;
+            // A few hundred bytes; the face has weather before the phone is even reachable.
+            mForecast = ForecastStore.read(WatchFaceService.this);
+            mTemperatureFormat = WatchFaceService.this.getResources()
+                    .getString(R.string.format_temperature);
+            mDayEndMillis = Long.MIN_VALUE;
 
             mGoogleApiClient = new GoogleApiClient.Builder(WatchFaceService.this)
                     .addConnectionCallbacks(this)
                     .addOnConnectionFailedListener(this)
                     .addApi(Wearable.API)
                     .build();
-        }
-
-        private void initDateFormats() {
-            mDayOfWeekFormat = new SimpleDateFormat("E", Locale.getDefault());
-            mDayOfWeekFormat.setCalendar(mCalendar);
-            mDateFormat = new SimpleDateFormat("MMM dd yyyy", Locale.getDefault());
-            mDateFormat.setCalendar(mCalendar);
-        }
-
-        private void initPaints(){
-            Resources resources = WatchFaceService.this.getResources();
-
-            backgroundPaint = new Paint();
-            backgroundPaint.setColor(resources.getColor(R.color.primary));
-
-            textPaint = new Paint();
-            textPaint = createText(NORMAL_TYPEFACE, resources.getColor(R.color.text_color_white));
-            timePaint = createText(NORMAL_TYPEFACE,
-                    resources.getColor(R.color.text_color_white));
-            datePaint = createText(NORMAL_TYPEFACE,
-                    resources.getColor(R.color.text_color_grey));
-            dateAmbientPaint = createText(NORMAL_TYPEFACE,
-                    resources.getColor(R.color.text_color_white));
-            maxTempPaint = createText(BOLD_TYPEFACE,
-                    resources.getColor(R.color.text_color_white));
-            minTempPaint = createText(NORMAL_TYPEFACE,
-                    resources.getColor(R.color.text_color_grey));
-            minTempAmbientPaint = createText(NORMAL_TYPEFACE,
-                    resources.getColor(R.color.text_color_white));
+            connect();
         }
 
         @Override
         public void onDestroy() {
             mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            mUpdateTimeHandler.removeMessages(MSG_RECONNECT);
+            if (mGoogleApiClient.isConnected()) {
+                Wearable.DataApi.removeListener(mGoogleApiClient, this);
+            }
+            mGoogleApiClient.disconnect();
+            mIconCache.quit();
+            mRenderer.release();
+            if (mActiveStats == mStats) {
+                mActiveStats = null;
+            }
             super.onDestroy();
         }
 
-        private Paint createText(Typeface typeface, int textColor) {
-            Paint paint = new Paint();
-            paint.setColor(textColor);
-            paint.setTypeface(typeface);
-            paint.setAntiAlias(true);
-            return paint;
-        }
-
         @Override
         public void onVisibilityChanged(boolean visible) {
             super.onVisibilityChanged(visible);
 
             if (visible) {
-                mGoogleApiClient.connect();
                 registerReceiver();
 
-                // Update time zone in case it changed while we weren't visible.
-                mCalendar.setTimeZone(TimeZone.getDefault());
-                long now = System.currentTimeMillis();
-                mCalendar.setTimeInMillis(now);
-                initDateFormats();
+                // Update time zone, locale and clock style in case they changed while we
+                // weren't visible.
+                mRenderer.onTimeZoneChanged();
+                mRenderer.setIs24Hour(DateFormat.is24HourFormat(WatchFaceService.this));
+                DayFormatter.onDefaultsChanged();
+                mDayEndMillis = Long.MIN_VALUE;
             } else {
-                // Disconnect from Google API
-                if (mGoogleApiClient != null && mGoogleApiClient.isConnected()) {
-                    Wearable.DataApi.removeListener(mGoogleApiClient, this);
-                    mGoogleApiClient.disconnect();
-                }
                 unregisterReceiver();
+                if (Log.isLoggable(TAG, Log.DEBUG)) {
+                    mStats.log(TAG);
+                }
             }
 
             // Whether the timer should be running depends on whether we're visible (as well as
@@ -271,20 +257,22 @@ public class WatchFaceService extends CanvasWatchFaceService {
         }
 
         private void registerReceiver() {
-            if (mRegisteredTimeZoneReceiver) {
+            if (mRegisteredTimeReceiver) {
                 return;
             }
-            mRegisteredTimeZoneReceiver = true;
+            mRegisteredTimeReceiver = true;
             IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
-            WatchFaceService.this.registerReceiver(mTimeZoneReceiver, filter);
+            filter.addAction(Intent.ACTION_TIME_CHANGED);
+            filter.addAction(Intent.ACTION_LOCALE_CHANGED);
+            WatchFaceService.this.registerReceiver(mTimeReceiver, filter);
         }
 
         private void unregisterReceiver() {
-            if (!mRegisteredTimeZoneReceiver) {
+            if (!mRegisteredTimeReceiver) {
                 return;
             }
-            mRegisteredTimeZoneReceiver = false;
-            WatchFaceService.this.unregisterReceiver(mTimeZoneReceiver);
+            mRegisteredTimeReceiver = false;
+            WatchFaceService.this.unregisterReceiver(mTimeReceiver);
         }
 
         @Override
@@ -292,41 +280,24 @@ public class WatchFaceService extends CanvasWatchFaceService {
             super.onApplyWindowInsets(insets);
 
             // Load resources that have alternate values for round watches.
-            Resources resources = WatchFaceService.this.getResources();
-            boolean isRound = insets.isRound();
-
-            mDateYOffset = resources.getDimension(isRound
-                    ? R.dimen.date_y_round : R.dimen.date_y);
-            mDividerYOffset = resources.getDimension(isRound
-                    ? R.dimen.divider_y_round : R.dimen.divider_y);
-            mWeatherYOffset = resources.getDimension(isRound
-                    ? R.dimen.weather_y_round : R.dimen.weather_y);
+            mRenderer.setRound(insets.isRound());
 
-            setTextSizes(isRound);
+            // The icon follows the text size.
+            int iconHeight = getIconHeight();
+            mIconCache.prewarm(iconHeight);
+            if (mHasWeatherId) {
+                mIconCache.request(mWeatherId, iconHeight, mIconCallback);
+            }
         }
 
-        private void setTextSizes(boolean isRound){
-            Resources resources = WatchFaceService.this.getResources();
-            float timeTextSize = resources.getDimension(isRound
-                    ? R.dimen.time_text_size_round : R.dimen.time_text_size);
-            float dateTextSize = resources.getDimension(isRound
-                    ? R.dimen.date_text_size_round : R.dimen.date_text_size);
-            float tempTextSize = resources.getDimension(isRound
-                    ? R.dimen.text_size_round : R.dimen.text_size);
-
-            textPaint.setTextSize(timeTextSize);
-            timePaint.setTextSize((float) (tempTextSize * 0.80));
-            datePaint.setTextSize(dateTextSize);
-            dateAmbientPaint.setTextSize(dateTextSize);
-            maxTempPaint.setTextSize(tempTextSize);
-            minTempAmbientPaint.setTextSize(tempTextSize);
-            minTempPaint.setTextSize(tempTextSize);
+        private int getIconHeight() {
+            return (int) mRenderer.getWeatherTextSize();
         }
 
         @Override
         public void onPropertiesChanged(Bundle properties) {
             super.onPropertiesChanged(properties);
-            mLowBitAmbient = properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false);
+            mRenderer.setLowBitAmbient(properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false));
         }
 
         @Override
@@ -338,9 +309,7 @@ public class WatchFaceService extends CanvasWatchFaceService {
         @Override
         public void onAmbientModeChanged(boolean inAmbientMode) {
             super.onAmbientModeChanged(inAmbientMode);
-            if (mAmbient != inAmbientMode) {
-                mAmbient = inAmbientMode;
-                setTextAntiAlias(inAmbientMode);
+            if (mRenderer.setAmbient(inAmbientMode)) {
                 invalidate();
             }
             // Whether the timer should be running depends on whether we're visible (as well as
@@ -348,17 +317,6 @@ public class WatchFaceService extends CanvasWatchFaceService {
             updateTimer();
         }
 
-        private void setTextAntiAlias(boolean inAmbientMode){
-            if (mLowBitAmbient) {
-                textPaint.setAntiAlias(!inAmbientMode);
-                datePaint.setAntiAlias(!inAmbientMode);
-                dateAmbientPaint.setAntiAlias(!inAmbientMode);
-                maxTempPaint.setAntiAlias(!inAmbientMode);
-                minTempAmbientPaint.setAntiAlias(!inAmbientMode);
-                minTempPaint.setAntiAlias(!inAmbientMode);
-            }
-        }
-
         /**
          * Captures tap event (and tap type) and toggles the background color if the user finishes
          * a tap.
@@ -375,8 +333,14 @@ public class WatchFaceService extends CanvasWatchFaceService {
                     break;
                 case TAP_TYPE_TAP:
                     // The user has completed the tap gesture.
+                    if (BuildConfig.DEBUG && y < mRenderer.getWeatherTextSize() * 2) {
+                        // A tap at the very top toggles the stats instead.
+                        mShowStats = !mShowStats;
+                        mStats.log(TAG);
+                        break;
+                    }
                     mTapCount++;
-                    backgroundPaint.setColor(resources.getColor(mTapCount % 2 == 0 ?
+                    mRenderer.setBackgroundColor(resources.getColor(mTapCount % 2 == 0 ?
                             R.color.primary : R.color.primary_dark));
                     break;
             }
@@ -385,85 +349,49 @@ public class WatchFaceService extends CanvasWatchFaceService {
 
         @Override
         public void onDraw(Canvas canvas, Rect bounds) {
-            // Draw the background.
-            if (isInAmbientMode()) {
-                canvas.drawColor(Color.BLACK);
-            } else {
-                canvas.drawRect(0, 0, bounds.width(), bounds.height(), backgroundPaint);
-            }
-
-            // Draw H:MM in ambient mode or H:MM:SS in interactive mode.
             long now = System.currentTimeMillis();
-            mCalendar.setTimeInMillis(now);
-            mDate.setTime(now);
-            boolean is24Hour = DateFormat.is24HourFormat(WatchFaceService.this);
-            int minute = mCalendar.get(Calendar.MINUTE);
-            int amPm = mCalendar.get(Calendar.AM_PM);
-            String text;
-            if (is24Hour) {
-                int hour = mCalendar.get(Calendar.HOUR_OF_DAY);
-                text = String.format("%02d:%02d", hour, minute);
-            } else {
-                int hour = mCalendar.get(Calendar.HOUR);
-                if (hour == 0) {
-                    hour = 12;
-                }
-                text = String.format("%d:%02d", hour, minute);
+            if (now < mDayStartMillis || now >= mDayEndMillis) {
+                showDay(now);
             }
-
-            String amPmText = amPm == Calendar.AM ? "am" : "pm";
-            float timeTextLen = textPaint.measureText(text);
-            float xOffsetTime = timeTextLen / 2;
-            if (mAmbient) {
-                if (!is24Hour) {
-                    xOffsetTime = xOffsetTime + (timePaint.measureText(amPmText) / 2);
-                }
-            }
-            float xOffsetTimeFromCenter = bounds.centerX() - xOffsetTime;
-            canvas.drawText(text, xOffsetTimeFromCenter, mTimeYOffset, textPaint);
-            if (mAmbient) {
-                if (!is24Hour) {
-                    canvas.drawText(amPmText, xOffsetTimeFromCenter + timeTextLen + 5, mTimeYOffset,
-                            timePaint);
-                }
+            long start = System.nanoTime();
+            mRenderer.draw(canvas, bounds, now);
+            mStats.recordDraw(isInAmbientMode()
+                            ? WatchFaceStats.MODE_AMBIENT : WatchFaceStats.MODE_INTERACTIVE,
+                    System.nanoTime() - start, now);
+            if (mShowStats) {
+                mStats.drawOverlay(canvas, bounds);
             }
+        }
 
-            // Decide which paint to use for the next bits dependent on ambient mode.
-            Paint datePaint = mAmbient ? dateAmbientPaint : this.datePaint;
-
-            // Draw the date
-            String dayOfWeekString = mDayOfWeekFormat.format(mDate);
-            String monthOfYearString = mDateFormat.format(mCalendar.getTime());
-
-            String dateText = String
-                    .format("%s, %s", dayOfWeekString, monthOfYearString);
-            float xOffsetDate = datePaint.measureText(dateText) / 2;
-            canvas.drawText(dateText, bounds.centerX() - xOffsetDate, mDateYOffset, datePaint);
-
-            // Draw high and low temp if we have it
-            if (mWeatherHigh != null && mWeatherLow != null && mWeatherIcon != null) {
-                // Draw a line to separate date and time from weather elements
-                canvas.drawLine(bounds.centerX() - 15, mDividerYOffset, bounds.centerX() + 15,
-                        mDividerYOffset, datePaint);
-                float highTextLen = maxTempPaint.measureText(mWeatherHigh);
-
-                if (mAmbient) {
-                    float lowTextLen = minTempAmbientPaint.measureText(mWeatherLow);
-                    float xOffset = bounds.centerX() - ((highTextLen + lowTextLen + 20) / 2);
-                    canvas.drawText(mWeatherHigh, xOffset, mWeatherYOffset, maxTempPaint);
-                    canvas.drawText(mWeatherLow, xOffset + highTextLen + 20, mWeatherYOffset,
-                            minTempAmbientPaint);
-                } else {
-                    float xOffset = bounds.centerX() - (highTextLen / 2);
-                    canvas.drawText(mWeatherHigh, xOffset, mWeatherYOffset, maxTempPaint);
-                    canvas.drawText(mWeatherLow, bounds.centerX() + (highTextLen / 2) + 20,
-                            mWeatherYOffset, minTempPaint);
-                    float iconXOffset = bounds.centerX() - ((highTextLen / 2) + mWeatherIcon
-                            .getWidth() + 30);
-                    canvas.drawBitmap(mWeatherIcon, iconXOffset,
-                            mWeatherYOffset - mWeatherIcon.getHeight(), null);
-                }
+        /**
+         * Shows the stored weather for the day that {@code now} falls on, or none if the
+         * forecast doesn't reach it.
+         */
+        private void showDay(long now) {
+            TimeZone zone = DayFormatter.getDefaultZone();
+            int julianDay = DayFormatter.julianDay(now, zone);
+            mDayStartMillis = DayFormatter.dayStart(julianDay, zone);
+            mDayEndMillis = DayFormatter.dayStart(julianDay + 1, zone);
+
+            int index = mForecast == null ? -1 : mForecast.getDayIndex(julianDay);
+            if (index < 0) {
+                mRenderer.setWeather(null, null);
+                mRenderer.setWeatherIcon(null);
+                mHasWeatherId = false;
+                return;
             }
+            // Formatted here rather than on the phone; the units come with the forecast.
+            mRenderer.setWeather(formatTemperature(mForecast.mHighs[index]),
+                    formatTemperature(mForecast.mLows[index]));
+            mWeatherId = mForecast.mWeatherIds[index];
+            mHasWeatherId = true;
+            // Decoded and scaled off this thread; the icon shows up when it's ready.
+            mIconCache.request(mWeatherId, getIconHeight(), mIconCallback);
+        }
+
+        private String formatTemperature(short tenths) {
+            return WeatherFormat.formatTemperature(mTemperatureFormat,
+                    WearForecast.fromTenths(tenths), mForecast.mMetric);
         }
 
         /**
@@ -491,6 +419,7 @@ public class WatchFaceService extends CanvasWatchFaceService {
          * Handle updating the time periodically in interactive mode.
          */
         private void handleUpdateTimeMessage() {
+            mStats.recordTimerWakeup();
             invalidate();
             if (shouldTimerBeRunning()) {
                 long timeMs = System.currentTimeMillis();
@@ -500,73 +429,135 @@ public class WatchFaceService extends CanvasWatchFaceService {
             }
         }
 
+        private void connect() {
+            if (!mGoogleApiClient.isConnected() && !mGoogleApiClient.isConnecting()) {
+                mGoogleApiClient.connect();
+            }
+        }
+
         @Override
         public void onConnected(Bundle bundle) {
+            mFailedConnections = 0;
+            mUpdateTimeHandler.removeMessages(MSG_RECONNECT);
+            // Listeners don't survive a lost connection, and adding one twice is harmless.
             Wearable.DataApi.addListener(mGoogleApiClient, Engine.this);
-            requestWeatherInfo();
+            readForecastItem();
         }
 
         @Override
-        public void onConnectionSuspended(int i) {
-
+        public void onConnectionSuspended(int cause) {
+            // The client reconnects by itself and calls onConnected again; if it can't,
+            // onConnectionFailed schedules the retries.
+            Log.d(TAG, "onConnectionSuspended: " + cause);
         }
 
         @Override
         public void onDataChanged(DataEventBuffer dataEventBuffer) {
             for (DataEvent dataEvent : dataEventBuffer) {
+                DataItem dataItem = dataEvent.getDataItem();
+                byte[] data = dataItem.getData();
+                mStats.recordDataEvent(data == null ? 0 : data.length);
 
                 if (dataEvent.getType() != DataEvent.TYPE_CHANGED) {
                     continue;
                 }
 
-                DataItem dataItem = dataEvent.getDataItem();
-                if (!dataItem.getUri().getPath().equals(DATA_PATH)) {
+                if (!dataItem.getUri().getPath().equals(WearContract.PATH_FORECAST)) {
                     continue;
                 }
 
-                DataMap dataMap = DataMapItem.fromDataItem(dataEvent.getDataItem())
-                        .getDataMap();
-                mWeatherHigh = dataMap.containsKey(KEY_MAX_TEMPERATURE) ? dataMap
-                        .getString(KEY_MAX_TEMPERATURE) : mWeatherHigh;
-                mWeatherLow = dataMap.containsKey(KEY_MIN_TEMPERATURE) ? dataMap
-                        .getString(KEY_MIN_TEMPERATURE) : mWeatherLow;
-                String path = dataEvent.getDataItem().getUri().getPath();
-
-                Log.d(TAG, "onDataChanged: " + path);
-                if (dataMap.containsKey(KEY_WEATHER_ID)) {
-                    int weatherId = dataMap.getInt(KEY_WEATHER_ID);
-                    Drawable b = getResources().getDrawable(DrawableUtil.getWeatherIcon(weatherId));
-                    Bitmap icon = ((BitmapDrawable) b).getBitmap();
-                    float scaledWidth =
-                            (maxTempPaint.getTextSize() / icon.getHeight()) * icon
-                                    .getWidth();
-                    mWeatherIcon = Bitmap.createScaledBitmap(icon, (int) scaledWidth,
-                            (int) maxTempPaint.getTextSize(), true);
+                Log.d(TAG, "onDataChanged: " + dataItem.getUri().getPath());
+                applyForecast(DataMapItem.fromDataItem(dataItem).getDataMap());
+            }
+        }
 
-                }
+        /**
+         * Catches up with a forecast put while the face wasn't listening.  Reading the item
+         * costs no Bluetooth traffic; the phone is only asked when there is nothing to read.
+         */
+        private void readForecastItem() {
+            Wearable.DataApi.getDataItems(mGoogleApiClient)
+                    .setResultCallback(new ResultCallback<DataItemBuffer>() {
+                        @Override
+                        public void onResult(DataItemBuffer dataItems) {
+                            boolean found = false;
+                            for (DataItem dataItem : dataItems) {
+                                if (WearContract.PATH_FORECAST.equals(
+                                        dataItem.getUri().getPath())) {
+                                    found = true;
+                                    applyForecast(DataMapItem.fromDataItem(dataItem)
+                                            .getDataMap());
+                                }
+                            }
+                            dataItems.release();
+                            if (!found) {
+                                sendToPhone(WearContract.PATH_REQUEST_FORECAST);
+                            }
+                        }
+                    });
+        }
 
-                invalidate();
+        /**
+         * Applies the delta in the phone's forecast item, or asks for every day if it was made
+         * for a forecast this watch doesn't have or is in an older format.
+         */
+        private void applyForecast(DataMap dataMap) {
+            WearForecastDelta delta = ForecastStore.fromDataMap(dataMap);
+            if (delta != null && mForecast != null && mForecast.mVersion == delta.mVersion) {
+                return;
             }
+            final WearForecast forecast = delta == null ? null : delta.applyTo(mForecast);
+            if (forecast == null) {
+                sendToPhone(WearContract.PATH_REQUEST_FORECAST);
+                return;
+            }
+            mForecast = forecast;
+            // Serial, so two forecasts arriving together never write the file at once and the
+            // newer one is written last.
+            AsyncTask.SERIAL_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ForecastStore.write(WatchFaceService.this, forecast);
+                }
+            });
+            sendToPhone(WearContract.PATH_ACK_FORECAST);
+            mDayEndMillis = Long.MIN_VALUE;
+            invalidate();
         }
 
         @Override
         public void onConnectionFailed(ConnectionResult connectionResult) {
-
+            // Back off, so a watch that can't reach Play services doesn't spin trying.
+            long delay = RECONNECT_MAX_DELAY_MS;
+            if (mFailedConnections < 16) {
+                delay = Math.min(RECONNECT_MAX_DELAY_MS,
+                        RECONNECT_MIN_DELAY_MS << mFailedConnections);
+            }
+            mFailedConnections++;
+            Log.d(TAG, "onConnectionFailed: " + connectionResult.getErrorCode()
+                    + ", retrying in " + delay + " ms");
+            // Only one retry is ever pending.
+            mUpdateTimeHandler.removeMessages(MSG_RECONNECT);
+            mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_RECONNECT, delay);
         }
 
-        private void requestWeatherInfo() {
-            PutDataMapRequest putDataMapRequest = PutDataMapRequest.create(DATA_PATH);
-            putDataMapRequest.getDataMap().putString(KEY_UUID, UUID.randomUUID().toString());
-            PutDataRequest request = putDataMapRequest.asPutDataRequest();
-
-            Wearable.DataApi.putDataItem(mGoogleApiClient, request)
-                    .setResultCallback(new ResultCallback<DataApi.DataItemResult>() {
+        /**
+         * Sends a message carrying the version of the forecast the watch holds to the phone.
+         */
+        private void sendToPhone(final String path) {
+            final byte[] payload = WearContract.encodeVersion(
+                    mForecast == null ? 0 : mForecast.mVersion);
+            Wearable.NodeApi.getConnectedNodes(mGoogleApiClient)
+                    .setResultCallback(new ResultCallback<NodeApi.GetConnectedNodesResult>() {
                         @Override
-                        public void onResult(DataApi.DataItemResult dataItemResult) {
-                            if (!dataItemResult.getStatus().isSuccess()) {
-                                Log.d(TAG, "Failed fetching data");
+                        public void onResult(NodeApi.GetConnectedNodesResult result) {
+                            if (!mGoogleApiClient.isConnected()) {
                                 return;
                             }
+                            for (Node node : result.getNodes()) {
+                                Wearable.MessageApi.sendMessage(mGoogleApiClient, node.getId(),
+                                        path, payload);
+                            }
                         }
                     });
         }
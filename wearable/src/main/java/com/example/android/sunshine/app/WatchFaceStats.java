@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.Log;
+
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the watch face costs: draw times per mode, frame rate, timer wakeups, Data Layer traffic
+ * and icon decode time.
+ *
+ * Everything is counted in fields allocated up front, so recording never allocates and can stay
+ * on in the draw path.  Recording happens on the engine's thread, except for icon decodes,
+ * which are recorded on the icon thread.  Read the numbers with {@link #drawOverlay}, {@link
+ * #log} or {@link #dump}; they are approximate while the face is drawing.
+ */
+class WatchFaceStats {
+
+    static final int MODE_INTERACTIVE = 0;
+    static final int MODE_AMBIENT = 1;
+    private static final int MODE_COUNT = 2;
+    private static final String[] MODE_NAMES = {"interactive", "ambient"};
+
+    // Bucket i holds draws under (1 << i) * BUCKET_UNIT_NS, except the last, which holds the
+    // rest: under 0.25, 0.5, 1, 2, 4, 8 and 16 ms, then 16 ms or more.
+    static final int BUCKET_COUNT = 8;
+    private static final long BUCKET_UNIT_NS = TimeUnit.MICROSECONDS.toNanos(250);
+
+    private static final long MINUTE_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final int OVERLAY_LINES = 6;
+
+    private final long[] mDrawBuckets = new long[MODE_COUNT * BUCKET_COUNT];
+    private final long[] mDrawCounts = new long[MODE_COUNT];
+    private final long[] mDrawNanos = new long[MODE_COUNT];
+    private final long[] mMaxDrawNanos = new long[MODE_COUNT];
+
+    // Frames in the minute that started at mMinuteStartMillis, and in the minute before it
+    private long mMinuteStartMillis;
+    private int mMinuteFrames;
+    private int mFramesPerMinute;
+
+    private long mTimerWakeups;
+    private long mDataEvents;
+    private long mDataBytes;
+
+    // Written on the icon thread only
+    private volatile long mIconDecodes;
+    private volatile long mIconDecodeNanos;
+
+    private final Paint mOverlayPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mOverlayBackground = new Paint();
+    private final StringBuilder mText = new StringBuilder(64);
+
+    WatchFaceStats() {
+        mOverlayPaint.setColor(Color.WHITE);
+        mOverlayPaint.setTextAlign(Paint.Align.CENTER);
+        mOverlayBackground.setColor(0xc0000000);
+    }
+
+    static int getBucket(long nanos) {
+        int bucket = 0;
+        long limit = BUCKET_UNIT_NS;
+        while (bucket < BUCKET_COUNT - 1 && nanos >= limit) {
+            bucket++;
+            limit <<= 1;
+        }
+        return bucket;
+    }
+
+    /**
+     * @param mode        MODE_INTERACTIVE or MODE_AMBIENT
+     * @param nanos       how long the frame took to draw
+     * @param frameMillis wall time of the frame
+     */
+    void recordDraw(int mode, long nanos, long frameMillis) {
+        mDrawBuckets[mode * BUCKET_COUNT + getBucket(nanos)]++;
+        mDrawCounts[mode]++;
+        mDrawNanos[mode] += nanos;
+        if (nanos > mMaxDrawNanos[mode]) {
+            mMaxDrawNanos[mode] = nanos;
+        }
+
+        long elapsed = frameMillis - mMinuteStartMillis;
+        if (elapsed >= MINUTE_MS || elapsed < 0) {
+            // A minute or more without frames counts as none.
+            mFramesPerMinute = elapsed < 2 * MINUTE_MS && elapsed >= 0 ? mMinuteFrames : 0;
+            mMinuteStartMillis = frameMillis;
+            mMinuteFrames = 0;
+        }
+        mMinuteFrames++;
+    }
+
+    void recordTimerWakeup() {
+        mTimerWakeups++;
+    }
+
+    /**
+     * @param bytes size of the item's data
+     */
+    void recordDataEvent(int bytes) {
+        mDataEvents++;
+        mDataBytes += bytes;
+    }
+
+    /**
+     * Called on the icon thread.
+     */
+    void recordIconDecode(long nanos) {
+        mIconDecodeNanos += nanos;
+        mIconDecodes++;
+    }
+
+    long getDrawCount(int mode) {
+        return mDrawCounts[mode];
+    }
+
+    long getBucketCount(int mode, int bucket) {
+        return mDrawBuckets[mode * BUCKET_COUNT + bucket];
+    }
+
+    int getFramesPerMinute() {
+        return mFramesPerMinute;
+    }
+
+    private static long toMicros(long nanos) {
+        return nanos / 1000;
+    }
+
+    private void appendDraws(int mode) {
+        long count = mDrawCounts[mode];
+        mText.append(MODE_NAMES[mode]).append(": ").append(count).append(" avg ")
+                .append(count == 0 ? 0 : toMicros(mDrawNanos[mode] / count))
+                .append("us max ").append(toMicros(mMaxDrawNanos[mode])).append("us");
+    }
+
+    private void appendHistogram(int mode) {
+        mText.append(MODE_NAMES[mode]).append(" <.25/.5/1/2/4/8/16/+ms:");
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            mText.append(' ').append(getBucketCount(mode, bucket));
+        }
+    }
+
+    private void appendLine(int line) {
+        mText.setLength(0);
+        switch (line) {
+            case 0:
+                appendDraws(MODE_INTERACTIVE);
+                break;
+            case 1:
+                appendDraws(MODE_AMBIENT);
+                break;
+            case 2:
+                appendHistogram(MODE_INTERACTIVE);
+                break;
+            case 3:
+                appendHistogram(MODE_AMBIENT);
+                break;
+            case 4:
+                mText.append(mFramesPerMinute).append(" fpm, ").append(mTimerWakeups)
+                        .append(" timer wakeups");
+                break;
+            case 5:
+                long decodes = mIconDecodes;
+                mText.append(mDataEvents).append(" data events, ").append(mDataBytes)
+                        .append(" B, icons ").append(decodes).append(" avg ")
+                        .append(decodes == 0 ? 0 : toMicros(mIconDecodeNanos / decodes))
+                        .append("us");
+                break;
+        }
+    }
+
+    /**
+     * Draws the numbers over the bottom of the face.  Doesn't allocate.
+     */
+    synchronized void drawOverlay(Canvas canvas, Rect bounds) {
+        float textSize = bounds.height() / 28f;
+        mOverlayPaint.setTextSize(textSize);
+        float lineHeight = textSize * 1.2f;
+        float top = bounds.bottom - lineHeight * (OVERLAY_LINES + 2);
+        canvas.drawRect(bounds.left, top, bounds.right, bounds.bottom, mOverlayBackground);
+        float baseline = top + lineHeight;
+        for (int line = 0; line < OVERLAY_LINES; line++) {
+            appendLine(line);
+            canvas.drawText(mText, 0, mText.length(), bounds.centerX(), baseline, mOverlayPaint);
+            baseline += lineHeight;
+        }
+    }
+
+    synchronized void log(String tag) {
+        for (int line = 0; line < OVERLAY_LINES; line++) {
+            appendLine(line);
+            Log.d(tag, mText.toString());
+        }
+    }
+
+    synchronized void dump(PrintWriter writer) {
+        for (int line = 0; line < OVERLAY_LINES; line++) {
+            appendLine(line);
+            writer.println(mText);
+        }
+    }
+}
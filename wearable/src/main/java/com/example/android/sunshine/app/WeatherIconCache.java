@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.LruCache;
+
+import com.example.android.sunshine.common.WeatherConditions;
+
+/**
+ * Weather icons decoded and scaled to the watch face's text height on a background thread.
+ *
+ * Results are kept by condition kind and height, so a weather update for a condition that was
+ * shown or pre-warmed before costs nothing, and are handed to the callback on the thread that
+ * asked for them.  Only the latest request is answered.
+ */
+class WeatherIconCache {
+
+    interface Callback {
+        /**
+         * @param icon the scaled icon, or null if the condition has no icon
+         */
+        void onIconReady(Bitmap icon);
+    }
+
+    // Every kind at both the round and the square text size
+    private static final int MAX_ENTRIES = WeatherConditions.KIND_COUNT * 2;
+
+    private final Resources mResources;
+    private final WatchFaceStats mStats;
+    private final Handler mResultHandler;
+    private final HandlerThread mThread;
+    private final Handler mHandler;
+    // Only touched on mThread
+    private final LruCache<Integer, Bitmap> mIcons = new LruCache<>(MAX_ENTRIES);
+
+    // Written on the result thread, read on both
+    private volatile int mLatestRequest;
+
+    /**
+     * @param resultHandler handler of the thread callbacks run on
+     * @param stats         where decode times are recorded
+     */
+    WeatherIconCache(Resources resources, Handler resultHandler, WatchFaceStats stats) {
+        mResources = resources;
+        mStats = stats;
+        mResultHandler = resultHandler;
+        mThread = new HandlerThread("WeatherIcons", Process.THREAD_PRIORITY_BACKGROUND);
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+    }
+
+    private static int getKey(int kind, int height) {
+        return height * WeatherConditions.KIND_COUNT + kind;
+    }
+
+    /**
+     * Starts loading the icon for a condition.  Replaces any request still in flight.
+     */
+    void request(int weatherId, final int height, final Callback callback) {
+        final int request = ++mLatestRequest;
+        final int kind = WeatherConditions.getKind(weatherId);
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (request != mLatestRequest) {
+                    return;
+                }
+                final Bitmap icon = kind == WeatherConditions.KIND_NONE || height <= 0
+                        ? null : get(kind, height);
+                mResultHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (request == mLatestRequest) {
+                            callback.onIconReady(icon);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Decodes every condition's icon at this height in the background, so that whichever
+     * one comes next is ready.
+     */
+    void prewarm(final int height) {
+        if (height <= 0) {
+            return;
+        }
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (int kind = 0; kind < WeatherConditions.KIND_COUNT; kind++) {
+                    get(kind, height);
+                }
+            }
+        });
+    }
+
+    private Bitmap get(int kind, int height) {
+        Integer key = getKey(kind, height);
+        Bitmap icon = mIcons.get(key);
+        if (icon == null) {
+            long start = System.nanoTime();
+            icon = decode(DrawableUtil.WEATHER_ICONS[kind + 1], height);
+            mStats.recordIconDecode(System.nanoTime() - start);
+            if (icon != null) {
+                mIcons.put(key, icon);
+            }
+        }
+        return icon;
+    }
+
+    private Bitmap decode(int resourceId, int height) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(mResources, resourceId, options);
+        if (options.outHeight <= 0) {
+            return null;
+        }
+        // Subsample while the result stays at least as tall as needed, then scale exactly.
+        int sampleSize = 1;
+        while (options.outHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inScaled = false;
+        Bitmap source = BitmapFactory.decodeResource(mResources, resourceId, options);
+        if (source == null) {
+            return null;
+        }
+        int width = Math.max(1, Math.round((float) height / source.getHeight()
+                * source.getWidth()));
+        Bitmap scaled = Bitmap.createScaledBitmap(source, width, height, true);
+        if (scaled != source) {
+            source.recycle();
+        }
+        return scaled;
+    }
+
+    /**
+     * Stops the thread; pending requests are dropped.
+     */
+    void quit() {
+        mLatestRequest++;
+        mThread.quit();
+    }
+}